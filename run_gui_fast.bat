@@ -0,0 +1,27 @@
+@echo off
+echo =========================================
+echo   Text-Based Adventure Game - Fast Start
+echo =========================================
+echo.
+cd src
+if not exist world.snapshot (
+    echo Writing the prebuilt world snapshot...
+    java WorldSnapshot
+)
+if not exist adventure.jsa (
+    echo Recording the class data sharing archive...
+    java -XX:ArchiveClassesAtExit=adventure.jsa AdventureGameGUI --fast --exit-when-ready
+)
+echo Starting the graphical adventure game...
+echo.
+java -XX:SharedArchiveFile=adventure.jsa AdventureGameGUI --fast
+if %ERRORLEVEL% neq 0 (
+    echo.
+    echo ERROR: Failed to start the GUI game!
+    echo Delete src\world.snapshot and src\adventure.jsa after changing the code, then try again.
+    pause
+    exit /b 1
+)
+echo.
+echo Game closed. Thanks for playing!
+pause
\ No newline at end of file
@@ -1,13 +1,22 @@
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
 import javax.swing.text.DefaultCaret;
+import javax.swing.text.SimpleAttributeSet;
+import javax.swing.text.StyleConstants;
+import javax.swing.text.StyledDocument;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * GUI version of the Text-Based Adventure Game
@@ -18,12 +27,38 @@ public class AdventureGameGUI extends JFrame {
     private GameEngine gameEngine;
     
     // GUI components
-    private JTextArea gameDisplay;
+    private JTextPane gameDisplay;
     private JTextField commandInput;
+    private JLabel suggestionLabel;
     private JTextArea inventoryDisplay;
     private JTextArea statusDisplay;
+    private MiniMap miniMap;
     private JPanel buttonPanel;
     private JScrollPane gameScrollPane;
+    private Timer worldTimer;
+    
+    // Fast start: secondary panels are built after the window is shown, and
+    // commands typed before the world has loaded wait for it
+    private boolean fastStart;
+    private boolean secondaryPanelsBuilt;
+    private final List<String> earlyCommands = new ArrayList<>();
+    
+    // Everything shown in the game display is copied here when transcripts are on
+    private volatile TranscriptLog.Session transcript;
+    
+    // Startup timing, reported on stderr with --report-startup
+    private static boolean reportStartup;
+    private static boolean exitWhenReady;
+    private static long windowShownMillis = -1;
+    
+    // Runs of text waiting to be appended to the game display on the event thread, each in its own color
+    private final List<StyledRun> pendingRuns = new ArrayList<>();
+    private boolean flushScheduled;
+    // One attribute set per color, reused for every run in that color
+    private final Map<Color, SimpleAttributeSet> runStyles = new HashMap<>();
+    
+    // Monsters and other world events advance on this fixed-rate tick
+    private static final int WORLD_TICK_MILLIS = 3000;
     
     // Color scheme - Improved for better readability
     private static final Color BACKGROUND_COLOR = new Color(245, 245, 250);
@@ -44,35 +79,91 @@ public class AdventureGameGUI extends JFrame {
         gameEngine = new GameEngine(this);
         setupGUI();
         startGame();
+        
+        worldTimer = new Timer(WORLD_TICK_MILLIS, e -> gameEngine.tick());
+        worldTimer.start();
+    }
+    
+    /**
+     * Fast-start window: only the game display and the command box are built
+     * before the window is shown. The side panels and menus follow on the
+     * next pass of the event thread, and the game starts once the world,
+     * loading in the background, is ready.
+     */
+    private AdventureGameGUI(CompletableFuture<GameWorld> world) {
+        fastStart = true;
+        setupWindow();
+        createMainDisplay();
+        createInputPanel();
+        SwingUtilities.invokeLater(this::createSecondaryPanels);
+        
+        world.whenComplete((loaded, error) -> SwingUtilities.invokeLater(() ->
+            attachGame(new GameEngine(this, loaded != null ? loaded : new GameWorld()))));
     }
     
     private void setupGUI() {
+        setupWindow();
+        createMainDisplay();
+        createInputPanel();
+        createSecondaryPanels();
+    }
+    
+    private void setupWindow() {
         setTitle("Text-Based Adventure Game");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLayout(new BorderLayout());
         getContentPane().setBackground(BACKGROUND_COLOR);
         
-        createMainDisplay();
-        createSidePanels();
-        createInputPanel();
-        createMenuBar();
-        
         // Set window properties
         setSize(1200, 800);
         setLocationRelativeTo(null);
         setMinimumSize(new Dimension(1000, 600));
     }
     
+    // Side panels and menus; built once, whichever start path asks first
+    private void createSecondaryPanels() {
+        if (secondaryPanelsBuilt) {
+            return;
+        }
+        secondaryPanelsBuilt = true;
+        createSidePanels();
+        createMenuBar();
+        revalidate();
+        repaint();
+    }
+    
+    /**
+     * Start the game on a fast-start window once its world has loaded, then
+     * run anything typed while it was loading
+     */
+    private void attachGame(GameEngine engine) {
+        createSecondaryPanels();
+        gameEngine = engine;
+        startGame();
+        
+        worldTimer = new Timer(WORLD_TICK_MILLIS, e -> gameEngine.tick());
+        worldTimer.start();
+        
+        runEarlyCommands();
+        gameReady();
+    }
+    
+    // Run the commands typed while there was no game to take them
+    private void runEarlyCommands() {
+        for (String command : earlyCommands) {
+            executeCommand(command);
+        }
+        earlyCommands.clear();
+    }
+    
     private void createMainDisplay() {
         // Main game display area
-        gameDisplay = new JTextArea();
+        gameDisplay = new JTextPane();
         gameDisplay.setEditable(false);
         gameDisplay.setBackground(Color.WHITE);
         gameDisplay.setForeground(TEXT_COLOR);
         gameDisplay.setFont(MAIN_FONT);
         gameDisplay.setBorder(new EmptyBorder(15, 15, 15, 15));
-        gameDisplay.setLineWrap(true);
-        gameDisplay.setWrapStyleWord(true);
         
         // Auto-scroll to bottom
         DefaultCaret caret = (DefaultCaret) gameDisplay.getCaret();
@@ -130,11 +221,28 @@ public class AdventureGameGUI extends JFrame {
         
         inventoryPanel.add(new JScrollPane(inventoryDisplay), BorderLayout.CENTER);
         
+        // Map of the rooms visited so far
+        JPanel mapPanel = new JPanel(new BorderLayout());
+        mapPanel.setBackground(PANEL_BACKGROUND);
+        mapPanel.setBorder(BorderFactory.createTitledBorder(
+            BorderFactory.createLineBorder(BORDER_COLOR), 
+            "Map", 
+            0, 0, TITLE_FONT, TEXT_COLOR));
+        
+        miniMap = new MiniMap();
+        miniMap.setBorder(BorderFactory.createLineBorder(BORDER_COLOR));
+        mapPanel.add(miniMap, BorderLayout.CENTER);
+        
+        JPanel centerPanel = new JPanel(new GridLayout(2, 1, 0, 8));
+        centerPanel.setBackground(PANEL_BACKGROUND);
+        centerPanel.add(inventoryPanel);
+        centerPanel.add(mapPanel);
+        
         // Quick action buttons
         createQuickActionButtons();
         
         sidePanel.add(statusPanel, BorderLayout.NORTH);
-        sidePanel.add(inventoryPanel, BorderLayout.CENTER);
+        sidePanel.add(centerPanel, BorderLayout.CENTER);
         sidePanel.add(buttonPanel, BorderLayout.SOUTH);
         
         add(sidePanel, BorderLayout.EAST);
@@ -173,17 +281,42 @@ public class AdventureGameGUI extends JFrame {
             new EmptyBorder(8, 12, 8, 12)));
         commandInput.setPreferredSize(new Dimension(0, 35));
         
-        // Enter key listener
+        // Enter runs the command, Tab accepts the first suggestion
+        commandInput.setFocusTraversalKeysEnabled(false);
         commandInput.addKeyListener(new KeyAdapter() {
             @Override
             public void keyPressed(KeyEvent e) {
                 if (e.getKeyCode() == KeyEvent.VK_ENTER) {
                     executeCommand(commandInput.getText().trim());
                     commandInput.setText("");
+                } else if (e.getKeyCode() == KeyEvent.VK_TAB) {
+                    acceptSuggestion();
+                    e.consume();
                 }
             }
         });
         
+        // Suggestions follow the input as it is typed
+        suggestionLabel = new JLabel(" ");
+        suggestionLabel.setForeground(ACCENT_COLOR);
+        suggestionLabel.setFont(MAIN_FONT);
+        commandInput.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                refreshSuggestions();
+            }
+            
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                refreshSuggestions();
+            }
+            
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                refreshSuggestions();
+            }
+        });
+        
         // Submit button
         JButton submitButton = createStyledButton("Execute");
         submitButton.addActionListener(e -> {
@@ -208,7 +341,12 @@ public class AdventureGameGUI extends JFrame {
         }}, BorderLayout.WEST);
         inputPanel.add(commandInput, BorderLayout.CENTER);
         inputPanel.add(submitButton, BorderLayout.EAST);
-        inputPanel.add(actionButtonsPanel, BorderLayout.SOUTH);
+        
+        JPanel southPanel = new JPanel(new BorderLayout(5, 5));
+        southPanel.setBackground(BACKGROUND_COLOR);
+        southPanel.add(suggestionLabel, BorderLayout.NORTH);
+        southPanel.add(actionButtonsPanel, BorderLayout.CENTER);
+        inputPanel.add(southPanel, BorderLayout.SOUTH);
         
         add(inputPanel, BorderLayout.SOUTH);
     }
@@ -247,7 +385,22 @@ public class AdventureGameGUI extends JFrame {
         helpMenu.add(commands);
         helpMenu.add(about);
         
+        // Stats menu
+        JMenu statsMenu = new JMenu("Stats");
+        statsMenu.setForeground(TEXT_COLOR);
+        statsMenu.setFont(BUTTON_FONT);
+        
+        JMenuItem commandStats = new JMenuItem("Command Metrics");
+        commandStats.addActionListener(e -> showStatsDialog());
+        
+        JMenuItem runStats = new JMenuItem("Leaderboard");
+        runStats.addActionListener(e -> showLeaderboardDialog());
+        
+        statsMenu.add(commandStats);
+        statsMenu.add(runStats);
+        
         menuBar.add(gameMenu);
+        menuBar.add(statsMenu);
         menuBar.add(helpMenu);
         
         setJMenuBar(menuBar);
@@ -278,19 +431,106 @@ public class AdventureGameGUI extends JFrame {
         return button;
     }
     
+    private void refreshSuggestions() {
+        if (gameEngine == null) {
+            return;
+        }
+        List<String> suggestions = gameEngine.suggestionsFor(commandInput.getText());
+        suggestionLabel.setText(suggestions.isEmpty() ? " " : "Tab: " + String.join("   ", suggestions));
+    }
+    
+    private void acceptSuggestion() {
+        if (gameEngine == null) {
+            return;
+        }
+        List<String> suggestions = gameEngine.suggestionsFor(commandInput.getText());
+        if (!suggestions.isEmpty()) {
+            // Leave a space after a bare command so the argument can follow
+            String accepted = suggestions.get(0);
+            commandInput.setText(accepted.indexOf(' ') < 0 ? accepted + " " : accepted);
+        }
+    }
+    
     private void executeCommand(String command) {
         if (command.isEmpty()) return;
+        if (gameEngine == null) {
+            earlyCommands.add(command);
+            return;
+        }
         
         displayText("\n> " + command + "\n", new Color(75, 0, 130));
         gameEngine.processCommand(command);
         commandInput.requestFocus();
     }
     
+    /**
+     * A stretch of queued text in one color
+     */
+    private static final class StyledRun {
+        private final StringBuilder text;
+        private final Color color;
+        
+        StyledRun(String text, Color color) {
+            this.text = new StringBuilder(text);
+            this.color = color;
+        }
+    }
+    
+    /**
+     * Queue text for the game display. Text queued before the event thread
+     * gets to it is appended in one go, so a batch of actions causes a single
+     * update of the display; each message keeps its own color.
+     */
     public void displayText(String text, Color color) {
-        SwingUtilities.invokeLater(() -> {
-            gameDisplay.setForeground(color);
-            gameDisplay.append(text);
-            gameDisplay.setCaretPosition(gameDisplay.getDocument().getLength());
+        TranscriptLog.Session log = transcript;
+        if (log != null) {
+            log.log(text);
+        }
+        synchronized (pendingRuns) {
+            StyledRun last = pendingRuns.isEmpty() ? null : pendingRuns.get(pendingRuns.size() - 1);
+            if (last != null && last.color.equals(color)) {
+                last.text.append(text);
+            } else {
+                pendingRuns.add(new StyledRun(text, color));
+            }
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+        }
+        String session = GameEvents.session();
+        String verb = GameEvents.verb();
+        SwingUtilities.invokeLater(() -> flushText(session, verb));
+    }
+    
+    private void flushText(String session, String verb) {
+        List<StyledRun> runs;
+        synchronized (pendingRuns) {
+            runs = new ArrayList<>(pendingRuns);
+            pendingRuns.clear();
+            flushScheduled = false;
+        }
+        GameEvents.GuiFlush flush = GameEvents.GuiFlush.start();
+        StyledDocument document = gameDisplay.getStyledDocument();
+        int length = 0;
+        try {
+            for (StyledRun run : runs) {
+                document.insertString(document.getLength(), run.text.toString(), styleFor(run.color));
+                length += run.text.length();
+            }
+        } catch (BadLocationException e) {
+            // Always appending at the end, so this cannot happen
+            throw new IllegalStateException(e);
+        }
+        gameDisplay.setCaretPosition(document.getLength());
+        flush.finish(session, verb, "gameDisplay", length);
+    }
+    
+    private SimpleAttributeSet styleFor(Color color) {
+        return runStyles.computeIfAbsent(color, c -> {
+            SimpleAttributeSet style = new SimpleAttributeSet();
+            StyleConstants.setForeground(style, c);
+            return style;
         });
     }
     
@@ -299,11 +539,27 @@ public class AdventureGameGUI extends JFrame {
     }
     
     public void updateStatus(String status) {
-        SwingUtilities.invokeLater(() -> statusDisplay.setText(status));
+        String session = GameEvents.session();
+        String verb = GameEvents.verb();
+        SwingUtilities.invokeLater(() -> {
+            GameEvents.GuiFlush flush = GameEvents.GuiFlush.start();
+            statusDisplay.setText(status);
+            flush.finish(session, verb, "statusDisplay", status.length());
+        });
     }
     
     public void updateInventory(String inventory) {
-        SwingUtilities.invokeLater(() -> inventoryDisplay.setText(inventory));
+        String session = GameEvents.session();
+        String verb = GameEvents.verb();
+        SwingUtilities.invokeLater(() -> {
+            GameEvents.GuiFlush flush = GameEvents.GuiFlush.start();
+            inventoryDisplay.setText(inventory);
+            flush.finish(session, verb, "inventoryDisplay", inventory.length());
+        });
+    }
+    
+    public void updateMap(Location playerRoom) {
+        SwingUtilities.invokeLater(() -> miniMap.showPlayerAt(playerRoom));
     }
     
     public void clearDisplay() {
@@ -311,6 +567,7 @@ public class AdventureGameGUI extends JFrame {
     }
     
     private void startGame() {
+        transcript = TranscriptLog.sharedSession(gameEngine.getSessionId());
         displayText("═══════════════════════════════════════════\n", ACCENT_COLOR);
         displayText("    Welcome to the Adventure Game!\n", ACCENT_COLOR);
         displayText("═══════════════════════════════════════════\n\n", ACCENT_COLOR);
@@ -319,8 +576,10 @@ public class AdventureGameGUI extends JFrame {
         displayText("in these mystical lands. Use commands or buttons to play!\n\n");
         
         displayText("Available commands: go <direction>, look, take <item>,\n");
-        displayText("drop <item>, use <item>, inventory, status, help, quit\n\n");
+        displayText("drop <item>, put <item> in <container>, use <item>, attack <monster>,\n");
+        displayText("inventory, status, help, quit\n\n");
         
+        miniMap.setWorld(gameEngine.getWorld());
         gameEngine.startGame();
     }
     
@@ -335,8 +594,22 @@ public class AdventureGameGUI extends JFrame {
         
         if (option == JOptionPane.YES_OPTION) {
             clearDisplay();
-            gameEngine = new GameEngine(this);
-            startGame();
+            if (!fastStart) {
+                gameEngine = new GameEngine(this);
+                startGame();
+                return;
+            }
+            
+            // Load the new world in the background as at startup; the old game
+            // stops ticking, and anything typed meanwhile waits for the new one
+            gameEngine = null;
+            worldTimer.stop();
+            CompletableFuture.supplyAsync(GameWorld::prebuilt).whenComplete((loaded, error) -> SwingUtilities.invokeLater(() -> {
+                gameEngine = new GameEngine(this, loaded != null ? loaded : new GameWorld());
+                startGame();
+                worldTimer.start();
+                runEarlyCommands();
+            }));
         }
     }
     
@@ -348,18 +621,41 @@ public class AdventureGameGUI extends JFrame {
             "• look - Examine your surroundings\n" +
             "• look <item> - Examine a specific item\n" +
             "• take <item> - Pick up an item\n" +
+            "• look in <container> - See what is inside a bag or chest\n" +
+            "• take <item> from <container> - Take something out of a container\n" +
             "• drop <item> - Drop an item\n" +
-            "• use <item> - Use an item from inventory\n\n" +
+            "• put <item> in <container> - Put an item inside a bag or chest\n" +
+            "• use <item> - Use an item from inventory\n" +
+            "• attack <monster> - Fight a monster\n\n" +
             "Information:\n" +
             "• inventory - Show your items\n" +
             "• status - Show health and inventory\n" +
+            "• who - See who else is here\n" +
+            "• undo / redo - Take back your last turn, or replay it\n" +
             "• help - Show this help\n" +
             "• quit - Exit the game\n\n" +
+            "Combine actions with commas or 'then', e.g. take all, go north then look\n\n" +
             "TIP: You can also use the buttons for quick actions!";
         
         JOptionPane.showMessageDialog(this, helpText, "Help", JOptionPane.INFORMATION_MESSAGE);
     }
     
+    private void showStatsDialog() {
+        JTextArea report = new JTextArea(GameMetrics.get().getReport());
+        report.setEditable(false);
+        report.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        
+        JOptionPane.showMessageDialog(this, new JScrollPane(report), "Command Metrics", JOptionPane.PLAIN_MESSAGE);
+    }
+    
+    private void showLeaderboardDialog() {
+        JTextArea report = new JTextArea(RunStats.get().getReport());
+        report.setEditable(false);
+        report.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        
+        JOptionPane.showMessageDialog(this, new JScrollPane(report), "Leaderboard", JOptionPane.PLAIN_MESSAGE);
+    }
+    
     private void showAboutDialog() {
         String aboutText = "Text-Based Adventure Game\n\n" +
             "A Java-based adventure game featuring:\n" +
@@ -394,7 +690,54 @@ public class AdventureGameGUI extends JFrame {
         });
     }
     
+    // Milliseconds since the JVM was launched
+    private static long sinceLaunch() {
+        return ProcessHandle.current().info().startInstant()
+            .map(start -> System.currentTimeMillis() - start.toEpochMilli())
+            .orElse(-1L);
+    }
+    
+    // The game is on screen and commands run as soon as they are entered
+    private void gameReady() {
+        if (!reportStartup || windowShownMillis < 0) {
+            return;
+        }
+        long firstInput = sinceLaunch();
+        SwingUtilities.invokeLater(() -> {
+            System.err.println("startup: window " + windowShownMillis + " ms, first input " + firstInput + " ms");
+            if (exitWhenReady) {
+                System.exit(0);
+            }
+        });
+    }
+    
+    /**
+     * Usage: java AdventureGameGUI [--fast] [--report-startup] [--exit-when-ready]
+     * --fast shows the window first and loads the world from its snapshot in
+     * the background; --report-startup prints the time to first input, and
+     * --exit-when-ready quits at that point (for timing runs and building a
+     * class data sharing archive).
+     */
     public static void main(String[] args) {
+        boolean fast = false;
+        for (String arg : args) {
+            switch (arg) {
+                case "--fast":
+                    fast = true;
+                    break;
+                case "--report-startup":
+                    reportStartup = true;
+                    break;
+                case "--exit-when-ready":
+                    reportStartup = true;
+                    exitWhenReady = true;
+                    break;
+            }
+        }
+        
+        // Start loading the world before Swing is touched, so the two overlap
+        CompletableFuture<GameWorld> world = fast ? CompletableFuture.supplyAsync(GameWorld::prebuilt) : null;
+        
         // Set look and feel
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -403,7 +746,13 @@ public class AdventureGameGUI extends JFrame {
         }
         
         SwingUtilities.invokeLater(() -> {
-            new AdventureGameGUI().setVisible(true);
+            AdventureGameGUI gui = world != null ? new AdventureGameGUI(world) : new AdventureGameGUI();
+            gui.setVisible(true);
+            gui.commandInput.requestFocusInWindow();
+            windowShownMillis = sinceLaunch();
+            if (gui.gameEngine != null) {
+                gui.gameReady();
+            }
         });
     }
 }
\ No newline at end of file
@@ -0,0 +1,97 @@
+/**
+ * Difficulty settings for a world: how hard the dragon and the player hit
+ * Each amount is a range that is rolled on the player's dice, so a range
+ * with the same minimum and maximum is a fixed amount and rolls nothing.
+ * The standard settings are the amounts the game has always used.
+ */
+public final class Balance {
+    public static final Balance STANDARD = new Balance(50, 50, 0, 0, 20, 20, 5, 5);
+    
+    // The dragon's breath, when the player arrives without a sword
+    private final int breathMin;
+    private final int breathMax;
+    // The wound the dragon deals as it is defeated
+    private final int fightMin;
+    private final int fightMax;
+    // The player's blows against monsters
+    private final int swordMin;
+    private final int swordMax;
+    private final int fistMin;
+    private final int fistMax;
+    
+    private Balance(int breathMin, int breathMax, int fightMin, int fightMax,
+                    int swordMin, int swordMax, int fistMin, int fistMax) {
+        this.breathMin = breathMin;
+        this.breathMax = breathMax;
+        this.fightMin = fightMin;
+        this.fightMax = fightMax;
+        this.swordMin = swordMin;
+        this.swordMax = swordMax;
+        this.fistMin = fistMin;
+        this.fistMax = fistMax;
+    }
+    
+    public Balance withDragonBreath(int min, int max) {
+        check(min, max);
+        return new Balance(min, max, fightMin, fightMax, swordMin, swordMax, fistMin, fistMax);
+    }
+    
+    public Balance withDragonFight(int min, int max) {
+        check(min, max);
+        return new Balance(breathMin, breathMax, min, max, swordMin, swordMax, fistMin, fistMax);
+    }
+    
+    public Balance withSword(int min, int max) {
+        check(min, max);
+        return new Balance(breathMin, breathMax, fightMin, fightMax, min, max, fistMin, fistMax);
+    }
+    
+    public Balance withFist(int min, int max) {
+        check(min, max);
+        return new Balance(breathMin, breathMax, fightMin, fightMax, swordMin, swordMax, min, max);
+    }
+    
+    private static void check(int min, int max) {
+        if (min < 0 || max < min) {
+            throw new IllegalArgumentException("Bad damage range " + min + "-" + max);
+        }
+    }
+    
+    public int getBreathMin() {
+        return breathMin;
+    }
+    
+    public int getBreathMax() {
+        return breathMax;
+    }
+    
+    public int getFightMin() {
+        return fightMin;
+    }
+    
+    public int getFightMax() {
+        return fightMax;
+    }
+    
+    public int getSwordMin() {
+        return swordMin;
+    }
+    
+    public int getSwordMax() {
+        return swordMax;
+    }
+    
+    public int getFistMin() {
+        return fistMin;
+    }
+    
+    public int getFistMax() {
+        return fistMax;
+    }
+    
+    @Override
+    public String toString() {
+        return "breath " + breathMin + "-" + breathMax + ", fight " + fightMin + "-" + fightMax
+            + ", sword " + swordMin + "-" + swordMax + ", fist " + fistMin + "-" + fistMax;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,413 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Monte Carlo balance simulator
+ * Plays many games of the standard world with an agent policy choosing every
+ * command, and reports the win rate, the turns taken to win, the health left
+ * at the end and where players died. Games are split across a ForkJoinPool.
+ * Each game gets its own SplittableRandom, split from one root seed along a
+ * fixed tree of run ranges, which seeds the player's dice, the monsters and
+ * the agent. So a game never shares a generator with another thread, and the
+ * same seed gives the same report however the work is scheduled.
+ *
+ * Policies: random picks any command that makes sense where it stands, greedy
+ * takes everything, drinks the potion when hurt, fights when armed and heads
+ * for the nearest unexplored room, scripted plays the walkthrough scenario.
+ *
+ * With --sweep, the greedy policy is played against a range of dragon fight
+ * damage settings, to see how hard the dragon can hit before games are lost.
+ *
+ * Usage: java BalanceSimulator [runs] [random|greedy|scripted|all] [--seed n] [--turns n]
+ *        [--fight min-max] [--breath min-max] [--sword min-max] [--fist min-max] [--sweep]
+ * Start with -Dadventure.metrics=false to leave command timing out of the runs.
+ */
+public class BalanceSimulator {
+    // Runs played by one task before the range is split no further
+    private static final int LEAF_RUNS = 64;
+    private static final int HEALTH_BUCKETS = 11;
+    // Entering this room wins, so the greedy policy explores everything else first
+    private static final String GOAL = "treasure_room";
+    
+    /**
+     * Chooses the next command of one game
+     */
+    public interface Agent {
+        String next(Player player, GameWorld world, SplittableRandom random);
+    }
+    
+    /**
+     * The agent policies, each making a fresh agent for every game
+     */
+    public enum Policy {
+        RANDOM, GREEDY, SCRIPTED;
+        
+        Agent newAgent(List<String> script) {
+            switch (this) {
+                case RANDOM:
+                    return BalanceSimulator::randomCommand;
+                case GREEDY:
+                    return new GreedyAgent();
+                default:
+                    Iterator<String> lines = script.iterator();
+                    return (player, world, random) -> lines.hasNext() ? lines.next() : "quit";
+            }
+        }
+    }
+    
+    private final Balance balance;
+    private final Policy policy;
+    private final List<String> script;
+    private final int maxTurns;
+    
+    public BalanceSimulator(Balance balance, Policy policy, List<String> script, int maxTurns) {
+        this.balance = balance;
+        this.policy = policy;
+        this.script = script;
+        this.maxTurns = maxTurns;
+    }
+    
+    /**
+     * Outcomes of a batch of games; batches from different tasks are merged
+     */
+    public static class Tally {
+        private long runs;
+        private long wins;
+        private long deaths;
+        private long gaveUp;
+        private final QuantileSketch turnsToWin = new QuantileSketch();
+        // Health at the end of won games, in tenths of full health
+        private final long[] healthLeft = new long[HEALTH_BUCKETS];
+        private final Map<String, Long> deathsByRoom = new TreeMap<>();
+        
+        void add(Player player, int turns) {
+            runs++;
+            if (player.isGameWon()) {
+                wins++;
+                turnsToWin.record(turns);
+                healthLeft[Math.min(player.getHealth() / 10, HEALTH_BUCKETS - 1)]++;
+            } else if (player.isGameLost()) {
+                deaths++;
+                deathsByRoom.merge(player.getCurrentLocation().getId(), 1L, Long::sum);
+            } else {
+                gaveUp++;
+            }
+        }
+        
+        Tally merge(Tally other) {
+            runs += other.runs;
+            wins += other.wins;
+            deaths += other.deaths;
+            gaveUp += other.gaveUp;
+            turnsToWin.merge(other.turnsToWin);
+            for (int i = 0; i < HEALTH_BUCKETS; i++) {
+                healthLeft[i] += other.healthLeft[i];
+            }
+            other.deathsByRoom.forEach((room, n) -> deathsByRoom.merge(room, n, Long::sum));
+            return this;
+        }
+        
+        public double winRate() {
+            return runs == 0 ? 0 : (double) wins / runs;
+        }
+        
+        public double deathRate() {
+            return runs == 0 ? 0 : (double) deaths / runs;
+        }
+        
+        public QuantileSketch getTurnsToWin() {
+            return turnsToWin;
+        }
+    }
+    
+    /**
+     * Play a number of games from one seed on the pool
+     */
+    public Tally simulate(int runs, long seed, ForkJoinPool pool) {
+        return pool.invoke(new RunTask(0, runs, new SplittableRandom(seed)));
+    }
+    
+    private class RunTask extends RecursiveTask<Tally> {
+        private static final long serialVersionUID = 1L;
+        
+        private final int from;
+        private final int to;
+        private final SplittableRandom random;
+        
+        RunTask(int from, int to, SplittableRandom random) {
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+        
+        @Override
+        protected Tally compute() {
+            if (to - from <= LEAF_RUNS) {
+                Tally tally = new Tally();
+                for (int i = from; i < to; i++) {
+                    playOne(random.split(), tally);
+                }
+                return tally;
+            }
+            // Split before forking, so each half's stream depends only on its range
+            int mid = (from + to) >>> 1;
+            RunTask left = new RunTask(from, mid, random.split());
+            RunTask right = new RunTask(mid, to, random);
+            left.fork();
+            Tally done = right.compute();
+            return left.join().merge(done);
+        }
+    }
+    
+    // One game, start to finish, with nothing printed or recorded
+    private void playOne(SplittableRandom random, Tally tally) {
+        GameWorld world = new GameWorld(balance);
+        world.getMonsters().reseed(random.nextLong());
+        Game game = new Game(new ConsoleRenderer(OutputStream.nullOutputStream()), world);
+        game.setRunStats(null);
+        Player player = game.getPlayer();
+        player.setDice(random.split());
+        game.begin();
+        
+        Agent agent = policy.newAgent(script);
+        int turns = 0;
+        while (game.isRunning() && turns < maxTurns) {
+            game.play(agent.next(player, world, random));
+            turns++;
+        }
+        tally.add(player, turns);
+    }
+    
+    // Any command that does something where the player stands
+    private static String randomCommand(Player player, GameWorld world, SplittableRandom random) {
+        Location here = player.getCurrentLocation();
+        List<String> choices = new ArrayList<>();
+        for (String direction : here.getAvailableDirections()) {
+            choices.add("go " + direction);
+        }
+        for (Item item : here.getItems()) {
+            if (item.canTake()) {
+                choices.add("take " + item.getName());
+            }
+        }
+        for (Item item : player.getInventory()) {
+            if (item.canUse()) {
+                choices.add("use " + item.getName());
+            }
+        }
+        Monsters monsters = world.getMonsters();
+        for (int monster : monsters.inRoom(world.getGraph().indexOf(here))) {
+            choices.add("attack " + monsters.getKind(monster));
+        }
+        return choices.isEmpty() ? "look" : choices.get(random.nextInt(choices.size()));
+    }
+    
+    /**
+     * Takes everything, heals when hurt, fights when armed, and otherwise
+     * walks to the nearest room it has not seen, leaving the treasure room
+     * for last. An exit that turned it back is avoided until its inventory
+     * changes.
+     */
+    private static class GreedyAgent implements Agent {
+        private final Set<String> blocked = new HashSet<>();
+        private Location lastRoom;
+        private String lastMove;
+        private int lastItems;
+        
+        @Override
+        public String next(Player player, GameWorld world, SplittableRandom random) {
+            Location here = player.getCurrentLocation();
+            int items = player.getInventory().size();
+            if (lastMove != null && here == lastRoom) {
+                blocked.add(here.getId() + " " + lastMove);
+            }
+            if (items != lastItems) {
+                blocked.clear();
+                lastItems = items;
+            }
+            lastMove = null;
+            
+            if (player.getHealth() <= 50 && player.hasItem("potion")) {
+                return "use potion";
+            }
+            Monsters monsters = world.getMonsters();
+            List<Integer> present = monsters.inRoom(world.getGraph().indexOf(here));
+            if (!present.isEmpty() && player.hasItem("sword")) {
+                return "attack " + monsters.getKind(present.get(0));
+            }
+            for (Item item : here.getItems()) {
+                if (item.canTake()) {
+                    return "take " + item.getName();
+                }
+            }
+            
+            String step = firstStepToUnvisited(here, false, random);
+            if (step == null) {
+                step = firstStepToUnvisited(here, true, random);
+            }
+            if (step == null) {
+                return "look";
+            }
+            lastRoom = here;
+            lastMove = step;
+            return "go " + step;
+        }
+        
+        // Breadth-first search to the nearest unvisited room, trying exits in a random order
+        private String firstStepToUnvisited(Location start, boolean toGoal, SplittableRandom random) {
+            Map<Location, String> firstStep = new HashMap<>();
+            Deque<Location> queue = new ArrayDeque<>();
+            firstStep.put(start, null);
+            queue.add(start);
+            while (!queue.isEmpty()) {
+                Location room = queue.poll();
+                List<String> directions = new ArrayList<>(room.getAvailableDirections());
+                Collections.sort(directions);
+                Collections.shuffle(directions, new Random(random.nextLong()));
+                for (String direction : directions) {
+                    Location next = room.getConnection(direction);
+                    if (firstStep.containsKey(next) || blocked.contains(room.getId() + " " + direction)
+                        || !toGoal && next.getId().equals(GOAL)) {
+                        continue;
+                    }
+                    String step = room == start ? direction : firstStep.get(room);
+                    if (!next.isVisited()) {
+                        return step;
+                    }
+                    firstStep.put(next, step);
+                    queue.add(next);
+                }
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * Print the outcome of one batch of games
+     */
+    public static void report(String title, Tally tally, double seconds) {
+        System.out.printf("%s: %,d games in %.1f s (%,.0f games/s)%n",
+            title, tally.runs, seconds, tally.runs / Math.max(seconds, 1e-9));
+        System.out.printf("  won %5.1f%%   died %5.1f%%   gave up %5.1f%%%n",
+            100.0 * tally.wins / tally.runs, 100.0 * tally.deaths / tally.runs, 100.0 * tally.gaveUp / tally.runs);
+        if (tally.wins > 0) {
+            QuantileSketch turns = tally.turnsToWin;
+            System.out.printf("  turns to win: mean %.1f, p50 %.0f, p90 %.0f, p99 %.0f%n",
+                turns.mean(), turns.quantile(0.5), turns.quantile(0.9), turns.quantile(0.99));
+            System.out.println("  health left at victory:");
+            for (int i = HEALTH_BUCKETS - 1; i >= 0; i--) {
+                if (tally.healthLeft[i] == 0) {
+                    continue;
+                }
+                double share = (double) tally.healthLeft[i] / tally.wins;
+                String label = i == HEALTH_BUCKETS - 1 ? "    100" : String.format("%3d-%3d", i * 10, i * 10 + 9);
+                System.out.printf("    %s %-40s %5.1f%%%n", label, "#".repeat((int) Math.round(share * 40)), share * 100);
+            }
+        }
+        if (!tally.deathsByRoom.isEmpty()) {
+            System.out.println("  deaths by room: " + tally.deathsByRoom);
+        }
+        System.out.println();
+    }
+    
+    public static void main(String[] args) throws IOException {
+        int runs = 20_000;
+        String which = "all";
+        long seed = 42;
+        int maxTurns = 200;
+        boolean sweep = false;
+        Balance balance = Balance.STANDARD;
+        List<String> positional = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--turns":
+                    maxTurns = Integer.parseInt(args[++i]);
+                    break;
+                case "--fight":
+                    int[] fight = range(args[++i]);
+                    balance = balance.withDragonFight(fight[0], fight[1]);
+                    break;
+                case "--breath":
+                    int[] breath = range(args[++i]);
+                    balance = balance.withDragonBreath(breath[0], breath[1]);
+                    break;
+                case "--sword":
+                    int[] sword = range(args[++i]);
+                    balance = balance.withSword(sword[0], sword[1]);
+                    break;
+                case "--fist":
+                    int[] fist = range(args[++i]);
+                    balance = balance.withFist(fist[0], fist[1]);
+                    break;
+                case "--sweep":
+                    sweep = true;
+                    break;
+                default:
+                    positional.add(args[i]);
+            }
+        }
+        if (positional.size() > 0) {
+            runs = Integer.parseInt(positional.get(0));
+        }
+        if (positional.size() > 1) {
+            which = positional.get(1);
+        }
+        
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        System.out.printf("%,d games per setting, seed %d, at most %d turns, %d threads%n%n",
+            runs, seed, maxTurns, pool.getParallelism());
+        
+        if (sweep) {
+            System.out.println("Greedy policy against the dragon's fight damage:");
+            for (int damage = 0; damage <= 100; damage += 20) {
+                Balance setting = balance.withDragonFight(Math.max(0, damage - 10), damage == 0 ? 0 : damage + 10);
+                BalanceSimulator simulator = new BalanceSimulator(setting, Policy.GREEDY, Collections.emptyList(), maxTurns);
+                Tally tally = simulator.simulate(runs, seed, pool);
+                System.out.printf("  fight %3d-%3d: won %5.1f%%, died %5.1f%%, p50 turns to win %.0f%n",
+                    setting.getFightMin(), setting.getFightMax(), tally.winRate() * 100, tally.deathRate() * 100,
+                    tally.turnsToWin.count() > 0 ? tally.turnsToWin.quantile(0.5) : 0);
+            }
+            return;
+        }
+        
+        System.out.println("Balance: " + balance);
+        System.out.println();
+        for (Policy policy : Policy.values()) {
+            if (!which.equals("all") && !which.equalsIgnoreCase(policy.name())) {
+                continue;
+            }
+            List<String> script = policy == Policy.SCRIPTED ? walkthrough() : Collections.emptyList();
+            BalanceSimulator simulator = new BalanceSimulator(balance, policy, script, maxTurns);
+            long start = System.nanoTime();
+            Tally tally = simulator.simulate(runs, seed, pool);
+            report(policy.name().toLowerCase(), tally, (System.nanoTime() - start) / 1e9);
+        }
+    }
+    
+    // The walkthrough scenario's commands, for the scripted policy
+    private static List<String> walkthrough() throws IOException {
+        List<String> script = new ArrayList<>();
+        for (String line : Files.readAllLines(ScenarioRunner.scenarioDir().resolve("walkthrough.scenario"))) {
+            if (!line.isEmpty() && !line.startsWith("#") && !line.startsWith("@")) {
+                script.add(line);
+            }
+        }
+        return script;
+    }
+    
+    // A damage range written as min-max, or a single fixed amount
+    private static int[] range(String text) {
+        int dash = text.indexOf('-');
+        if (dash < 0) {
+            int amount = Integer.parseInt(text);
+            return new int[] { amount, amount };
+        }
+        return new int[] { Integer.parseInt(text.substring(0, dash)), Integer.parseInt(text.substring(dash + 1)) };
+    }
+}
\ No newline at end of file
@@ -0,0 +1,71 @@
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits one line of input into the actions it asks for, such as
+ * "take key, take potion then go south". The whole batch runs as a single
+ * turn: the world ticks once and the display is refreshed once at the end.
+ */
+public final class CommandBatch {
+    // Commas, semicolons and "then" always separate actions, in any case
+    private static final Pattern SEPARATOR = Pattern.compile(
+        "\\s*[,;]\\s*(?:and\\s+)?(?:then\\s+)?|\\s+(?:and\\s+)?then\\s+", Pattern.CASE_INSENSITIVE);
+    // "and" separates actions only before a command word, so "take key and potion" stays one action
+    private static final Pattern AND = Pattern.compile("\\s+and\\s+", Pattern.CASE_INSENSITIVE);
+    
+    private CommandBatch() {
+    }
+    
+    /**
+     * One action in a batch: a command word and its argument
+     */
+    public static class Action {
+        private final String command;
+        private final String argument;
+        
+        public Action(String command, String argument) {
+            this.command = command;
+            this.argument = argument;
+        }
+        
+        public String getCommand() {
+            return command;
+        }
+        
+        public String getArgument() {
+            return argument;
+        }
+    }
+    
+    /**
+     * Parse a line into its actions, in order. Empty pieces are skipped.
+     */
+    public static List<Action> parse(String input) {
+        List<Action> actions = new ArrayList<>();
+        for (String piece : SEPARATOR.split(input.trim())) {
+            int start = 0;
+            Matcher and = AND.matcher(piece);
+            while (and.find()) {
+                if (Commands.verbOf(firstWord(piece.substring(and.end()))) != null) {
+                    add(piece.substring(start, and.start()), actions);
+                    start = and.end();
+                }
+            }
+            add(piece.substring(start), actions);
+        }
+        return actions;
+    }
+    
+    private static void add(String piece, List<Action> actions) {
+        if (piece.isEmpty()) {
+            return;
+        }
+        String[] parts = piece.split("\\s+", 2);
+        actions.add(new Action(parts[0].toLowerCase(), parts.length > 1 ? parts[1] : ""));
+    }
+    
+    private static String firstWord(String text) {
+        return text.split("\\s+", 2)[0].toLowerCase();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,68 @@
+import java.util.*;
+
+/**
+ * The command words the game understands and the verb each one stands for
+ * (for example "get" and "pick" are both the verb "take")
+ */
+public final class Commands {
+    private static final Map<String, String> VERBS = new LinkedHashMap<>();
+    private static final NameIndex WORDS;
+    
+    static {
+        alias("go", "go", "move");
+        alias("look", "look", "examine");
+        alias("take", "take", "get", "pick");
+        alias("drop", "drop");
+        alias("put", "put", "place");
+        alias("use", "use");
+        alias("attack", "attack", "fight", "kill");
+        alias("inventory", "inventory", "inv", "items");
+        alias("status", "status", "stats");
+        alias("who", "who");
+        alias("undo", "undo", "back");
+        alias("redo", "redo");
+        alias("help", "help", "commands");
+        alias("quit", "quit", "exit");
+        WORDS = new NameIndex(VERBS.keySet());
+    }
+    
+    private Commands() {
+    }
+    
+    private static void alias(String verb, String... words) {
+        for (String word : words) {
+            VERBS.put(word, verb);
+        }
+    }
+    
+    /**
+     * The verb a command word stands for, or null if the word is unknown
+     */
+    public static String verbOf(String word) {
+        return VERBS.get(word);
+    }
+    
+    // Every command word, including aliases
+    public static Set<String> words() {
+        return Collections.unmodifiableSet(VERBS.keySet());
+    }
+    
+    /**
+     * Command words starting with the prefix, in alphabetical order
+     */
+    public static List<String> complete(String prefix, int limit) {
+        return WORDS.complete(prefix, limit);
+    }
+    
+    /**
+     * The command word a misspelling most likely meant, or null
+     */
+    public static String closest(String word) {
+        return WORDS.closest(word);
+    }
+    
+    // The distinct verbs
+    public static Set<String> verbs() {
+        return new LinkedHashSet<>(VERBS.values());
+    }
+}
\ No newline at end of file
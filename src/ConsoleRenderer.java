@@ -0,0 +1,156 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.*;
+
+/**
+ * Buffered console output for the text game
+ * Collects everything printed during a turn and writes it with a single flush,
+ * copying the turn to the session's transcript when transcripts are on
+ */
+public class ConsoleRenderer {
+    private static final int INITIAL_CAPACITY = 8192;
+    
+    private final StringBuilder turn;
+    private final CharsetEncoder encoder;
+    private final OutputStream stream;
+    private final WritableByteChannel channel;
+    private ByteBuffer bytes;
+    private TranscriptLog.Session transcript;
+    
+    public ConsoleRenderer(OutputStream stream) {
+        this(stream, null, Charset.defaultCharset());
+    }
+    
+    public ConsoleRenderer(OutputStream stream, Charset charset) {
+        this(stream, null, charset);
+    }
+    
+    public ConsoleRenderer(WritableByteChannel channel) {
+        this(null, channel, Charset.defaultCharset());
+    }
+    
+    private ConsoleRenderer(OutputStream stream, WritableByteChannel channel, Charset charset) {
+        this.stream = stream;
+        this.channel = channel;
+        this.turn = new StringBuilder(INITIAL_CAPACITY);
+        this.encoder = charset.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.bytes = allocate(INITIAL_CAPACITY);
+    }
+    
+    /**
+     * Create a renderer for standard output. Setting the system property
+     * adventure.rawStdout=true writes through a FileChannel on the stdout
+     * descriptor instead of going through System.out.
+     */
+    public static ConsoleRenderer forStdout() {
+        if (Boolean.getBoolean("adventure.rawStdout")) {
+            FileChannel stdout = new FileOutputStream(FileDescriptor.out).getChannel();
+            return new ConsoleRenderer(stdout);
+        }
+        return new ConsoleRenderer(System.out);
+    }
+    
+    // Buffer text without a line break
+    public void print(String text) {
+        turn.append(text);
+    }
+    
+    // Buffer a line of text
+    public void println(String text) {
+        turn.append(text).append('\n');
+    }
+    
+    // Buffer an empty line
+    public void println() {
+        turn.append('\n');
+    }
+    
+    // Copy every flushed turn to this transcript; null stops copying
+    public void setTranscript(TranscriptLog.Session transcript) {
+        this.transcript = transcript;
+    }
+    
+    // Add text to the transcript only, such as a command typed at the terminal
+    public void transcribe(String text) {
+        if (transcript != null) {
+            transcript.log(text);
+        }
+    }
+    
+    /**
+     * Write text straight out, leaving it out of the transcript, such as the
+     * prompt for a command. Anything buffered is flushed first.
+     */
+    public void prompt(String text) {
+        flush();
+        turn.append(text);
+        write();
+    }
+    
+    // Characters buffered since the last flush
+    public int buffered() {
+        return turn.length();
+    }
+    
+    /**
+     * Encode the buffered turn once and write it out in a single call
+     */
+    public void flush() {
+        if (turn.length() == 0) {
+            return;
+        }
+        if (transcript != null) {
+            transcript.log(turn);
+        }
+        write();
+    }
+    
+    private void write() {
+        encode();
+        try {
+            if (channel != null) {
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            } else {
+                stream.write(bytes.array(), 0, bytes.limit());
+                stream.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            turn.setLength(0);
+            bytes.clear();
+        }
+    }
+    
+    // Encode the turn into the reusable byte buffer, growing it when needed
+    private void encode() {
+        CharBuffer chars = CharBuffer.wrap(turn);
+        encoder.reset();
+        bytes.clear();
+        while (encoder.encode(chars, bytes, true).isOverflow()) {
+            bytes = grow(bytes);
+        }
+        while (encoder.flush(bytes).isOverflow()) {
+            bytes = grow(bytes);
+        }
+        bytes.flip();
+    }
+    
+    private ByteBuffer grow(ByteBuffer full) {
+        ByteBuffer larger = allocate(full.capacity() * 2);
+        full.flip();
+        larger.put(full);
+        return larger;
+    }
+    
+    private ByteBuffer allocate(int capacity) {
+        return channel != null ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,101 @@
+/**
+ * An item that holds other items, such as a chest or a bag
+ * Contents are kept like a room's, in a RoomItems, so taking from
+ * a container is safe between players and history can snapshot it. Each
+ * container knows the container it is in and the index of the room or
+ * inventory it belongs to, and reports what goes in and out to that index.
+ */
+public class Container extends Item {
+    private final RoomItems contents = new RoomItems();
+    private volatile Container parent;
+    private volatile ContainerIndex index;
+    
+    public Container(String name, String description, boolean canTake) {
+        super(name, description, canTake);
+    }
+    
+    // Put an item inside
+    public void add(Item item) {
+        contents.add(item);
+        ContainerIndex root = index;
+        if (root != null) {
+            root.add(this, item);
+        } else if (item instanceof Container) {
+            ((Container) item).attach(this, null);
+        }
+    }
+    
+    /**
+     * Atomically take this exact item out. Returns false if it is not here
+     * or another player took it first.
+     */
+    public boolean claim(Item item) {
+        if (!contents.claim(item)) {
+            return false;
+        }
+        ContainerIndex root = index;
+        if (root != null) {
+            root.remove(this, item);
+        }
+        if (item instanceof Container) {
+            ((Container) item).attach(null, null);
+        }
+        return true;
+    }
+    
+    // Find a directly held item by name
+    public Item find(String itemName) {
+        return contents.find(itemName);
+    }
+    
+    public Item[] getContents() {
+        return contents.snapshot();
+    }
+    
+    public boolean isEmpty() {
+        return contents.isEmpty();
+    }
+    
+    // Put back contents from an earlier snapshot; the owner reindexes afterwards
+    public void restoreContents(Item[] snapshot) {
+        contents.restore(snapshot);
+    }
+    
+    void attach(Container parent, ContainerIndex index) {
+        this.parent = parent;
+        this.index = index;
+    }
+    
+    // The container this one is in, or null if it lies in a room or inventory
+    public Container getParent() {
+        return parent;
+    }
+    
+    // Whether this container is the given item or lies somewhere inside it
+    public boolean isWithin(Item item) {
+        for (Container c = this; c != null; c = c.parent) {
+            if (c == item) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    // Where this container is, such as "pouch in the chest"
+    public String getPath() {
+        Container outer = parent;
+        return outer == null ? getName() : getName() + " in the " + outer.getPath();
+    }
+    
+    // The names of the items directly inside, comma-separated
+    public String describeContents() {
+        StringBuilder sb = new StringBuilder();
+        for (Item item : contents.snapshot()) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(item.getName());
+        }
+        return sb.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,88 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark for finding items nested in containers
+ * Builds a room holding a tree of containers, each with a few loose items,
+ * then times finding every item by name through the room's index against a
+ * recursive search of every container, and moving items in and out.
+ *
+ * Usage: java ContainerBenchmark [depth] [fanout] [items per container]
+ */
+public class ContainerBenchmark {
+    private static final int REPEAT = 5;
+    
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        int fanout = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int perContainer = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        
+        Location room = new Location("vault", "Vault", "A room full of boxes");
+        List<String> names = new ArrayList<>();
+        long start = System.nanoTime();
+        room.addItem(fill(new Container("box", "A box", false), "box", depth, fanout, perContainer, names));
+        System.out.printf("Built %,d nested items: %.1f ms%n", names.size(), (System.nanoTime() - start) / 1e6);
+        
+        long found = 0;
+        for (int r = 0; r < REPEAT; r++) {
+            start = System.nanoTime();
+            for (String name : names) {
+                Container holder = room.findHolder(name);
+                found += holder != null && holder.find(name) != null ? 1 : 0;
+            }
+            long indexed = System.nanoTime() - start;
+            
+            start = System.nanoTime();
+            for (String name : names) {
+                found += search(room.getItemSnapshot(), name) != null ? 1 : 0;
+            }
+            long searched = System.nanoTime() - start;
+            System.out.printf("Find each item: index %8.3f us, recursive search %8.3f us%n",
+                indexed / 1e3 / names.size(), searched / 1e3 / names.size());
+        }
+        
+        // Take every item out and put it back, keeping the index up to date
+        start = System.nanoTime();
+        for (String name : names) {
+            Container holder = room.findHolder(name);
+            Item item = holder.find(name);
+            holder.claim(item);
+            holder.add(item);
+        }
+        System.out.printf("Take out and put back: %.3f us per item%n", (System.nanoTime() - start) / 1e3 / names.size());
+        System.out.println(found == 2L * REPEAT * names.size() ? "All items found" : "Missing items!");
+    }
+    
+    // A container holding loose items and, above the last level, more containers like it
+    private static Container fill(Container container, String path, int depth, int fanout, int perContainer, List<String> names) {
+        for (int i = 0; i < perContainer; i++) {
+            String name = path + "-item" + i;
+            container.add(new Item(name, "A trinket", true));
+            names.add(name);
+        }
+        if (depth > 1) {
+            for (int i = 0; i < fanout; i++) {
+                String name = path + "-" + i;
+                container.add(fill(new Container(name, "A box", true), name, depth - 1, fanout, perContainer, names));
+                names.add(name);
+            }
+        }
+        return container;
+    }
+    
+    // What lookups cost without the index: a depth-first walk of every container
+    private static Item search(Item[] items, String name) {
+        for (Item item : items) {
+            if (item.matches(name)) {
+                return item;
+            }
+            if (item instanceof Container) {
+                Item inner = search(((Container) item).getContents(), name);
+                if (inner != null) {
+                    return inner;
+                }
+            }
+        }
+        return null;
+    }
+}
\ No newline at end of file
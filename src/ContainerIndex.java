@@ -0,0 +1,99 @@
+import java.util.*;
+
+/**
+ * Flattened index of everything inside the containers of one room or one
+ * inventory, from item name to the containers that directly hold an item of
+ * that name. Finding a nested item is a lookup here and a search of one
+ * container, however deep the nesting, instead of a walk through every
+ * container. Containers report what goes in and comes out; a container that
+ * moves between rooms and inventories takes its whole subtree with it.
+ */
+public class ContainerIndex {
+    // Item name to the containers holding one, with how many each holds
+    private final Map<String, Map<Container, Integer>> holders = new HashMap<>();
+    
+    /**
+     * A container holding an item of this name, or null. When several do,
+     * the one that has held such an item longest is returned.
+     */
+    public synchronized Container holderOf(String itemName) {
+        Map<Container, Integer> found = holders.get(itemName);
+        if (found == null) {
+            found = holders.get(itemName.toLowerCase());
+        }
+        return found == null ? null : found.keySet().iterator().next();
+    }
+    
+    // Names of every nested item
+    public synchronized Set<String> names() {
+        return new HashSet<>(holders.keySet());
+    }
+    
+    // Number of distinct nested item names
+    public synchronized int size() {
+        return holders.size();
+    }
+    
+    /**
+     * Index an item that now lies directly in the room or inventory, and
+     * everything inside it
+     */
+    public void addTop(Item item) {
+        if (item instanceof Container) {
+            Container container = (Container) item;
+            container.attach(null, this);
+            for (Item inner : container.getContents()) {
+                add(container, inner);
+            }
+        }
+    }
+    
+    // Forget an item that has left the room or inventory, and everything inside it
+    public void removeTop(Item item) {
+        if (item instanceof Container) {
+            for (Item inner : ((Container) item).getContents()) {
+                remove((Container) item, inner);
+            }
+        }
+    }
+    
+    // An item has gone into a container indexed here
+    void add(Container holder, Item item) {
+        synchronized (this) {
+            holders.computeIfAbsent(item.getKey(), k -> new LinkedHashMap<>()).merge(holder, 1, Integer::sum);
+        }
+        if (item instanceof Container) {
+            Container container = (Container) item;
+            container.attach(holder, this);
+            for (Item inner : container.getContents()) {
+                add(container, inner);
+            }
+        }
+    }
+    
+    // An item has come out of a container indexed here
+    void remove(Container holder, Item item) {
+        synchronized (this) {
+            Map<Container, Integer> found = holders.get(item.getKey());
+            if (found != null && found.computeIfPresent(holder, (c, n) -> n > 1 ? n - 1 : null) == null
+                    && found.isEmpty()) {
+                holders.remove(item.getKey());
+            }
+        }
+        if (item instanceof Container) {
+            for (Item inner : ((Container) item).getContents()) {
+                remove((Container) item, inner);
+            }
+        }
+    }
+    
+    // Rebuild from the top-level items, after they have been restored wholesale
+    public void rebuild(Iterable<Item> top) {
+        synchronized (this) {
+            holders.clear();
+        }
+        for (Item item : top) {
+            addTop(item);
+        }
+    }
+}
\ No newline at end of file
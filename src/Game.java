@@ -1,3 +1,8 @@
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.util.*;
 
 /**
@@ -6,155 +11,61 @@ import java.util.*;
  */
 public class Game {
     private Scanner scanner;
+    private ConsoleRenderer out;
+    private MessageSink messages;
+    private Outbox outbox;
+    private History history;
     private Player player;
-    private Map<String, Location> locations;
+    private GameWorld world;
+    private GameRules rules;
+    private String sessionId;
     private boolean gameRunning;
+    private long startedAt;
+    private boolean runRecorded;
+    private RunStats stats = RunStats.get();
+    
+    // In script mode the transcript is written out once this much has built up
+    private static final int SCRIPT_FLUSH_CHARS = 64 * 1024;
     
     public Game() {
+        this(ConsoleRenderer.forStdout());
         scanner = new Scanner(System.in);
-        gameRunning = false;
-        locations = new HashMap<>();
-        initializeGame();
     }
     
     /**
-     * Initialize the game world, locations, items, and player
+     * Create a game that writes to the given renderer, for running scripts
      */
-    private void initializeGame() {
-        createLocations();
-        createItems();
-        connectLocations();
-        
-        // Create player and place in starting location
-        Location startLocation = locations.get("forest");
-        player = new Player("Adventurer", startLocation);
-        startLocation.setVisited(true);
+    public Game(ConsoleRenderer out) {
+        this(out, new GameWorld());
     }
     
     /**
-     * Create all game locations
+     * Create a game in the given world, such as one with other difficulty settings
      */
-    private void createLocations() {
-        // Forest (Starting location)
-        locations.put("forest", new Location("Mysterious Forest",
-            "You find yourself in a dark, mysterious forest. Ancient trees tower above you, " +
-            "their branches creating a canopy that blocks most of the sunlight. Strange sounds " +
-            "echo from the depths of the woods."));
-        
-        // Village
-        locations.put("village", new Location("Abandoned Village",
-            "Before you lies an abandoned village. The houses are in ruins, with broken windows " +
-            "and doors hanging off their hinges. Weeds grow through the cobblestone streets. " +
-            "Despite its desolate appearance, you sense that valuable items might be hidden here."));
-        
-        // Cave
-        locations.put("cave", new Location("Dark Cave",
-            "You enter a damp, dark cave. Water drips from stalactites above, creating echoing " +
-            "sounds throughout the cavern. The air is cold and musty. Deep within the shadows, " +
-            "you can make out the glint of something metallic."));
-        
-        // Tower
-        locations.put("tower", new Location("Ancient Tower",
-            "An imposing stone tower rises before you. Its walls are covered in mysterious runes " +
-            "that seem to glow faintly in the darkness. A heavy wooden door blocks the entrance, " +
-            "secured with an ornate lock."));
-        
-        // Tower Interior
-        locations.put("tower_inside", new Location("Tower Interior",
-            "Inside the tower, mystical energy fills the air. Ancient books and scrolls line the " +
-            "walls, and a glowing crystal sits atop a pedestal in the center of the room. This " +
-            "appears to be the lair of a powerful wizard!"));
-        
-        // Dragon's Lair
-        locations.put("dragon_lair", new Location("Dragon's Lair",
-            "You've entered the lair of an ancient dragon! The cavern is filled with piles of " +
-            "gold and precious gems. In the center, a massive dragon sleeps on a bed of treasure. " +
-            "One wrong move could wake the beast..."));
-        
-        // Treasure Room
-        locations.put("treasure_room", new Location("Hidden Treasure Room",
-            "You've discovered a hidden treasure room! Chests overflowing with gold and jewels " +
-            "surround you. Ancient artifacts and magical items gleam in the torchlight. You've " +
-            "found the legendary treasure!"));
-    }
-    
-    /**
-     * Create all game items and place them in locations
-     */
-    private void createItems() {
-        // Forest items
-        Item stick = new Item("stick", "A sturdy wooden stick", true);
-        locations.get("forest").addItem(stick);
-        
-        // Village items  
-        Item key = new Item("key", "An ornate golden key with mystical engravings", true, true,
-            "The key glows briefly as you hold it. It seems to resonate with magical energy.");
-        Item potion = new Item("potion", "A small bottle containing a red healing potion", true, true,
-            "You drink the potion and feel your wounds healing. (+25 health)");
-        locations.get("village").addItem(key);
-        locations.get("village").addItem(potion);
-        
-        // Cave items
-        Item sword = new Item("sword", "A sharp steel sword with intricate engravings", true, true,
-            "You raise the sword, feeling its balanced weight. You're ready for battle!");
-        Item torch = new Item("torch", "A burning torch that provides light", true, true,
-            "The torch illuminates the dark corners around you.");
-        locations.get("cave").addItem(sword);
-        locations.get("cave").addItem(torch);
-        
-        // Tower items
-        Item spellbook = new Item("spellbook", "An ancient book of powerful spells", true, true,
-            "You flip through the pages, learning powerful magic spells!");
-        locations.get("tower_inside").addItem(spellbook);
-        
-        // Non-takeable items
-        Item door = new Item("door", "A heavy wooden door with an ornate lock", false);
-        locations.get("tower").addItem(door);
-        
-        Item dragon = new Item("dragon", "A massive sleeping dragon", false);
-        locations.get("dragon_lair").addItem(dragon);
-        
-        Item treasure = new Item("treasure", "Piles of gold, gems, and precious artifacts", false);
-        locations.get("treasure_room").addItem(treasure);
+    public Game(ConsoleRenderer out, GameWorld world) {
+        this.out = out;
+        messages = (text, tone) -> out.println(text);
+        gameRunning = false;
+        sessionId = GameEvents.newSession("console");
+        out.setTranscript(TranscriptLog.sharedSession(sessionId));
+        initializeGame(world);
     }
     
     /**
-     * Connect locations to create the game map
+     * Initialize the game world, locations, items, and player
      */
-    private void connectLocations() {
-        Location forest = locations.get("forest");
-        Location village = locations.get("village");
-        Location cave = locations.get("cave");
-        Location tower = locations.get("tower");
-        Location towerInside = locations.get("tower_inside");
-        Location dragonLair = locations.get("dragon_lair");
-        Location treasureRoom = locations.get("treasure_room");
-        
-        // Forest connections
-        forest.addConnection("north", village);
-        forest.addConnection("east", cave);
-        forest.addConnection("west", tower);
-        
-        // Village connections
-        village.addConnection("south", forest);
-        village.addConnection("east", dragonLair);
+    private void initializeGame(GameWorld world) {
+        this.world = world;
+        rules = world.getRules();
         
-        // Cave connections
-        cave.addConnection("west", forest);
-        cave.addConnection("north", treasureRoom);
-        
-        // Tower connections
-        tower.addConnection("east", forest);
-        tower.addConnection("in", towerInside);
-        
-        // Tower inside connections
-        towerInside.addConnection("out", tower);
-        
-        // Dragon's lair connections
-        dragonLair.addConnection("west", village);
-        
-        // Treasure room connections
-        treasureRoom.addConnection("south", cave);
+        // Create player and place in starting location
+        Location startLocation = world.getStartLocation();
+        player = new Player("Adventurer", startLocation);
+        startLocation.setVisited(true);
+        player.setEffects(world.getEffects(), messages);
+        outbox = world.getBroadcaster().join(player);
+        history = new History(world, player);
+        startedAt = System.nanoTime();
     }
     
     /**
@@ -174,34 +85,79 @@ public class Game {
         }
         
         displayGameEnd();
+        out.flush();
         scanner.close();
     }
     
+    /**
+     * Run commands from a script without prompting, one per line, until the
+     * script ends or the game is over. Lines are read as they are needed, so
+     * scripts of any size stream through in constant memory. Blank lines,
+     * lines starting with # and scenario directives (@) are skipped; lines
+     * starting with ## are copied into the transcript as headings.
+     * Returns the number of commands run.
+     */
+    public long runScript(BufferedReader script) throws IOException {
+        gameRunning = true;
+        displayWelcome();
+        
+        long commands = 0;
+        String line;
+        while (gameRunning && !player.isGameWon() && !player.isGameLost()
+            && (line = script.readLine()) != null) {
+            String input = line.trim();
+            if (input.startsWith("## ")) {
+                out.println("─── " + input.substring(3) + " ───");
+                out.println();
+                continue;
+            }
+            if (input.isEmpty() || input.startsWith("#") || input.startsWith("@")) {
+                continue;
+            }
+            input = input.toLowerCase();
+            
+            displayLocation();
+            out.println("> " + input);
+            processCommand(input);
+            checkGameState();
+            commands++;
+            if (out.buffered() >= SCRIPT_FLUSH_CHARS) {
+                out.flush();
+            }
+        }
+        
+        displayGameEnd();
+        out.flush();
+        return commands;
+    }
+    
     /**
      * Display welcome message and instructions
      */
     private void displayWelcome() {
-        System.out.println("═══════════════════════════════════════════");
-        System.out.println("    Welcome to the Text-Based Adventure!");
-        System.out.println("═══════════════════════════════════════════");
-        System.out.println();
-        System.out.println("You are an adventurer seeking the legendary treasure hidden");
-        System.out.println("somewhere in these mystical lands. Your quest will take you");
-        System.out.println("through forests, villages, caves, and ancient towers.");
-        System.out.println();
-        System.out.println("Available commands:");
-        System.out.println("  go <direction>  - Move in a direction (north, south, east, west, in, out)");
-        System.out.println("  look           - Examine your current location");
-        System.out.println("  take <item>    - Pick up an item");
-        System.out.println("  drop <item>    - Drop an item from your inventory");
-        System.out.println("  use <item>     - Use an item from your inventory");
-        System.out.println("  inventory      - Check your inventory");
-        System.out.println("  status         - Check your health and inventory");
-        System.out.println("  help           - Display this help message");
-        System.out.println("  quit           - Exit the game");
-        System.out.println();
-        System.out.println("Your adventure begins now...");
-        System.out.println();
+        out.println("═══════════════════════════════════════════");
+        out.println("    Welcome to the Text-Based Adventure!");
+        out.println("═══════════════════════════════════════════");
+        out.println();
+        out.println("You are an adventurer seeking the legendary treasure hidden");
+        out.println("somewhere in these mystical lands. Your quest will take you");
+        out.println("through forests, villages, caves, and ancient towers.");
+        out.println();
+        out.println("Available commands:");
+        out.println("  go <direction>  - Move in a direction (north, south, east, west, in, out)");
+        out.println("  look           - Examine your current location");
+        out.println("  take <item>    - Pick up an item");
+        out.println("  drop <item>    - Drop an item from your inventory");
+        out.println("  put <item> in <container> - Put an item inside a bag or chest");
+        out.println("  use <item>     - Use an item from your inventory");
+        out.println("  attack <monster> - Fight a monster in your location");
+        out.println("  inventory      - Check your inventory");
+        out.println("  status         - Check your health and inventory");
+        out.println("  help           - Display this help message");
+        out.println("  quit           - Exit the game");
+        out.println();
+        out.println("Your adventure begins now...");
+        out.println();
     }
     
     /**
@@ -209,31 +165,85 @@ public class Game {
      */
     private void displayLocation() {
         Location current = player.getCurrentLocation();
-        System.out.println("═══ " + current.getName() + " ═══");
-        System.out.println(current.getFullDescription());
-        System.out.println();
+        out.println("═══ " + current.getName() + " ═══");
+        out.println(current.getFullDescription());
+        String monsters = world.describeMonsters(current);
+        if (!monsters.isEmpty()) {
+            out.println(monsters);
+        }
+        out.println();
     }
     
     /**
-     * Get user input
+     * Get user input, writing out the buffered turn before blocking
      */
     private String getInput() {
-        System.out.print("> ");
-        return scanner.nextLine().trim().toLowerCase();
+        out.prompt("> ");
+        String input = scanner.nextLine().trim().toLowerCase();
+        out.transcribe("> " + input + "\n");
+        return input;
     }
     
     /**
-     * Process user commands
+     * Process user commands. A line may hold several actions
+     * ("take key, take potion then go south"); they run as one turn.
      */
     private void processCommand(String input) {
         if (input.isEmpty()) {
             return;
         }
         
-        String[] parts = input.split("\\s+", 2);
-        String command = parts[0];
-        String argument = parts.length > 1 ? parts[1] : "";
+        GameMetrics metrics = GameMetrics.get();
+        long start = metrics.now();
+        long allocatedBefore = metrics.allocatedBytes();
+        
+        // Parse events belong to this session, before any verb is known
+        GameEvents.enterCommand(sessionId, "");
+        GameEvents.CommandParse parse = GameEvents.CommandParse.start();
+        List<CommandBatch.Action> actions = CommandBatch.parse(input);
+        parse.finish(input.length());
+        long parsed = metrics.now();
+        
+        long[] handleNanos = new long[actions.size()];
+        boolean tookTime = false;
+        int done = 0;
+        long last = parsed;
+        while (done < actions.size() && gameRunning && player.isAlive() && !player.isGameWon()) {
+            CommandBatch.Action action = actions.get(done);
+            String verb = Commands.verbOf(action.getCommand());
+            tookTime |= !"undo".equals(verb) && !"redo".equals(verb);
+            GameEvents.enterCommand(sessionId, verb != null ? verb : action.getCommand());
+            execute(action.getCommand(), action.getArgument());
+            long now = metrics.now();
+            handleNanos[done++] = now - last;
+            last = now;
+        }
         
+        // Monsters move once per turn in the console game, however many actions it held;
+        // undo and redo take no time
+        if (tookTime && gameRunning && !player.isGameWon()) {
+            world.tick(player, messages);
+        }
+        if (tookTime) {
+            history.record();
+        }
+        deliverRoomMessages();
+        out.println();
+        
+        // The parse and render are shared, so they are counted against the first and last action
+        long renderNanos = metrics.now() - last;
+        long allocated = metrics.allocatedBytes() - allocatedBefore;
+        for (int i = 0; i < done; i++) {
+            metrics.record(actions.get(i).getCommand(), i == 0 ? parsed - start : 0, handleNanos[i],
+                i == done - 1 ? renderNanos : 0, i == 0 ? allocated : 0);
+        }
+        GameEvents.exitCommand();
+    }
+    
+    /**
+     * Run a single action
+     */
+    private void execute(String command, String argument) {
         switch (command) {
             case "go":
             case "move":
@@ -246,14 +256,23 @@ public class Game {
             case "take":
             case "get":
             case "pick":
-                handleTake(argument);
+                world.take(player, argument, messages);
                 break;
             case "drop":
                 handleDrop(argument);
                 break;
+            case "put":
+            case "place":
+                world.put(player, argument, messages);
+                break;
             case "use":
                 handleUse(argument);
                 break;
+            case "attack":
+            case "fight":
+            case "kill":
+                handleAttack(argument);
+                break;
             case "inventory":
             case "inv":
             case "items":
@@ -263,6 +282,16 @@ public class Game {
             case "stats":
                 handleStatus();
                 break;
+            case "who":
+                handleWho();
+                break;
+            case "undo":
+            case "back":
+                handleUndo();
+                break;
+            case "redo":
+                handleRedo();
+                break;
             case "help":
             case "commands":
                 displayHelp();
@@ -272,9 +301,13 @@ public class Game {
                 handleQuit();
                 break;
             default:
-                System.out.println("I don't understand that command. Type 'help' for available commands.");
+                String guess = Commands.closest(command);
+                if (guess != null) {
+                    out.println("I don't understand '" + command + "'. Did you mean '" + guess + "'?");
+                } else {
+                    out.println("I don't understand that command. Type 'help' for available commands.");
+                }
         }
-        System.out.println();
     }
     
     /**
@@ -282,83 +315,32 @@ public class Game {
      */
     private void handleMovement(String direction) {
         if (direction.isEmpty()) {
-            System.out.println("Go where? Specify a direction.");
+            out.println("Go where? Specify a direction.");
             return;
         }
         
-        // Special case for entering the tower
-        if (player.getCurrentLocation().getName().equals("Ancient Tower") && 
-            direction.equals("in")) {
-            if (player.hasItem("key")) {
-                System.out.println("You use the golden key to unlock the tower door...");
-                player.move(direction);
-                System.out.println("The door creaks open, revealing the tower's mystical interior!");
-            } else {
-                System.out.println("The tower door is locked. You need a key to enter.");
-            }
-            return;
-        }
-        
-        // Special case for dragon's lair
-        if (direction.equals("east") && 
-            player.getCurrentLocation().getName().equals("Abandoned Village")) {
-            System.out.println("As you approach the dragon's lair, you hear the sound of deep breathing...");
-            if (player.hasItem("sword")) {
-                System.out.println("Fortunately, you have a sword to defend yourself!");
-                player.move(direction);
-            } else {
-                System.out.println("Without a weapon, it would be suicide to enter. You need a sword!");
-                return;
-            }
-            return;
-        }
-        
-        if (player.move(direction)) {
-            // Special location events
-            String locationName = player.getCurrentLocation().getName();
-            if (locationName.equals("Dragon's Lair")) {
-                handleDragonEncounter();
-            } else if (locationName.equals("Hidden Treasure Room")) {
-                handleTreasureRoom();
-            }
-        } else {
-            System.out.println("You can't go that way.");
+        Location before = player.getCurrentLocation();
+        if (rules.move(player, direction, messages, () -> { })) {
+            announce(before, player.getName() + " leaves " + direction + ".");
+            announce(player.getCurrentLocation(), player.getName() + " arrives.");
         }
     }
     
     /**
-     * Handle dragon encounter
+     * Tell the other players in a room what this player did
      */
-    private void handleDragonEncounter() {
-        System.out.println("\nSUDDENLY, THE DRAGON AWAKENS!");
-        System.out.println("The massive beast rears its head and breathes fire in your direction!");
-        
-        if (player.hasItem("sword")) {
-            System.out.println("You quickly draw your sword and prepare for battle!");
-            System.out.println("After an epic fight, you manage to defeat the dragon!");
-            System.out.println("The dragon collapses, leaving behind a path to its treasure hoard.");
-            
-            // Add special reward
-            Item dragonGold = new Item("dragon gold", "A bag of precious dragon gold", true);
-            player.getCurrentLocation().addItem(dragonGold);
-        } else {
-            System.out.println("Without a weapon, you cannot defend yourself!");
-            player.takeDamage(50);
-            System.out.println("The dragon's flames sear your flesh! (-50 health)");
-            if (!player.isAlive()) {
-                System.out.println("You have been slain by the dragon!");
-            }
-        }
+    private void announce(Location room, String text) {
+        world.getBroadcaster().publish(room, player, text);
     }
     
     /**
-     * Handle treasure room discovery
+     * Show what other players nearby have done since the last delivery
      */
-    private void handleTreasureRoom() {
-        System.out.println("\n★★★ CONGRATULATIONS! ★★★");
-        System.out.println("You have discovered the legendary treasure!");
-        System.out.println("The room is filled with unimaginable riches!");
-        player.setGameWon(true);
+    private void deliverRoomMessages() {
+        String nearby = outbox.drain();
+        if (nearby != null) {
+            messages.send(nearby, MessageSink.Tone.STORY);
+        }
     }
     
     /**
@@ -367,62 +349,55 @@ public class Game {
     private void handleLook(String target) {
         if (target.isEmpty()) {
             // Look around current location
-            System.out.println(player.getCurrentLocation().getFullDescription());
+            out.println(player.getCurrentLocation().getFullDescription());
+        } else if (target.startsWith("in ")) {
+            world.lookIn(player, target.substring(3).trim(), messages);
         } else {
-            // Look at specific item
-            Location current = player.getCurrentLocation();
-            Item item = current.getItem(target);
-            if (item == null) {
-                item = player.getInventoryItem(target);
-            }
+            Item item = world.findInScope(player, target);
             
             if (item != null) {
-                System.out.println(item.getDescription());
+                out.println(item.getDescription());
             } else {
-                System.out.println("You don't see a " + target + " here.");
+                out.println("You don't see a " + target + " here.");
             }
         }
     }
     
     /**
-     * Handle take command
+     * Handle drop command
      */
-    private void handleTake(String itemName) {
+    private void handleDrop(String itemName) {
         if (itemName.isEmpty()) {
-            System.out.println("Take what?");
+            out.println("Drop what?");
+            return;
+        }
+        if (itemName.equals("all")) {
+            handleDropAll();
             return;
         }
         
-        Location current = player.getCurrentLocation();
-        Item item = current.getItem(itemName);
-        
+        Item item = player.getInventoryItem(itemName);
         if (item == null) {
-            System.out.println("There's no " + itemName + " here.");
-        } else if (!item.canTake()) {
-            System.out.println("You can't take the " + itemName + ".");
+            out.println("You don't have a " + itemName + ".");
         } else {
-            current.removeItem(item);
-            player.addItem(item);
-            System.out.println("You take the " + itemName + ".");
+            player.removeItem(item);
+            player.getCurrentLocation().addItem(item);
+            announce(player.getCurrentLocation(), player.getName() + " drops the " + item.getName() + ".");
+            out.println("You drop the " + itemName + ".");
         }
     }
     
     /**
-     * Handle drop command
+     * Drop everything in the inventory
      */
-    private void handleDrop(String itemName) {
-        if (itemName.isEmpty()) {
-            System.out.println("Drop what?");
+    private void handleDropAll() {
+        List<Item> inventory = player.getInventory();
+        if (inventory.isEmpty()) {
+            out.println("You aren't carrying anything.");
             return;
         }
-        
-        Item item = player.getInventoryItem(itemName);
-        if (item == null) {
-            System.out.println("You don't have a " + itemName + ".");
-        } else {
-            player.removeItem(item);
-            player.getCurrentLocation().addItem(item);
-            System.out.println("You drop the " + itemName + ".");
+        for (Item item : inventory) {
+            handleDrop(item.getName());
         }
     }
     
@@ -431,49 +406,109 @@ public class Game {
      */
     private void handleUse(String itemName) {
         if (itemName.isEmpty()) {
-            System.out.println("Use what?");
+            out.println("Use what?");
             return;
         }
         
         String result = player.useItem(itemName);
-        System.out.println(result);
+        out.println(result);
+    }
+    
+    /**
+     * Handle attack command
+     */
+    private void handleAttack(String target) {
+        if (target.isEmpty()) {
+            out.println("Attack what?");
+            return;
+        }
+        
+        world.attack(player, target, messages);
     }
     
     /**
      * Handle inventory command
      */
     private void handleInventory() {
-        System.out.println(player.getInventoryDisplay());
+        out.println(player.getInventoryDisplay());
     }
     
     /**
      * Handle status command
      */
     private void handleStatus() {
-        System.out.println(player.getStatus());
+        out.println(player.getStatus());
+    }
+    
+    /**
+     * Handle undo command
+     */
+    private void handleUndo() {
+        if (history.undo()) {
+            out.println("You take back your last turn.");
+        } else {
+            out.println("There's nothing to undo.");
+        }
+    }
+    
+    /**
+     * Handle redo command
+     */
+    private void handleRedo() {
+        if (history.redo()) {
+            out.println("You replay the turn you took back.");
+        } else {
+            out.println("There's nothing to redo.");
+        }
+    }
+    
+    /**
+     * Handle who command
+     */
+    private void handleWho() {
+        out.println(describeOccupants());
+    }
+    
+    /**
+     * List the other players in the current location
+     */
+    private String describeOccupants() {
+        StringBuilder sb = new StringBuilder();
+        for (Player other : player.getCurrentLocation().getOccupants()) {
+            if (other != player) {
+                sb.append(sb.length() == 0 ? "Also here: " : ", ").append(other.getName());
+            }
+        }
+        return sb.length() == 0 ? "You are alone here." : sb.toString();
     }
     
     /**
      * Display help message
      */
     private void displayHelp() {
-        System.out.println("Available commands:");
-        System.out.println("  go <direction>  - Move in a direction (north, south, east, west, in, out)");
-        System.out.println("  look [item]     - Examine your current location or a specific item");
-        System.out.println("  take <item>     - Pick up an item");
-        System.out.println("  drop <item>     - Drop an item from your inventory");
-        System.out.println("  use <item>      - Use an item from your inventory");
-        System.out.println("  inventory       - Check your inventory");
-        System.out.println("  status          - Check your health and inventory");
-        System.out.println("  help            - Display this help message");
-        System.out.println("  quit            - Exit the game");
+        out.println("Available commands:");
+        out.println("  go <direction>  - Move in a direction (north, south, east, west, in, out)");
+        out.println("  look [item]     - Examine your current location or a specific item");
+        out.println("  look in <container> - See what is inside a bag or chest");
+        out.println("  take <item> [from <container>] - Pick up an item");
+        out.println("  drop <item>     - Drop an item from your inventory");
+        out.println("  put <item> in <container> - Put an item inside a bag or chest");
+        out.println("  use <item>      - Use an item from your inventory");
+        out.println("  attack <monster> - Fight a monster in your location");
+        out.println("  inventory       - Check your inventory");
+        out.println("  status          - Check your health and inventory");
+        out.println("  who             - See who else is here");
+        out.println("  undo / redo     - Take back your last turn, or replay it");
+        out.println("  help            - Display this help message");
+        out.println("  quit            - Exit the game");
+        out.println("Combine actions with commas or 'then', e.g. take all, go north then look");
     }
     
     /**
      * Handle quit command
      */
     private void handleQuit() {
-        System.out.println("Thank you for playing! Goodbye!");
+        out.println("Thank you for playing! Goodbye!");
         gameRunning = false;
     }
     
@@ -484,32 +519,132 @@ public class Game {
         if (!player.isAlive()) {
             player.setGameLost(true);
         }
+        if (!isRunning()) {
+            recordRun();
+        }
+    }
+    
+    /**
+     * Add the finished run to the shared statistics, once
+     */
+    private void recordRun() {
+        if (runRecorded || stats == null) {
+            return;
+        }
+        runRecorded = true;
+        RunStats.Outcome outcome = player.isGameWon() ? RunStats.Outcome.WON
+            : player.isGameLost() ? RunStats.Outcome.DIED : RunStats.Outcome.QUIT;
+        stats.record(player.getName(), outcome, (System.nanoTime() - startedAt) / 1_000_000,
+            player.getMoves(), player.getDamageTaken(), player.getCurrentLocation().getId());
     }
     
     /**
      * Display game end message
      */
     private void displayGameEnd() {
-        System.out.println("\n═══════════════════════════════════════════");
+        out.println("\n═══════════════════════════════════════════");
         if (player.isGameWon()) {
-            System.out.println("           ★ VICTORY! ★");
-            System.out.println("You have successfully completed your quest!");
-            System.out.println("The legendary treasure is yours!");
+            out.println("           ★ VICTORY! ★");
+            out.println("You have successfully completed your quest!");
+            out.println("The legendary treasure is yours!");
         } else if (player.isGameLost()) {
-            System.out.println("           ☠ GAME OVER ☠");
-            System.out.println("Your adventure has come to an unfortunate end.");
-            System.out.println("Better luck next time, brave adventurer!");
+            out.println("           ☠ GAME OVER ☠");
+            out.println("Your adventure has come to an unfortunate end.");
+            out.println("Better luck next time, brave adventurer!");
         } else {
-            System.out.println("Thanks for playing!");
+            out.println("Thanks for playing!");
+        }
+        out.println("═══════════════════════════════════════════");
+    }
+    
+    /**
+     * Start a game that is driven one line at a time, as the HTTP server
+     * does. The welcome is written to the renderer.
+     */
+    public void begin() {
+        gameRunning = true;
+        displayWelcome();
+        out.flush();
+    }
+    
+    /**
+     * Play one line of input as a turn and flush what it printed. Returns
+     * false, without playing, once the game is over.
+     */
+    public boolean play(String input) {
+        if (!isRunning()) {
+            return false;
         }
-        System.out.println("═══════════════════════════════════════════");
+        String command = input.trim().toLowerCase();
+        out.transcribe("> " + command + "\n");
+        processCommand(command);
+        checkGameState();
+        if (!isRunning()) {
+            displayGameEnd();
+        }
+        out.flush();
+        return true;
+    }
+    
+    // Still being played: not won, lost or quit
+    public boolean isRunning() {
+        return gameRunning && !player.isGameWon() && !player.isGameLost();
     }
     
     /**
-     * Main method to start the game
+     * Record finished runs in these statistics instead of the shared ones,
+     * or nowhere when null, as simulated games do
      */
-    public static void main(String[] args) {
-        Game game = new Game();
-        game.start();
+    public void setRunStats(RunStats stats) {
+        this.stats = stats;
+    }
+    
+    // The player of this game, for scripts and tools that inspect it
+    public Player getPlayer() {
+        return player;
+    }
+    
+    public GameWorld getWorld() {
+        return world;
+    }
+    
+    /**
+     * Run the interactive game, or a script with:
+     *   java Game --script commands.txt [--transcript transcript.txt]
+     * Use - as the script name to read commands from standard input.
+     */
+    public static void main(String[] args) throws IOException {
+        String script = null;
+        String transcript = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--script")) {
+                script = args[i + 1];
+            } else if (args[i].equals("--transcript")) {
+                transcript = args[i + 1];
+            }
+        }
+        if (script == null) {
+            Game game = new Game();
+            game.start();
+            return;
+        }
+        
+        BufferedReader reader = script.equals("-")
+            ? new BufferedReader(Channels.newReader(Channels.newChannel(System.in), StandardCharsets.UTF_8))
+            : Files.newBufferedReader(Paths.get(script), StandardCharsets.UTF_8);
+        FileChannel output = transcript == null ? null : FileChannel.open(Paths.get(transcript),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try (reader) {
+            Game game = new Game(output != null ? new ConsoleRenderer(output) : ConsoleRenderer.forStdout());
+            long start = System.nanoTime();
+            long commands = game.runScript(reader);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.err.printf("Ran %d commands in %.3f s (%.0f commands/s)%n",
+                commands, seconds, commands / Math.max(seconds, 1e-9));
+        } finally {
+            if (output != null) {
+                output.close();
+            }
+        }
     }
 }
\ No newline at end of file
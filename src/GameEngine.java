@@ -8,8 +8,17 @@ import java.util.*;
 public class GameEngine {
     private AdventureGameGUI gui;
     private Player player;
-    private Map<String, Location> locations;
+    private GameWorld world;
+    private GameRules rules;
+    private MessageSink messages;
+    private Outbox outbox;
+    private History history;
+    private String sessionId;
     private boolean gameRunning;
+    private long startedAt;
+    private boolean runRecorded;
+    private boolean batching;
+    private boolean enteredRoom;
     
     // Colors for different message types - Improved readability
     private static final Color ACCENT_COLOR = new Color(0, 102, 204);     // Blue for titles
@@ -18,151 +27,36 @@ public class GameEngine {
     private static final Color STORY_COLOR = new Color(139, 69, 19);      // Brown for story
     private static final Color COMMAND_COLOR = new Color(75, 0, 130);     // Purple for commands
     
+    private static final int MAX_SUGGESTIONS = 5;
+    
     public GameEngine(AdventureGameGUI gui) {
+        this(gui, new GameWorld());
+    }
+    
+    // Play in a world that has already been built, such as one loaded from a snapshot
+    public GameEngine(AdventureGameGUI gui, GameWorld world) {
         this.gui = gui;
         this.gameRunning = false;
-        this.locations = new HashMap<>();
-        initializeGame();
+        this.sessionId = GameEvents.newSession("gui");
+        this.messages = this::displayMessage;
+        initializeGame(world);
     }
     
     /**
      * Initialize the game world, locations, items, and player
      */
-    private void initializeGame() {
-        createLocations();
-        createItems();
-        connectLocations();
+    private void initializeGame(GameWorld world) {
+        this.world = world;
+        rules = world.getRules();
         
         // Create player and place in starting location
-        Location startLocation = locations.get("forest");
+        Location startLocation = world.getStartLocation();
         player = new Player("GUI Adventurer", startLocation);
         startLocation.setVisited(true);
-    }
-    
-    /**
-     * Create all game locations
-     */
-    private void createLocations() {
-        // Forest (Starting location)
-        locations.put("forest", new Location("Mysterious Forest",
-            "You find yourself in a dark, mysterious forest. Ancient trees tower above you, " +
-            "their branches creating a canopy that blocks most of the sunlight. Strange sounds " +
-            "echo from the depths of the woods."));
-        
-        // Village
-        locations.put("village", new Location("Abandoned Village",
-            "Before you lies an abandoned village. The houses are in ruins, with broken windows " +
-            "and doors hanging off their hinges. Weeds grow through the cobblestone streets. " +
-            "Despite its desolate appearance, you sense that valuable items might be hidden here."));
-        
-        // Cave
-        locations.put("cave", new Location("Dark Cave",
-            "You enter a damp, dark cave. Water drips from stalactites above, creating echoing " +
-            "sounds throughout the cavern. The air is cold and musty. Deep within the shadows, " +
-            "you can make out the glint of something metallic."));
-        
-        // Tower
-        locations.put("tower", new Location("Ancient Tower",
-            "An imposing stone tower rises before you. Its walls are covered in mysterious runes " +
-            "that seem to glow faintly in the darkness. A heavy wooden door blocks the entrance, " +
-            "secured with an ornate lock."));
-        
-        // Tower Interior
-        locations.put("tower_inside", new Location("Tower Interior",
-            "Inside the tower, mystical energy fills the air. Ancient books and scrolls line the " +
-            "walls, and a glowing crystal sits atop a pedestal in the center of the room. This " +
-            "appears to be the lair of a powerful wizard!"));
-        
-        // Dragon's Lair
-        locations.put("dragon_lair", new Location("Dragon's Lair",
-            "You've entered the lair of an ancient dragon! The cavern is filled with piles of " +
-            "gold and precious gems. In the center, a massive dragon sleeps on a bed of treasure. " +
-            "One wrong move could wake the beast..."));
-        
-        // Treasure Room
-        locations.put("treasure_room", new Location("Hidden Treasure Room",
-            "You've discovered a hidden treasure room! Chests overflowing with gold and jewels " +
-            "surround you. Ancient artifacts and magical items gleam in the torchlight. You've " +
-            "found the legendary treasure!"));
-    }
-    
-    /**
-     * Create all game items and place them in locations
-     */
-    private void createItems() {
-        // Forest items
-        Item stick = new Item("stick", "A sturdy wooden stick", true);
-        locations.get("forest").addItem(stick);
-        
-        // Village items  
-        Item key = new Item("key", "An ornate golden key with mystical engravings", true, true,
-            "The key glows briefly as you hold it. It seems to resonate with magical energy.");
-        Item potion = new Item("potion", "A small bottle containing a red healing potion", true, true,
-            "You drink the potion and feel your wounds healing. (+25 health)");
-        locations.get("village").addItem(key);
-        locations.get("village").addItem(potion);
-        
-        // Cave items
-        Item sword = new Item("sword", "A sharp steel sword with intricate engravings", true, true,
-            "You raise the sword, feeling its balanced weight. You're ready for battle!");
-        Item torch = new Item("torch", "A burning torch that provides light", true, true,
-            "The torch illuminates the dark corners around you.");
-        locations.get("cave").addItem(sword);
-        locations.get("cave").addItem(torch);
-        
-        // Tower items
-        Item spellbook = new Item("spellbook", "An ancient book of powerful spells", true, true,
-            "You flip through the pages, learning powerful magic spells!");
-        locations.get("tower_inside").addItem(spellbook);
-        
-        // Non-takeable items
-        Item door = new Item("door", "A heavy wooden door with an ornate lock", false);
-        locations.get("tower").addItem(door);
-        
-        Item dragon = new Item("dragon", "A massive sleeping dragon", false);
-        locations.get("dragon_lair").addItem(dragon);
-        
-        Item treasure = new Item("treasure", "Piles of gold, gems, and precious artifacts", false);
-        locations.get("treasure_room").addItem(treasure);
-    }
-    
-    /**
-     * Connect locations to create the game map
-     */
-    private void connectLocations() {
-        Location forest = locations.get("forest");
-        Location village = locations.get("village");
-        Location cave = locations.get("cave");
-        Location tower = locations.get("tower");
-        Location towerInside = locations.get("tower_inside");
-        Location dragonLair = locations.get("dragon_lair");
-        Location treasureRoom = locations.get("treasure_room");
-        
-        // Forest connections
-        forest.addConnection("north", village);
-        forest.addConnection("east", cave);
-        forest.addConnection("west", tower);
-        
-        // Village connections
-        village.addConnection("south", forest);
-        village.addConnection("east", dragonLair);
-        
-        // Cave connections
-        cave.addConnection("west", forest);
-        cave.addConnection("north", treasureRoom);
-        
-        // Tower connections
-        tower.addConnection("east", forest);
-        tower.addConnection("in", towerInside);
-        
-        // Tower inside connections
-        towerInside.addConnection("out", tower);
-        
-        // Dragon's lair connections
-        dragonLair.addConnection("west", village);
-        
-        // Treasure room connections
-        treasureRoom.addConnection("south", cave);
+        player.setEffects(world.getEffects(), messages);
+        outbox = world.getBroadcaster().join(player);
+        history = new History(world, player);
+        startedAt = System.nanoTime();
     }
     
     /**
@@ -175,17 +69,69 @@ public class GameEngine {
     }
     
     /**
-     * Process user commands
+     * Process user commands. A line may hold several actions
+     * ("take key, take potion then go south"); they run as one turn with a
+     * single location render and panel refresh at the end.
      */
     public void processCommand(String input) {
         if (input.isEmpty()) {
             return;
         }
         
-        String[] parts = input.split("\\s+", 2);
-        String command = parts[0].toLowerCase();
-        String argument = parts.length > 1 ? parts[1] : "";
+        GameMetrics metrics = GameMetrics.get();
+        long start = metrics.now();
+        long allocatedBefore = metrics.allocatedBytes();
+        
+        // Parse events belong to this session, before any verb is known
+        GameEvents.enterCommand(sessionId, "");
+        GameEvents.CommandParse parse = GameEvents.CommandParse.start();
+        List<CommandBatch.Action> actions = CommandBatch.parse(input);
+        parse.finish(input.length());
+        long parsed = metrics.now();
+        
+        // Moves in a batch show only the room the batch ends in
+        batching = actions.size() > 1;
+        enteredRoom = false;
+        long[] handleNanos = new long[actions.size()];
+        boolean tookTime = false;
+        int done = 0;
+        long last = parsed;
+        while (done < actions.size() && gameRunning && player.isAlive() && !player.isGameWon()) {
+            CommandBatch.Action action = actions.get(done);
+            String verb = Commands.verbOf(action.getCommand());
+            tookTime |= !"undo".equals(verb) && !"redo".equals(verb);
+            GameEvents.enterCommand(sessionId, verb != null ? verb : action.getCommand());
+            execute(action.getCommand(), action.getArgument());
+            long now = metrics.now();
+            handleNanos[done++] = now - last;
+            last = now;
+        }
+        batching = false;
         
+        if (enteredRoom) {
+            displayLocation();
+        }
+        if (tookTime) {
+            history.record();
+        }
+        deliverRoomMessages();
+        updateGUIDisplays();
+        
+        // The parse and render are shared, so they are counted against the first and last action
+        long renderNanos = metrics.now() - last;
+        long allocated = metrics.allocatedBytes() - allocatedBefore;
+        for (int i = 0; i < done; i++) {
+            metrics.record(actions.get(i).getCommand(), i == 0 ? parsed - start : 0, handleNanos[i],
+                i == done - 1 ? renderNanos : 0, i == 0 ? allocated : 0);
+        }
+        GameEvents.exitCommand();
+        checkGameState();
+    }
+    
+    /**
+     * Run a single action
+     */
+    private void execute(String command, String argument) {
         switch (command) {
             case "go":
             case "move":
@@ -198,14 +144,23 @@ public class GameEngine {
             case "take":
             case "get":
             case "pick":
-                handleTake(argument);
+                world.take(player, argument, messages);
                 break;
             case "drop":
                 handleDrop(argument);
                 break;
+            case "put":
+            case "place":
+                world.put(player, argument, messages);
+                break;
             case "use":
                 handleUse(argument);
                 break;
+            case "attack":
+            case "fight":
+            case "kill":
+                handleAttack(argument);
+                break;
             case "inventory":
             case "inv":
             case "items":
@@ -215,6 +170,16 @@ public class GameEngine {
             case "stats":
                 handleStatus();
                 break;
+            case "who":
+                handleWho();
+                break;
+            case "undo":
+            case "back":
+                handleUndo();
+                break;
+            case "redo":
+                handleRedo();
+                break;
             case "help":
             case "commands":
                 displayHelp();
@@ -224,11 +189,13 @@ public class GameEngine {
                 handleQuit();
                 break;
             default:
-                gui.displayText("I don't understand that command. Type 'help' for available commands.\n", ERROR_COLOR);
+                String guess = Commands.closest(command);
+                if (guess != null) {
+                    gui.displayText("I don't understand '" + command + "'. Did you mean '" + guess + "'?\n", ERROR_COLOR);
+                } else {
+                    gui.displayText("I don't understand that command. Type 'help' for available commands.\n", ERROR_COLOR);
+                }
         }
-        
-        updateGUIDisplays();
-        checkGameState();
     }
     
     /**
@@ -240,82 +207,30 @@ public class GameEngine {
             return;
         }
         
-        // Special case for entering the tower
-        if (player.getCurrentLocation().getName().equals("Ancient Tower") && 
-            direction.equals("in")) {
-            if (player.hasItem("key")) {
-                gui.displayText("You use the golden key to unlock the tower door...\n", STORY_COLOR);
-                player.move(direction);
-                gui.displayText("The door creaks open, revealing the tower's mystical interior!\n", SUCCESS_COLOR);
-                displayLocation();
-            } else {
-                gui.displayText("The tower door is locked. You need a key to enter.\n", ERROR_COLOR);
-            }
-            return;
-        }
-        
-        // Special case for dragon's lair
-        if (direction.equals("east") && 
-            player.getCurrentLocation().getName().equals("Abandoned Village")) {
-            gui.displayText("As you approach the dragon's lair, you hear the sound of deep breathing...\n", STORY_COLOR);
-            if (player.hasItem("sword")) {
-                gui.displayText("Fortunately, you have a sword to defend yourself!\n", SUCCESS_COLOR);
-                player.move(direction);
-                displayLocation();
-            } else {
-                gui.displayText("Without a weapon, it would be suicide to enter. You need a sword!\n", ERROR_COLOR);
-                return;
-            }
-            return;
-        }
-        
-        if (player.move(direction)) {
-            displayLocation();
-            // Special location events
-            String locationName = player.getCurrentLocation().getName();
-            if (locationName.equals("Dragon's Lair")) {
-                handleDragonEncounter();
-            } else if (locationName.equals("Hidden Treasure Room")) {
-                handleTreasureRoom();
-            }
-        } else {
-            gui.displayText("You can't go that way.\n", ERROR_COLOR);
+        Location before = player.getCurrentLocation();
+        Runnable onEnter = batching ? () -> enteredRoom = true : this::displayLocation;
+        if (rules.move(player, direction, messages, onEnter)) {
+            gui.updateMap(player.getCurrentLocation());
+            announce(before, player.getName() + " leaves " + direction + ".");
+            announce(player.getCurrentLocation(), player.getName() + " arrives.");
         }
     }
     
     /**
-     * Handle dragon encounter
+     * Tell the other players in a room what this player did
      */
-    private void handleDragonEncounter() {
-        gui.displayText("\nSUDDENLY, THE DRAGON AWAKENS!\n", ERROR_COLOR);
-        gui.displayText("The massive beast rears its head and breathes fire in your direction!\n", STORY_COLOR);
-        
-        if (player.hasItem("sword")) {
-            gui.displayText("You quickly draw your sword and prepare for battle!\n", SUCCESS_COLOR);
-            gui.displayText("After an epic fight, you manage to defeat the dragon!\n", SUCCESS_COLOR);
-            gui.displayText("The dragon collapses, leaving behind a path to its treasure hoard.\n", STORY_COLOR);
-            
-            // Add special reward
-            Item dragonGold = new Item("dragon gold", "A bag of precious dragon gold", true);
-            player.getCurrentLocation().addItem(dragonGold);
-        } else {
-            gui.displayText("Without a weapon, you cannot defend yourself!\n", ERROR_COLOR);
-            player.takeDamage(50);
-            gui.displayText("The dragon's flames sear your flesh! (-50 health)\n", ERROR_COLOR);
-            if (!player.isAlive()) {
-                gui.displayText("You have been slain by the dragon!\n", ERROR_COLOR);
-            }
-        }
+    private void announce(Location room, String text) {
+        world.getBroadcaster().publish(room, player, text);
     }
     
     /**
-     * Handle treasure room discovery
+     * Show what other players nearby have done since the last delivery
      */
-    private void handleTreasureRoom() {
-        gui.displayText("\n★★★ CONGRATULATIONS! ★★★\n", ACCENT_COLOR);
-        gui.displayText("You have discovered the legendary treasure!\n", SUCCESS_COLOR);
-        gui.displayText("The room is filled with unimaginable riches!\n", STORY_COLOR);
-        player.setGameWon(true);
+    private void deliverRoomMessages() {
+        String nearby = outbox.drain();
+        if (nearby != null) {
+            messages.send(nearby, MessageSink.Tone.STORY);
+        }
     }
     
     /**
@@ -324,12 +239,10 @@ public class GameEngine {
     private void handleLook(String target) {
         if (target.isEmpty()) {
             displayLocation();
+        } else if (target.startsWith("in ")) {
+            world.lookIn(player, target.substring(3).trim(), messages);
         } else {
-            Location current = player.getCurrentLocation();
-            Item item = current.getItem(target);
-            if (item == null) {
-                item = player.getInventoryItem(target);
-            }
+            Item item = world.findInScope(player, target);
             
             if (item != null) {
                 gui.displayText(item.getDescription() + "\n");
@@ -339,29 +252,6 @@ public class GameEngine {
         }
     }
     
-    /**
-     * Handle take command
-     */
-    private void handleTake(String itemName) {
-        if (itemName.isEmpty()) {
-            gui.displayText("Take what?\n", ERROR_COLOR);
-            return;
-        }
-        
-        Location current = player.getCurrentLocation();
-        Item item = current.getItem(itemName);
-        
-        if (item == null) {
-            gui.displayText("There's no " + itemName + " here.\n", ERROR_COLOR);
-        } else if (!item.canTake()) {
-            gui.displayText("You can't take the " + itemName + ".\n", ERROR_COLOR);
-        } else {
-            current.removeItem(item);
-            player.addItem(item);
-            gui.displayText("You take the " + itemName + ".\n", SUCCESS_COLOR);
-        }
-    }
-    
     /**
      * Handle drop command
      */
@@ -370,6 +260,10 @@ public class GameEngine {
             gui.displayText("Drop what?\n", ERROR_COLOR);
             return;
         }
+        if (itemName.equals("all")) {
+            handleDropAll();
+            return;
+        }
         
         Item item = player.getInventoryItem(itemName);
         if (item == null) {
@@ -377,10 +271,25 @@ public class GameEngine {
         } else {
             player.removeItem(item);
             player.getCurrentLocation().addItem(item);
+            announce(player.getCurrentLocation(), player.getName() + " drops the " + item.getName() + ".");
             gui.displayText("You drop the " + itemName + ".\n", SUCCESS_COLOR);
         }
     }
     
+    /**
+     * Drop everything in the inventory
+     */
+    private void handleDropAll() {
+        List<Item> inventory = player.getInventory();
+        if (inventory.isEmpty()) {
+            gui.displayText("You aren't carrying anything.\n", ERROR_COLOR);
+            return;
+        }
+        for (Item item : inventory) {
+            handleDrop(item.getName());
+        }
+    }
+    
     /**
      * Handle use command
      */
@@ -400,6 +309,65 @@ public class GameEngine {
         }
     }
     
+    /**
+     * Handle attack command
+     */
+    private void handleAttack(String target) {
+        if (target.isEmpty()) {
+            gui.displayText("Attack what?\n", ERROR_COLOR);
+            return;
+        }
+        
+        world.attack(player, target, messages);
+    }
+    
+    /**
+     * Autocomplete suggestions for partly typed input, best first. The first
+     * word completes to a command; later words complete to an exit, item or
+     * monster in scope, falling back to close misspellings.
+     */
+    public List<String> suggestionsFor(String input) {
+        List<String> suggestions = new ArrayList<>();
+        String text = input.stripLeading().toLowerCase();
+        int space = text.indexOf(' ');
+        if (space < 0) {
+            if (!text.isEmpty()) {
+                suggestions.addAll(Commands.complete(text, MAX_SUGGESTIONS));
+            }
+            if (suggestions.isEmpty() && Commands.closest(text) != null) {
+                suggestions.add(Commands.closest(text));
+            }
+            return suggestions;
+        }
+        
+        String verb = text.substring(0, space);
+        String argument = text.substring(space + 1).trim();
+        List<String> matches = world.completeInScope(player, argument, MAX_SUGGESTIONS);
+        if (matches.isEmpty() && argument.length() > 2) {
+            matches = world.suggestInScope(player, argument, argument.length() <= 3 ? 1 : 2, MAX_SUGGESTIONS);
+        }
+        for (String match : matches) {
+            if (!match.equals(argument)) {
+                suggestions.add(verb + " " + match);
+            }
+        }
+        return suggestions;
+    }
+    
+    /**
+     * Advance the world by one tick, driven by the GUI's fixed-rate timer
+     */
+    public void tick() {
+        if (!gameRunning) {
+            return;
+        }
+        
+        world.tick(player, messages);
+        deliverRoomMessages();
+        updateGUIDisplays();
+        checkGameState();
+    }
+    
     /**
      * Handle inventory command
      */
@@ -414,6 +382,59 @@ public class GameEngine {
         gui.displayText(player.getStatus() + "\n");
     }
     
+    /**
+     * Handle undo command
+     */
+    private void handleUndo() {
+        if (history.undo()) {
+            gui.displayText("You take back your last turn.\n", SUCCESS_COLOR);
+            showRestoredLocation();
+        } else {
+            gui.displayText("There's nothing to undo.\n", ERROR_COLOR);
+        }
+    }
+    
+    /**
+     * Handle redo command
+     */
+    private void handleRedo() {
+        if (history.redo()) {
+            gui.displayText("You replay the turn you took back.\n", SUCCESS_COLOR);
+            showRestoredLocation();
+        } else {
+            gui.displayText("There's nothing to redo.\n", ERROR_COLOR);
+        }
+    }
+    
+    // After undo or redo, show where the player now is; in a batch, once at the end
+    private void showRestoredLocation() {
+        if (batching) {
+            enteredRoom = true;
+        } else {
+            displayLocation();
+        }
+    }
+    
+    /**
+     * Handle who command
+     */
+    private void handleWho() {
+        gui.displayText(describeOccupants() + "\n");
+    }
+    
+    /**
+     * List the other players in the current location
+     */
+    private String describeOccupants() {
+        StringBuilder sb = new StringBuilder();
+        for (Player other : player.getCurrentLocation().getOccupants()) {
+            if (other != player) {
+                sb.append(sb.length() == 0 ? "Also here: " : ", ").append(other.getName());
+            }
+        }
+        return sb.length() == 0 ? "You are alone here." : sb.toString();
+    }
+    
     /**
      * Display help message
      */
@@ -421,13 +442,19 @@ public class GameEngine {
         String helpText = "Available commands:\n" +
             "• go <direction>  - Move in a direction (north, south, east, west, in, out)\n" +
             "• look [item]     - Examine your current location or a specific item\n" +
-            "• take <item>     - Pick up an item\n" +
+            "• look in <container> - See what is inside a bag or chest\n" +
+            "• take <item> [from <container>] - Pick up an item\n" +
             "• drop <item>     - Drop an item from your inventory\n" +
+            "• put <item> in <container> - Put an item inside a bag or chest\n" +
             "• use <item>      - Use an item from your inventory\n" +
+            "• attack <monster> - Fight a monster in your location\n" +
             "• inventory       - Check your inventory\n" +
             "• status          - Check your health and inventory\n" +
+            "• who             - See who else is here\n" +
+            "• undo / redo     - Take back your last turn, or replay it\n" +
             "• help            - Display this help message\n" +
             "• quit            - Exit the game\n\n" +
+            "Combine actions with commas or 'then', e.g. take all, go north then look\n" +
             "TIP: You can also use the direction buttons and action buttons!\n";
         
         gui.displayText(helpText);
@@ -438,16 +465,44 @@ public class GameEngine {
      */
     private void handleQuit() {
         gui.displayText("Thank you for playing! Goodbye!\n", ACCENT_COLOR);
+        recordRun();
         System.exit(0);
     }
     
+    /**
+     * Display a rule message in the color for its tone
+     */
+    private void displayMessage(String text, MessageSink.Tone tone) {
+        switch (tone) {
+            case ACCENT:
+                gui.displayText(text + "\n", ACCENT_COLOR);
+                break;
+            case STORY:
+                gui.displayText(text + "\n", STORY_COLOR);
+                break;
+            case SUCCESS:
+                gui.displayText(text + "\n", SUCCESS_COLOR);
+                break;
+            case ERROR:
+                gui.displayText(text + "\n", ERROR_COLOR);
+                break;
+            default:
+                gui.displayText(text + "\n");
+        }
+    }
+    
     /**
      * Display current location
      */
     private void displayLocation() {
         Location current = player.getCurrentLocation();
         gui.displayText("═══ " + current.getName() + " ═══\n", ACCENT_COLOR);
-        gui.displayText(current.getFullDescription() + "\n\n");
+        gui.displayText(current.getFullDescription() + "\n");
+        String monsters = world.describeMonsters(current);
+        if (!monsters.isEmpty()) {
+            gui.displayText(monsters + "\n", ERROR_COLOR);
+        }
+        gui.displayText("\n");
     }
     
     /**
@@ -455,6 +510,7 @@ public class GameEngine {
      */
     private void updateGUIDisplays() {
         gui.updateStatus("Health: " + player.getHealth() + "/100");
+        gui.updateMap(player.getCurrentLocation());
         
         if (player.getInventory().isEmpty()) {
             gui.updateInventory("Your inventory is empty.");
@@ -462,25 +518,58 @@ public class GameEngine {
             StringBuilder sb = new StringBuilder("Your inventory:\n");
             for (Item item : player.getInventory()) {
                 sb.append("• ").append(item.getName()).append("\n");
+                if (item instanceof Container && !((Container) item).isEmpty()) {
+                    sb.append("    holding ").append(((Container) item).describeContents()).append("\n");
+                }
             }
             gui.updateInventory(sb.toString());
         }
     }
     
+    /**
+     * Add the finished run to the shared statistics, once
+     */
+    private void recordRun() {
+        if (runRecorded) {
+            return;
+        }
+        runRecorded = true;
+        RunStats.Outcome outcome = player.isGameWon() ? RunStats.Outcome.WON
+            : player.isGameLost() ? RunStats.Outcome.DIED : RunStats.Outcome.QUIT;
+        RunStats.get().record(player.getName(), outcome, (System.nanoTime() - startedAt) / 1_000_000,
+            player.getMoves(), player.getDamageTaken(), player.getCurrentLocation().getId());
+    }
+    
     /**
      * Check for win/lose conditions
      */
     private void checkGameState() {
+        if (!gameRunning) {
+            return;
+        }
         if (player.isGameWon()) {
+            gameRunning = false;
+            recordRun();
             gui.showGameEndDialog(
                 "★ VICTORY! ★\n\nYou have successfully completed your quest!\nThe legendary treasure is yours!",
                 "Game Complete"
             );
         } else if (player.isGameLost() || !player.isAlive()) {
+            gameRunning = false;
+            player.setGameLost(true);
+            recordRun();
             gui.showGameEndDialog(
                 "☠ GAME OVER ☠\n\nYour adventure has come to an unfortunate end.\nBetter luck next time, brave adventurer!",
                 "Game Over"
             );
         }
     }
+    
+    public GameWorld getWorld() {
+        return world;
+    }
+    
+    public String getSessionId() {
+        return sessionId;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,214 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import jdk.jfr.*;
+
+/**
+ * Custom JDK Flight Recorder events for the game's command pipeline
+ * Each event carries the session and the verb being processed, taken from a
+ * per-thread context set by processCommand. When no recording is running the
+ * events are never committed and cost next to nothing.
+ *
+ * Record a session with: java -XX:StartFlightRecording=filename=game.jfr Game
+ */
+public final class GameEvents {
+    private static final AtomicInteger SESSIONS = new AtomicInteger();
+    private static final ThreadLocal<Context> CONTEXT = ThreadLocal.withInitial(Context::new);
+    
+    private GameEvents() {
+    }
+    
+    // The command being processed on this thread
+    private static final class Context {
+        private String session = "none";
+        private String verb = "";
+    }
+    
+    /**
+     * Allocate a session id such as console-1 or gui-2
+     */
+    public static String newSession(String kind) {
+        return kind + "-" + SESSIONS.incrementAndGet();
+    }
+    
+    // Mark the start of a command on the current thread
+    public static void enterCommand(String session, String verb) {
+        Context context = CONTEXT.get();
+        context.session = session;
+        context.verb = verb;
+    }
+    
+    // Mark the end of a command on the current thread
+    public static void exitCommand() {
+        CONTEXT.get().verb = "";
+    }
+    
+    public static String session() {
+        return CONTEXT.get().session;
+    }
+    
+    public static String verb() {
+        return CONTEXT.get().verb;
+    }
+    
+    /**
+     * Fields shared by every game event
+     */
+    @Category("Adventure Game")
+    public abstract static class GameEvent extends Event {
+        @Label("Session")
+        String session;
+        
+        @Label("Verb")
+        String verb;
+        
+        void tag() {
+            Context context = CONTEXT.get();
+            session = context.session;
+            verb = context.verb;
+        }
+    }
+    
+    @Name("adventure.CommandParse")
+    @Label("Command Parse")
+    @Description("Splitting an input line into a command and its argument")
+    public static class CommandParse extends GameEvent {
+        @Label("Input Length")
+        int inputLength;
+        
+        public static CommandParse start() {
+            CommandParse event = new CommandParse();
+            event.begin();
+            return event;
+        }
+        
+        public void finish(int length) {
+            end();
+            if (shouldCommit()) {
+                tag();
+                inputLength = length;
+                commit();
+            }
+        }
+    }
+    
+    @Name("adventure.RuleEvaluation")
+    @Label("Rule Evaluation")
+    @Description("Evaluating the guards and triggers for a move")
+    public static class RuleEvaluation extends GameEvent {
+        @Label("Room")
+        String room;
+        
+        @Label("Direction")
+        String direction;
+        
+        @Label("Rules Evaluated")
+        int rules;
+        
+        @Label("Moved")
+        boolean moved;
+        
+        public static RuleEvaluation start() {
+            RuleEvaluation event = new RuleEvaluation();
+            event.begin();
+            return event;
+        }
+        
+        public void finish(String fromRoom, String towards, int evaluated, boolean didMove) {
+            end();
+            if (shouldCommit()) {
+                tag();
+                room = fromRoom;
+                direction = towards;
+                rules = evaluated;
+                moved = didMove;
+                commit();
+            }
+        }
+    }
+    
+    @Name("adventure.WorldMutation")
+    @Label("World Mutation")
+    @Description("A change to a location's items or the player's position")
+    public static class WorldMutation extends GameEvent {
+        @Label("Operation")
+        String operation;
+        
+        @Label("Location")
+        String location;
+        
+        @Label("Target")
+        String target;
+        
+        public static WorldMutation start() {
+            WorldMutation event = new WorldMutation();
+            event.begin();
+            return event;
+        }
+        
+        public void finish(String op, String where, String what) {
+            end();
+            if (shouldCommit()) {
+                tag();
+                operation = op;
+                location = where;
+                target = what;
+                commit();
+            }
+        }
+    }
+    
+    @Name("adventure.DescriptionRender")
+    @Label("Description Render")
+    @Description("Building the text description of a location")
+    public static class DescriptionRender extends GameEvent {
+        @Label("Location")
+        String location;
+        
+        @Label("Characters")
+        int characters;
+        
+        public static DescriptionRender start() {
+            DescriptionRender event = new DescriptionRender();
+            event.begin();
+            return event;
+        }
+        
+        public void finish(String where, int length) {
+            end();
+            if (shouldCommit()) {
+                tag();
+                location = where;
+                characters = length;
+                commit();
+            }
+        }
+    }
+    
+    @Name("adventure.GuiFlush")
+    @Label("GUI Flush")
+    @Description("Applying queued text to a Swing component on the event thread")
+    public static class GuiFlush extends GameEvent {
+        @Label("Component")
+        String component;
+        
+        @Label("Characters")
+        int characters;
+        
+        public static GuiFlush start() {
+            GuiFlush event = new GuiFlush();
+            event.begin();
+            return event;
+        }
+        
+        // The flush runs later on the event thread, so the context is captured by the caller
+        public void finish(String forSession, String forVerb, String target, int length) {
+            end();
+            if (shouldCommit()) {
+                session = forSession;
+                verb = forVerb;
+                component = target;
+                characters = length;
+                commit();
+            }
+        }
+    }
+}
\ No newline at end of file
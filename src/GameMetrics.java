@@ -0,0 +1,233 @@
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.ObjectName;
+
+/**
+ * In-process metrics for the command pipeline
+ * Counts commands per verb and keeps log2-bucketed latency histograms for the
+ * parse, handle and render phases, plus bytes allocated per command.
+ * Recording is a handful of striped counter increments, cheap enough to leave on;
+ * start with -Dadventure.metrics=false to turn it off completely.
+ */
+public class GameMetrics implements GameMetricsMXBean {
+    private static final boolean ENABLED =
+        !"false".equalsIgnoreCase(System.getProperty("adventure.metrics"));
+    private static final GameMetrics INSTANCE = new GameMetrics();
+    
+    private final Map<String, VerbStats> verbs;
+    private final LongAdder commands;
+    private final LongAdder unknownCommands;
+    private final com.sun.management.ThreadMXBean threads;
+    private final boolean allocationSupported;
+    
+    private GameMetrics() {
+        this.verbs = new ConcurrentHashMap<>();
+        this.commands = new LongAdder();
+        this.unknownCommands = new LongAdder();
+        
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            this.threads = (com.sun.management.ThreadMXBean) bean;
+            this.allocationSupported = true;
+        } else {
+            this.threads = null;
+            this.allocationSupported = false;
+        }
+        
+        if (ENABLED) {
+            register();
+        }
+    }
+    
+    /**
+     * The shared registry
+     */
+    public static GameMetrics get() {
+        return INSTANCE;
+    }
+    
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+    
+    /**
+     * Timestamp for the start of a phase, or 0 when metrics are off
+     */
+    public long now() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+    
+    /**
+     * Bytes allocated so far by the current thread, or 0 if unavailable
+     */
+    public long allocatedBytes() {
+        return ENABLED && allocationSupported ? threads.getCurrentThreadAllocatedBytes() : 0;
+    }
+    
+    /**
+     * Record one command. Unknown command words are only counted, so typos
+     * cannot grow the per-verb table.
+     */
+    public void record(String word, long parseNanos, long handleNanos, long renderNanos, long allocated) {
+        if (!ENABLED) {
+            return;
+        }
+        commands.increment();
+        
+        String verb = Commands.verbOf(word);
+        if (verb == null) {
+            unknownCommands.increment();
+            return;
+        }
+        
+        VerbStats stats = verbs.computeIfAbsent(verb, v -> new VerbStats());
+        stats.count.increment();
+        stats.parse.record(parseNanos);
+        stats.handle.record(handleNanos);
+        stats.render.record(renderNanos);
+        stats.total.record(parseNanos + handleNanos + renderNanos);
+        stats.allocated.add(allocated);
+    }
+    
+    /**
+     * Counters for one verb
+     */
+    private static class VerbStats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder allocated = new LongAdder();
+        private final Histogram parse = new Histogram();
+        private final Histogram handle = new Histogram();
+        private final Histogram render = new Histogram();
+        private final Histogram total = new Histogram();
+    }
+    
+    /**
+     * Latency histogram with one bucket per power of two nanoseconds
+     */
+    public static class Histogram {
+        private static final int BUCKETS = 64;
+        
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder sum = new LongAdder();
+        private final LongAdder count = new LongAdder();
+        
+        public void record(long nanos) {
+            long value = Math.max(1, nanos);
+            buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(value));
+            sum.add(value);
+            count.increment();
+        }
+        
+        public double meanMicros() {
+            long n = count.sum();
+            return n == 0 ? 0 : sum.sum() / 1000.0 / n;
+        }
+        
+        // Upper bound of the bucket holding the given percentile, in microseconds
+        public double percentileMicros(double percentile) {
+            long n = count.sum();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(n * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.pow(2, i + 1) / 1000.0;
+                }
+            }
+            return Math.pow(2, BUCKETS) / 1000.0;
+        }
+    }
+    
+    // MXBean attributes
+    
+    @Override
+    public long getCommandCount() {
+        return commands.sum();
+    }
+    
+    @Override
+    public long getUnknownCommandCount() {
+        return unknownCommands.sum();
+    }
+    
+    @Override
+    public Map<String, Long> getCountByVerb() {
+        Map<String, Long> result = new TreeMap<>();
+        verbs.forEach((verb, stats) -> result.put(verb, stats.count.sum()));
+        return result;
+    }
+    
+    @Override
+    public Map<String, Double> getMeanLatencyMicrosByVerb() {
+        Map<String, Double> result = new TreeMap<>();
+        verbs.forEach((verb, stats) -> result.put(verb, stats.total.meanMicros()));
+        return result;
+    }
+    
+    @Override
+    public Map<String, Double> getP99LatencyMicrosByVerb() {
+        Map<String, Double> result = new TreeMap<>();
+        verbs.forEach((verb, stats) -> result.put(verb, stats.total.percentileMicros(99)));
+        return result;
+    }
+    
+    @Override
+    public Map<String, Long> getAllocatedBytesPerCommandByVerb() {
+        Map<String, Long> result = new TreeMap<>();
+        verbs.forEach((verb, stats) -> {
+            long n = stats.count.sum();
+            result.put(verb, n == 0 ? 0 : stats.allocated.sum() / n);
+        });
+        return result;
+    }
+    
+    @Override
+    public String getReport() {
+        if (!ENABLED) {
+            return "Metrics are disabled (-Dadventure.metrics=false).";
+        }
+        
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Commands: %d   Unknown: %d%n%n", getCommandCount(), getUnknownCommandCount()));
+        sb.append(String.format("%-10s %7s %10s %10s %10s %10s %10s %10s%n",
+            "verb", "count", "parse µs", "handle µs", "render µs", "mean µs", "p99 µs", "bytes/cmd"));
+        Map<String, Long> allocated = getAllocatedBytesPerCommandByVerb();
+        for (Map.Entry<String, VerbStats> entry : new TreeMap<>(verbs).entrySet()) {
+            VerbStats stats = entry.getValue();
+            sb.append(String.format("%-10s %7d %10.1f %10.1f %10.1f %10.1f %10.1f %10d%n",
+                entry.getKey(),
+                stats.count.sum(),
+                stats.parse.meanMicros(),
+                stats.handle.meanMicros(),
+                stats.render.meanMicros(),
+                stats.total.meanMicros(),
+                stats.total.percentileMicros(99),
+                allocated.get(entry.getKey())));
+        }
+        return sb.toString();
+    }
+    
+    @Override
+    public void reset() {
+        verbs.clear();
+        commands.reset();
+        unknownCommands.reset();
+    }
+    
+    private void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                .registerMBean(this, new ObjectName("adventure:type=GameMetrics"));
+        } catch (Exception e) {
+            // Metrics still work in-process without JMX
+            System.err.println("Could not register metrics MBean: " + e.getMessage());
+        }
+    }
+}
\ No newline at end of file
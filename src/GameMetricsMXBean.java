@@ -0,0 +1,23 @@
+import java.util.Map;
+
+/**
+ * JMX view of the game's command metrics
+ * Registered as adventure:type=GameMetrics on the platform MBean server
+ */
+public interface GameMetricsMXBean {
+    long getCommandCount();
+    
+    long getUnknownCommandCount();
+    
+    Map<String, Long> getCountByVerb();
+    
+    Map<String, Double> getMeanLatencyMicrosByVerb();
+    
+    Map<String, Double> getP99LatencyMicrosByVerb();
+    
+    Map<String, Long> getAllocatedBytesPerCommandByVerb();
+    
+    String getReport();
+    
+    void reset();
+}
\ No newline at end of file
@@ -0,0 +1,300 @@
+import java.util.*;
+
+/**
+ * Movement rules for the adventure game
+ * Guards block or allow an exit, triggers fire when the player arrives in a room.
+ * Rules are declared as data and compiled into tables keyed by room id and direction,
+ * so each move only evaluates the rules that apply to it.
+ */
+public class GameRules {
+    private static final Rule[] NO_RULES = new Rule[0];
+    
+    private final List<Rule> declared;
+    private Map<String, Map<String, Rule[]>> guardTable;
+    private Map<String, Rule[]> triggerTable;
+    
+    public GameRules() {
+        this.declared = new ArrayList<>();
+        this.guardTable = new HashMap<>();
+        this.triggerTable = new HashMap<>();
+    }
+    
+    /**
+     * A check made against the player before a rule passes
+     */
+    public interface Condition {
+        boolean test(Player player);
+    }
+    
+    /**
+     * Something a rule does to the player or the world
+     */
+    public interface Effect {
+        void apply(Player player, MessageSink out);
+    }
+    
+    /**
+     * A single guard or trigger. Effects are grouped by phase and run in
+     * declaration order, so messages and state changes interleave as written.
+     */
+    public static class Rule {
+        private final String roomId;
+        private final String direction;
+        private Condition precondition;
+        private Condition condition;
+        private final List<Effect> approach = new ArrayList<>();
+        private final List<Effect> pass = new ArrayList<>();
+        private final List<Effect> fail = new ArrayList<>();
+        private final List<Effect> enter = new ArrayList<>();
+        
+        private Rule(String roomId, String direction) {
+            this.roomId = roomId;
+            this.direction = direction;
+        }
+        
+        // Condition for the rule to apply at all; when false the rule is skipped
+        public Rule when(Condition precondition) {
+            this.precondition = precondition;
+            return this;
+        }
+        
+        // Condition that must hold for the rule to pass
+        public Rule requires(Condition condition) {
+            this.condition = condition;
+            return this;
+        }
+        
+        // Runs before the condition is checked
+        public Rule onApproach(String text, MessageSink.Tone tone) {
+            return onApproach(message(text, tone));
+        }
+        
+        public Rule onApproach(Effect effect) {
+            approach.add(effect);
+            return this;
+        }
+        
+        // Runs when the condition holds (before the move, for guards)
+        public Rule onPass(String text, MessageSink.Tone tone) {
+            return onPass(message(text, tone));
+        }
+        
+        public Rule onPass(Effect effect) {
+            pass.add(effect);
+            return this;
+        }
+        
+        // Runs when the condition fails (the move is blocked, for guards)
+        public Rule onFail(String text, MessageSink.Tone tone) {
+            return onFail(message(text, tone));
+        }
+        
+        public Rule onFail(Effect effect) {
+            fail.add(effect);
+            return this;
+        }
+        
+        // Runs after a guarded move has happened
+        public Rule onEnter(String text, MessageSink.Tone tone) {
+            return onEnter(message(text, tone));
+        }
+        
+        public Rule onEnter(Effect effect) {
+            enter.add(effect);
+            return this;
+        }
+        
+        private boolean evaluate(Player player, MessageSink out) {
+            if (precondition != null && !precondition.test(player)) {
+                return true;
+            }
+            run(approach, player, out);
+            if (condition == null || condition.test(player)) {
+                run(pass, player, out);
+                return true;
+            }
+            run(fail, player, out);
+            return false;
+        }
+        
+        private static void run(List<Effect> effects, Player player, MessageSink out) {
+            for (int i = 0; i < effects.size(); i++) {
+                effects.get(i).apply(player, out);
+            }
+        }
+    }
+    
+    /**
+     * Declare a guard on the exit leading from a room in a direction
+     */
+    public Rule guard(String roomId, String direction) {
+        Rule rule = new Rule(roomId, direction.toLowerCase());
+        declared.add(rule);
+        return rule;
+    }
+    
+    /**
+     * Declare a trigger that fires when the player arrives in a room
+     */
+    public Rule trigger(String roomId) {
+        Rule rule = new Rule(roomId, null);
+        declared.add(rule);
+        return rule;
+    }
+    
+    /**
+     * Build the lookup tables from the declared rules.
+     * Must be called again after declaring more rules.
+     */
+    public void compile() {
+        Map<String, Map<String, List<Rule>>> guards = new HashMap<>();
+        Map<String, List<Rule>> triggers = new HashMap<>();
+        for (Rule rule : declared) {
+            if (rule.direction != null) {
+                guards.computeIfAbsent(rule.roomId, k -> new HashMap<>())
+                    .computeIfAbsent(rule.direction, k -> new ArrayList<>())
+                    .add(rule);
+            } else {
+                triggers.computeIfAbsent(rule.roomId, k -> new ArrayList<>()).add(rule);
+            }
+        }
+        
+        Map<String, Map<String, Rule[]>> compiledGuards = new HashMap<>();
+        for (Map.Entry<String, Map<String, List<Rule>>> room : guards.entrySet()) {
+            Map<String, Rule[]> exits = new HashMap<>();
+            for (Map.Entry<String, List<Rule>> exit : room.getValue().entrySet()) {
+                exits.put(exit.getKey(), exit.getValue().toArray(NO_RULES));
+            }
+            compiledGuards.put(room.getKey(), exits);
+        }
+        
+        Map<String, Rule[]> compiledTriggers = new HashMap<>();
+        for (Map.Entry<String, List<Rule>> room : triggers.entrySet()) {
+            compiledTriggers.put(room.getKey(), room.getValue().toArray(NO_RULES));
+        }
+        
+        guardTable = compiledGuards;
+        triggerTable = compiledTriggers;
+    }
+    
+    /**
+     * Move the player, applying the guards on the exit and the triggers of the
+     * destination room. onEnter runs after the move and before any triggers.
+     * Returns true if the player moved.
+     */
+    public boolean move(Player player, String direction, MessageSink out, Runnable onEnter) {
+        GameEvents.RuleEvaluation event = GameEvents.RuleEvaluation.start();
+        direction = direction.toLowerCase();
+        String from = player.getCurrentLocation().getId();
+        Rule[] guards = guardsFor(from, direction);
+        
+        for (Rule guard : guards) {
+            if (!guard.evaluate(player, out)) {
+                event.finish(from, direction, guards.length, false);
+                return false;
+            }
+        }
+        
+        if (!player.move(direction)) {
+            out.send("You can't go that way.", MessageSink.Tone.ERROR);
+            event.finish(from, direction, guards.length, false);
+            return false;
+        }
+        
+        for (Rule guard : guards) {
+            Rule.run(guard.enter, player, out);
+        }
+        onEnter.run();
+        
+        Rule[] triggers = triggersFor(player.getCurrentLocation().getId());
+        for (Rule trigger : triggers) {
+            trigger.evaluate(player, out);
+        }
+        event.finish(from, direction, guards.length + triggers.length, true);
+        return true;
+    }
+    
+    // Rules guarding an exit, empty when the exit is unguarded
+    public Rule[] guardsFor(String roomId, String direction) {
+        Map<String, Rule[]> exits = guardTable.get(roomId);
+        if (exits == null) {
+            return NO_RULES;
+        }
+        Rule[] rules = exits.get(direction);
+        return rules != null ? rules : NO_RULES;
+    }
+    
+    // Rules triggered on arrival in a room, empty when there are none
+    public Rule[] triggersFor(String roomId) {
+        Rule[] rules = triggerTable.get(roomId);
+        return rules != null ? rules : NO_RULES;
+    }
+    
+    // Conditions
+    
+    public static Condition hasItem(String itemName) {
+        return player -> player.hasItem(itemName);
+    }
+    
+    public static Condition minHealth(int health) {
+        return player -> player.getHealth() >= health;
+    }
+    
+    public static Condition roomHas(String itemName) {
+        return player -> player.getCurrentLocation().hasItem(itemName);
+    }
+    
+    // Effects
+    
+    public static Effect message(String text, MessageSink.Tone tone) {
+        return (player, out) -> out.send(text, tone);
+    }
+    
+    public static Effect damage(int amount) {
+        return (player, out) -> player.takeDamage(amount);
+    }
+    
+    // Damage rolled on the player's dice, reported with the amount in place of %d
+    public static Effect damage(int min, int max, String text) {
+        return (player, out) -> {
+            int amount = player.roll(min, max);
+            if (amount > 0) {
+                player.takeDamage(amount);
+                out.send(String.format(text, amount), MessageSink.Tone.ERROR);
+            }
+        };
+    }
+    
+    public static Effect ifSlain(String text) {
+        return (player, out) -> {
+            if (!player.isAlive()) {
+                out.send(text, MessageSink.Tone.ERROR);
+            }
+        };
+    }
+    
+    public static Effect spawnItem(String name, String description) {
+        return (player, out) -> player.getCurrentLocation().addItem(new Item(name, description, true));
+    }
+    
+    // Remove an item from the room and put it back after a number of world ticks,
+    // unless it is already back (undo restores rooms as well)
+    public static Effect defeat(String itemName, int respawnTicks) {
+        return (player, out) -> {
+            Location room = player.getCurrentLocation();
+            Item item = room.getItem(itemName);
+            if (item != null && player.getEffects() != null) {
+                room.removeItem(item);
+                player.schedule(respawnTicks, () -> {
+                    if (!room.hasItem(itemName)) {
+                        room.addItem(item);
+                    }
+                });
+            }
+        };
+    }
+    
+    public static Effect win() {
+        return (player, out) -> player.setGameWon(true);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,435 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * HTTP JSON API for playing the game from other services
+ * Each session is its own game and world. Responses carry the text a turn
+ * printed along with the state read straight from the player and world:
+ *
+ *   POST   /sessions                  start a session
+ *   GET    /sessions/{id}             current state
+ *   POST   /sessions/{id}/commands    {"command": "go north"} or {"commands": ["take key", "go south"]}
+ *   GET    /sessions/{id}/events      every turn as Server-Sent Events
+ *   DELETE /sessions/{id}             end a session, returning its final state
+ *   GET    /stats                     run statistics and leaderboards across all sessions
+ *
+ * Requests run on virtual threads when the JDK has them (21 and later) and
+ * on a cached thread pool otherwise. Idle sessions are dropped after
+ * SESSION_IDLE_MINUTES.
+ *
+ * Usage: java GameServer [port]
+ */
+public class GameServer {
+    private static final int DEFAULT_PORT = 8080;
+    private static final int MAX_BATCH = 100;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int SESSION_IDLE_MINUTES = 30;
+    // A listener that falls this many turns behind misses the rest
+    private static final int EVENT_QUEUE_SIZE = 256;
+    private static final long KEEP_ALIVE_SECONDS = 15;
+    private static final String END_OF_STREAM = "";
+    
+    static {
+        // Small responses otherwise wait out Nagle's algorithm and delayed ACKs, about 40 ms each
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+    
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService sweeper;
+    private final Map<String, Session> sessions;
+    
+    public GameServer(int port) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = newExecutor();
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sessions = new ConcurrentHashMap<>();
+        server.createContext("/sessions", this::handle);
+        server.createContext("/stats", this::handleStats);
+        server.setExecutor(executor);
+    }
+    
+    // Virtual threads where available; otherwise threads are cached, since event streams hold theirs
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+    
+    public void start() {
+        server.start();
+        sweeper.scheduleAtFixedRate(this::dropIdleSessions, 1, 1, TimeUnit.MINUTES);
+    }
+    
+    public void stop() {
+        for (Session session : sessions.values()) {
+            session.close();
+        }
+        server.stop(0);
+        sweeper.shutdownNow();
+        executor.shutdownNow();
+    }
+    
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+    
+    /**
+     * One player's game, with the output of each turn captured for the
+     * response and passed on to any event listeners
+     */
+    private static final class Session {
+        private final String id;
+        private final Game game;
+        private final ByteArrayOutputStream output;
+        private final List<BlockingQueue<String>> listeners;
+        private volatile long lastUsed;
+        
+        private Session(String id) {
+            this.id = id;
+            this.output = new ByteArrayOutputStream();
+            this.game = new Game(new ConsoleRenderer(output, StandardCharsets.UTF_8));
+            this.listeners = new CopyOnWriteArrayList<>();
+            this.lastUsed = System.nanoTime();
+        }
+        
+        // The text written since the last call
+        private String takeOutput() {
+            String text = output.toString(StandardCharsets.UTF_8);
+            output.reset();
+            return text;
+        }
+        
+        /**
+         * Play one line and return the turn as JSON, or null if the game
+         * is already over
+         */
+        private synchronized String play(String command) {
+            lastUsed = System.nanoTime();
+            if (!game.play(command)) {
+                return null;
+            }
+            StringBuilder sb = new StringBuilder("{\"command\":");
+            Json.quote(command, sb);
+            sb.append(",\"output\":");
+            Json.quote(takeOutput(), sb);
+            sb.append(",\"state\":");
+            appendState(sb);
+            String turn = sb.append('}').toString();
+            for (BlockingQueue<String> listener : listeners) {
+                listener.offer(turn);
+            }
+            return turn;
+        }
+        
+        private synchronized String state() {
+            lastUsed = System.nanoTime();
+            StringBuilder sb = new StringBuilder();
+            appendState(sb);
+            return sb.toString();
+        }
+        
+        // Location, exits, items, inventory, monsters, health and outcome, from the engine itself
+        private void appendState(StringBuilder sb) {
+            Player player = game.getPlayer();
+            GameWorld world = game.getWorld();
+            Location location = player.getCurrentLocation();
+            
+            sb.append("{\"session\":");
+            Json.quote(id, sb);
+            sb.append(",\"status\":");
+            Json.quote(player.isGameWon() ? "won" : player.isGameLost() ? "lost"
+                : game.isRunning() ? "playing" : "quit", sb);
+            sb.append(",\"health\":").append(player.getHealth());
+            sb.append(",\"location\":{\"id\":");
+            Json.quote(location.getId(), sb);
+            sb.append(",\"name\":");
+            Json.quote(location.getName(), sb);
+            sb.append(",\"description\":");
+            Json.quote(location.getDescription(), sb);
+            sb.append("},\"exits\":[");
+            appendNames(location.getAvailableDirections(), sb);
+            sb.append("],\"items\":[");
+            appendItems(location.getItemSnapshot(), sb);
+            sb.append("],\"inventory\":[");
+            appendItems(player.getInventory().toArray(new Item[0]), sb);
+            sb.append("],\"monsters\":[");
+            Monsters monsters = world.getMonsters();
+            List<Integer> present = monsters.inRoom(world.getGraph().indexOf(location));
+            for (int i = 0; i < present.size(); i++) {
+                int monster = present.get(i);
+                sb.append(i > 0 ? ",{\"kind\":" : "{\"kind\":");
+                Json.quote(monsters.getKind(monster), sb);
+                sb.append(",\"health\":").append(monsters.getHealth(monster));
+                sb.append(",\"maxHealth\":").append(monsters.getMaxHealth(monster)).append('}');
+            }
+            sb.append("]}");
+        }
+        
+        private void close() {
+            for (BlockingQueue<String> listener : listeners) {
+                // Make room so the end always gets through, even to a listener that fell behind
+                listener.clear();
+                listener.offer(END_OF_STREAM);
+            }
+        }
+    }
+    
+    private static void appendNames(Collection<String> names, StringBuilder sb) {
+        boolean first = true;
+        for (String name : names) {
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            Json.quote(name, sb);
+        }
+    }
+    
+    private static void appendItems(Item[] items, StringBuilder sb) {
+        for (int i = 0; i < items.length; i++) {
+            sb.append(i > 0 ? ",{\"name\":" : "{\"name\":");
+            Json.quote(items[i].getName(), sb);
+            sb.append(",\"description\":");
+            Json.quote(items[i].getDescription(), sb);
+            sb.append(",\"canTake\":").append(items[i].canTake()).append('}');
+        }
+    }
+    
+    // Route /sessions[/{id}[/commands|/events]]
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String[] path = exchange.getRequestURI().getPath().substring(1).split("/");
+            String method = exchange.getRequestMethod();
+            if (path.length == 1) {
+                if (method.equals("POST")) {
+                    createSession(exchange);
+                } else {
+                    sendError(exchange, 405, "Use POST to start a session");
+                }
+                return;
+            }
+            
+            Session session = sessions.get(path[1]);
+            if (session == null) {
+                sendError(exchange, 404, "No session " + path[1]);
+            } else if (path.length == 2 && method.equals("GET")) {
+                send(exchange, 200, session.state());
+            } else if (path.length == 2 && method.equals("DELETE")) {
+                // Answers with the final state; an empty 204 makes this JDK's server drop the connection
+                sessions.remove(session.id);
+                session.close();
+                send(exchange, 200, session.state());
+            } else if (path.length == 3 && path[2].equals("commands") && method.equals("POST")) {
+                runCommands(exchange, session);
+            } else if (path.length == 3 && path[2].equals("events") && method.equals("GET")) {
+                streamEvents(exchange, session);
+            } else {
+                sendError(exchange, 404, "Unknown endpoint");
+            }
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            sendError(exchange, 500, "Internal error");
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                sendError(exchange, 405, "Use GET for statistics");
+                return;
+            }
+            RunStats stats = RunStats.get();
+            StringBuilder sb = new StringBuilder();
+            sb.append("{\"runs\":").append(stats.getRuns());
+            sb.append(",\"wins\":").append(stats.getWins());
+            sb.append(",\"deaths\":").append(stats.getDeaths());
+            sb.append(",\"winMillis\":");
+            appendSketch(stats.getWinMillis(), sb);
+            sb.append(",\"winMoves\":");
+            appendSketch(stats.getWinMoves(), sb);
+            sb.append(",\"damageTaken\":");
+            appendSketch(stats.getDamageTaken(), sb);
+            sb.append(",\"fastestWins\":");
+            appendBoard(stats.getFastestWins(), sb);
+            sb.append(",\"shortestWins\":");
+            appendBoard(stats.getShortestWins(), sb);
+            sb.append(",\"deathsByRoom\":{");
+            boolean first = true;
+            for (Map.Entry<String, Long> room : stats.getDeathsByRoom().entrySet()) {
+                sb.append(first ? "" : ",");
+                first = false;
+                Json.quote(room.getKey(), sb);
+                sb.append(':').append(room.getValue());
+            }
+            send(exchange, 200, sb.append("}}").toString());
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    private static void appendSketch(QuantileSketch sketch, StringBuilder sb) {
+        sb.append(String.format(Locale.ROOT, "{\"count\":%d,\"mean\":%.1f,\"p50\":%.1f,\"p90\":%.1f,\"p99\":%.1f}",
+            sketch.count(), sketch.mean(), sketch.quantile(0.5), sketch.quantile(0.9), sketch.quantile(0.99)));
+    }
+    
+    private static void appendBoard(List<RunStats.Entry> entries, StringBuilder sb) {
+        sb.append('[');
+        for (int i = 0; i < entries.size(); i++) {
+            sb.append(i > 0 ? ",{\"player\":" : "{\"player\":");
+            Json.quote(entries.get(i).getPlayer(), sb);
+            sb.append(",\"score\":").append(entries.get(i).getScore()).append('}');
+        }
+        sb.append(']');
+    }
+    
+    private void createSession(HttpExchange exchange) throws IOException {
+        Session session = new Session(UUID.randomUUID().toString());
+        session.game.begin();
+        sessions.put(session.id, session);
+        
+        StringBuilder sb = new StringBuilder("{\"session\":");
+        Json.quote(session.id, sb);
+        sb.append(",\"output\":");
+        Json.quote(session.takeOutput(), sb);
+        sb.append(",\"state\":").append(session.state()).append('}');
+        exchange.getResponseHeaders().set("Location", "/sessions/" + session.id);
+        send(exchange, 201, sb.toString());
+    }
+    
+    /**
+     * Run one command or a batch, in order, each as its own turn. A batch
+     * stops early if the game ends.
+     */
+    private void runCommands(HttpExchange exchange, Session session) throws IOException {
+        Object body = Json.parse(readBody(exchange));
+        if (!(body instanceof Map)) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        Map<?, ?> request = (Map<?, ?>) body;
+        List<String> commands = new ArrayList<>();
+        if (request.get("command") instanceof String) {
+            commands.add((String) request.get("command"));
+        } else if (request.get("commands") instanceof List) {
+            for (Object command : (List<?>) request.get("commands")) {
+                if (!(command instanceof String)) {
+                    throw new IllegalArgumentException("Commands must be strings");
+                }
+                commands.add((String) command);
+            }
+        } else {
+            throw new IllegalArgumentException("Expected \"command\" or \"commands\"");
+        }
+        if (commands.size() > MAX_BATCH) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH + " commands per request");
+        }
+        
+        StringBuilder sb = new StringBuilder("{\"turns\":[");
+        int played = 0;
+        for (String command : commands) {
+            String turn = session.play(command);
+            if (turn == null) {
+                break;
+            }
+            sb.append(played++ > 0 ? "," : "").append(turn);
+        }
+        if (played == 0) {
+            sendError(exchange, 409, "The game is over");
+            return;
+        }
+        sb.append("],\"state\":").append(session.state()).append('}');
+        send(exchange, 200, sb.toString());
+    }
+    
+    /**
+     * Stream every turn of a session as an event until the client goes
+     * away or the session ends
+     */
+    private void streamEvents(HttpExchange exchange, Session session) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        
+        BlockingQueue<String> events = new ArrayBlockingQueue<>(EVENT_QUEUE_SIZE);
+        session.listeners.add(events);
+        try {
+            OutputStream body = exchange.getResponseBody();
+            write(body, "event: state\ndata: " + session.state() + "\n\n");
+            while (true) {
+                String turn = events.poll(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+                if (turn == null) {
+                    write(body, ": keep-alive\n\n");
+                } else if (turn == END_OF_STREAM) {
+                    write(body, "event: end\ndata: {}\n\n");
+                    return;
+                } else {
+                    write(body, "event: turn\ndata: " + turn + "\n\n");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // The client went away
+        } finally {
+            session.listeners.remove(events);
+        }
+    }
+    
+    private void dropIdleSessions() {
+        long cutoff = System.nanoTime() - TimeUnit.MINUTES.toNanos(SESSION_IDLE_MINUTES);
+        for (Session session : sessions.values()) {
+            if (session.lastUsed < cutoff && session.listeners.isEmpty()) {
+                sessions.remove(session.id);
+                session.close();
+            }
+        }
+    }
+    
+    private static String readBody(HttpExchange exchange) throws IOException {
+        byte[] body = exchange.getRequestBody().readNBytes(MAX_BODY_BYTES + 1);
+        if (body.length > MAX_BODY_BYTES) {
+            throw new IllegalArgumentException("Request body too large");
+        }
+        return new String(body, StandardCharsets.UTF_8);
+    }
+    
+    private static void write(OutputStream body, String text) throws IOException {
+        body.write(text.getBytes(StandardCharsets.UTF_8));
+        body.flush();
+    }
+    
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+    
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, "{\"error\":" + Json.quote(message) + "}");
+    }
+    
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        GameServer server = new GameServer(port);
+        server.start();
+        System.out.println("Adventure API listening on http://localhost:" + server.getPort() + "/sessions");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,183 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load client for the HTTP API
+ * Each client thread repeatedly starts a session, plays the walkthrough to
+ * victory and deletes the session, sending the commands one per request or in
+ * batches. Reports requests and commands per second and request latency. With
+ * no --url a server is started in this JVM on a free port. First checks that
+ * a body nested thousands of levels deep is refused with a 400.
+ *
+ * Usage: java GameServerBenchmark [--url http://host:port] [--clients n] [--seconds n] [--batch n]
+ */
+public class GameServerBenchmark {
+    private static final String[] WALKTHROUGH = {
+        "look", "take stick", "status", "go north", "take key", "take potion", "go south", "go east",
+        "take sword", "take torch", "use potion", "status", "go west", "go west", "go in",
+        "take spellbook", "use spellbook", "go out", "go east", "go east", "go north"
+    };
+    
+    private final HttpClient client;
+    private final String base;
+    private final int batch;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder commands = new LongAdder();
+    private final LongAdder games = new LongAdder();
+    private final ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+    
+    private GameServerBenchmark(String base, int batch) {
+        this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        this.base = base;
+        this.batch = batch;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        String url = null;
+        int clients = 8;
+        int seconds = 10;
+        int batch = 1;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--url":
+                    url = args[i + 1];
+                    break;
+                case "--clients":
+                    clients = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--seconds":
+                    seconds = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--batch":
+                    batch = Integer.parseInt(args[i + 1]);
+                    break;
+            }
+        }
+        
+        GameServer server = null;
+        if (url == null) {
+            server = new GameServer(0);
+            server.start();
+            url = "http://localhost:" + server.getPort();
+        }
+        System.out.println("Target " + url + ", " + clients + " clients, batches of " + batch + ", " + seconds + " s");
+        
+        GameServerBenchmark benchmark = new GameServerBenchmark(url + "/sessions", batch);
+        try {
+            benchmark.checkDeepNesting();
+            benchmark.run(clients, 2);
+            benchmark.reset();
+            long elapsed = benchmark.run(clients, seconds);
+            benchmark.report(elapsed);
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+    
+    // Play games on every client until time runs out; returns the elapsed nanoseconds
+    private long run(int clients, int seconds) throws InterruptedException, ExecutionException {
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<?>> running = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            running.add(pool.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    playGame();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : running) {
+            future.get();
+        }
+        pool.shutdown();
+        return System.nanoTime() - start;
+    }
+    
+    private void playGame() throws Exception {
+        String created = send(HttpRequest.newBuilder(URI.create(base))
+            .POST(HttpRequest.BodyPublishers.noBody()), 201);
+        int at = created.indexOf("\"session\":\"") + 11;
+        String session = base + "/" + created.substring(at, created.indexOf('"', at));
+        
+        for (int i = 0; i < WALKTHROUGH.length; i += batch) {
+            StringBuilder body = new StringBuilder();
+            int end = Math.min(WALKTHROUGH.length, i + batch);
+            if (batch == 1) {
+                body.append("{\"command\":").append(Json.quote(WALKTHROUGH[i])).append('}');
+            } else {
+                body.append("{\"commands\":[");
+                for (int j = i; j < end; j++) {
+                    body.append(j > i ? "," : "").append(Json.quote(WALKTHROUGH[j]));
+                }
+                body.append("]}");
+            }
+            String turn = send(HttpRequest.newBuilder(URI.create(session + "/commands"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString())), 200);
+            commands.add(end - i);
+            if (end == WALKTHROUGH.length && !turn.contains("\"status\":\"won\"")) {
+                throw new IllegalStateException("Walkthrough did not win: " + turn);
+            }
+        }
+        send(HttpRequest.newBuilder(URI.create(session)).DELETE(), 200);
+        games.increment();
+    }
+    
+    // A body nested far too deep must be refused with a 400, not overflow the server's stack
+    private void checkDeepNesting() throws Exception {
+        String created = send(HttpRequest.newBuilder(URI.create(base))
+            .POST(HttpRequest.BodyPublishers.noBody()), 201);
+        int at = created.indexOf("\"session\":\"") + 11;
+        String session = base + "/" + created.substring(at, created.indexOf('"', at));
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(session + "/commands"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString("[".repeat(60_000))).build(),
+            HttpResponse.BodyHandlers.ofString());
+        send(HttpRequest.newBuilder(URI.create(session)).DELETE(), 200);
+        if (response.statusCode() != 400) {
+            throw new IllegalStateException("Deeply nested body got HTTP " + response.statusCode() + ": " + response.body());
+        }
+        System.out.println("Deeply nested body rejected with 400");
+        reset();
+    }
+    
+    private String send(HttpRequest.Builder request, int expected) throws Exception {
+        long start = System.nanoTime();
+        HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        latencies.add(System.nanoTime() - start);
+        requests.increment();
+        if (response.statusCode() != expected) {
+            throw new IllegalStateException("HTTP " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+    
+    private void reset() {
+        requests.reset();
+        commands.reset();
+        games.reset();
+        latencies.clear();
+    }
+    
+    private void report(long elapsed) {
+        double seconds = elapsed / 1e9;
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        System.out.printf("%,d games, %,d requests, %,d commands in %.1f s%n",
+            games.sum(), requests.sum(), commands.sum(), seconds);
+        System.out.printf("%.0f requests/s, %.0f commands/s%n", requests.sum() / seconds, commands.sum() / seconds);
+        if (sorted.length > 0) {
+            System.out.printf("latency p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                sorted[sorted.length / 2] / 1e6, sorted[(int) (sorted.length * 0.99)] / 1e6,
+                sorted[sorted.length - 1] / 1e6);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,665 @@
+import java.util.*;
+
+/**
+ * The game world: locations, items, connections and movement rules
+ * Shared by the console game, the GUI engine and the demo
+ */
+public class GameWorld {
+    private Map<String, Location> locations;
+    private GameRules rules;
+    private RoomGraph graph;
+    private Monsters monsters;
+    private TimingWheel effects;
+    private RoomBroadcaster broadcaster;
+    private List<Container> containers;
+    // Every name in the world, filtered by scope on each lookup
+    private NameIndex names;
+    private long ticks;
+    private final String startId;
+    private final Balance balance;
+    
+    // World ticks before a defeated dragon returns to its lair
+    private static final int DRAGON_RESPAWN_TICKS = 50;
+    
+    public GameWorld() {
+        this(Balance.STANDARD);
+    }
+    
+    /**
+     * The standard world with different difficulty settings
+     */
+    public GameWorld(Balance balance) {
+        this("forest", balance);
+        createLocations();
+        createItems();
+        connectLocations();
+        createRules();
+        build();
+        spawnMonsters();
+    }
+    
+    private GameWorld(String startId, Balance balance) {
+        this.startId = startId;
+        this.balance = balance;
+        locations = new HashMap<>();
+        rules = new GameRules();
+        effects = new TimingWheel();
+        broadcaster = new RoomBroadcaster();
+    }
+    
+    /**
+     * The standard world, read from the prebuilt snapshot when there is one
+     * on the classpath and built room by room otherwise. Rules and monsters
+     * are added the same way in both cases.
+     */
+    public static GameWorld prebuilt() {
+        WorldSnapshot snapshot = WorldSnapshot.fromClasspath();
+        if (snapshot == null) {
+            return new GameWorld();
+        }
+        GameWorld world = new GameWorld(snapshot.getStartId(), Balance.STANDARD);
+        world.locations = snapshot.getLocations();
+        world.createRules();
+        world.build();
+        world.spawnMonsters();
+        return world;
+    }
+    
+    // Compile the rules and index the rooms once the locations are in place
+    private void build() {
+        rules.compile();
+        graph = new RoomGraph(locations.values());
+        monsters = new Monsters(graph, 16);
+        containers = new ArrayList<>();
+        names = new NameIndex();
+        for (Location room : locations.values()) {
+            collectContainers(room.getItemSnapshot(), containers);
+            for (String direction : room.getAvailableDirections()) {
+                names.add(direction);
+            }
+            for (Item item : room.getItemSnapshot()) {
+                indexNames(item);
+            }
+            room.setNames(names);
+        }
+    }
+    
+    private void indexNames(Item item) {
+        names.add(item.getName());
+        if (item instanceof Container) {
+            for (Item inner : ((Container) item).getContents()) {
+                indexNames(inner);
+            }
+        }
+    }
+    
+    // Every container among these items, at any depth
+    private static void collectContainers(Item[] items, List<Container> into) {
+        for (Item item : items) {
+            if (item instanceof Container) {
+                into.add((Container) item);
+                collectContainers(((Container) item).getContents(), into);
+            }
+        }
+    }
+    
+    /**
+     * Generate a width x height grid world for testing the solver. A wall
+     * splits the grid and its only doorway is locked, further exits may be
+     * locked too, a one-way chute leads back over the wall, and the treasure
+     * is in the far corner. Leaving the first key beyond the wall and taking
+     * the chute strands the player. The same seed always generates the same
+     * world. Needs a width of at least 2 and at least one door.
+     */
+    public static GameWorld generate(int width, int height, int doors, long seed) {
+        GameWorld world = new GameWorld("room_0_0", Balance.STANDARD);
+        Random random = new Random(seed);
+        Location[][] grid = new Location[width][height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                String id = "room_" + x + "_" + y;
+                grid[x][y] = new Location(id, "Room " + x + "," + y, "A plain room.");
+                world.locations.put(id, grid[x][y]);
+            }
+        }
+        
+        // A wall down the middle with one locked doorway; its key starts on the near side
+        int wall = width / 2;
+        int doorway = random.nextInt(height);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (x + 1 < width && (x + 1 != wall || y == doorway)) {
+                    grid[x][y].addConnection("east", grid[x + 1][y]);
+                    grid[x + 1][y].addConnection("west", grid[x][y]);
+                }
+                if (y + 1 < height) {
+                    grid[x][y].addConnection("south", grid[x][y + 1]);
+                    grid[x][y + 1].addConnection("north", grid[x][y]);
+                }
+            }
+        }
+        
+        world.rules.guard(grid[wall - 1][doorway].getId(), "east")
+            .requires(GameRules.hasItem("key0"))
+            .onFail("The door is locked.", MessageSink.Tone.ERROR);
+        grid[random.nextInt(wall)][random.nextInt(height)].addItem(new Item("key0", "A small key", true));
+        
+        // More locked doors on random exits, each opened by a key lying somewhere
+        for (int i = 1; i < doors; i++) {
+            String key = "key" + i;
+            Location room = grid[random.nextInt(width)][random.nextInt(height)];
+            List<String> directions = new ArrayList<>(room.getAvailableDirections());
+            Collections.sort(directions);
+            String direction = directions.get(random.nextInt(directions.size()));
+            world.rules.guard(room.getId(), direction)
+                .requires(GameRules.hasItem(key))
+                .onFail("The door is locked.", MessageSink.Tone.ERROR);
+            grid[random.nextInt(width)][random.nextInt(height)].addItem(new Item(key, "A small key", true));
+        }
+        
+        // A chute on the far side drops the player back over the wall
+        Location top = grid[wall + random.nextInt(width - wall)][random.nextInt(height)];
+        top.addConnection("down", grid[random.nextInt(wall)][random.nextInt(height)]);
+        
+        Location corner = grid[width - 1][height - 1];
+        corner.addItem(new Item("treasure", "Piles of gold", false));
+        world.rules.trigger(corner.getId()).onPass(GameRules.win());
+        world.build();
+        return world;
+    }
+    
+    /**
+     * Create all game locations
+     */
+    private void createLocations() {
+        // Forest (Starting location)
+        locations.put("forest", new Location("forest", "Mysterious Forest",
+            "You find yourself in a dark, mysterious forest. Ancient trees tower above you, " +
+            "their branches creating a canopy that blocks most of the sunlight. Strange sounds " +
+            "echo from the depths of the woods."));
+        
+        // Village
+        locations.put("village", new Location("village", "Abandoned Village",
+            "Before you lies an abandoned village. The houses are in ruins, with broken windows " +
+            "and doors hanging off their hinges. Weeds grow through the cobblestone streets. " +
+            "Despite its desolate appearance, you sense that valuable items might be hidden here."));
+        
+        // Cave
+        locations.put("cave", new Location("cave", "Dark Cave",
+            "You enter a damp, dark cave. Water drips from stalactites above, creating echoing " +
+            "sounds throughout the cavern. The air is cold and musty. Deep within the shadows, " +
+            "you can make out the glint of something metallic."));
+        
+        // Tower
+        locations.put("tower", new Location("tower", "Ancient Tower",
+            "An imposing stone tower rises before you. Its walls are covered in mysterious runes " +
+            "that seem to glow faintly in the darkness. A heavy wooden door blocks the entrance, " +
+            "secured with an ornate lock."));
+        
+        // Tower Interior
+        locations.put("tower_inside", new Location("tower_inside", "Tower Interior",
+            "Inside the tower, mystical energy fills the air. Ancient books and scrolls line the " +
+            "walls, and a glowing crystal sits atop a pedestal in the center of the room. This " +
+            "appears to be the lair of a powerful wizard!"));
+        
+        // Dragon's Lair
+        locations.put("dragon_lair", new Location("dragon_lair", "Dragon's Lair",
+            "You've entered the lair of an ancient dragon! The cavern is filled with piles of " +
+            "gold and precious gems. In the center, a massive dragon sleeps on a bed of treasure. " +
+            "One wrong move could wake the beast..."));
+        
+        // Treasure Room
+        locations.put("treasure_room", new Location("treasure_room", "Hidden Treasure Room",
+            "You've discovered a hidden treasure room! Chests overflowing with gold and jewels " +
+            "surround you. Ancient artifacts and magical items gleam in the torchlight. You've " +
+            "found the legendary treasure!"));
+    }
+    
+    /**
+     * Create all game items and place them in locations
+     */
+    private void createItems() {
+        // Forest items
+        Item stick = new Item("stick", "A sturdy wooden stick", true);
+        locations.get("forest").addItem(stick);
+        
+        // Village items
+        Item key = new Item("key", "An ornate golden key with mystical engravings", true, true,
+            "The key glows briefly as you hold it. It seems to resonate with magical energy.");
+        Item potion = new Item("potion", "A small bottle containing a red healing potion", true, true,
+            "You drink the potion and feel your wounds healing. (+25 health)");
+        Container bag = new Container("bag", "A leather bag for carrying things", true);
+        locations.get("village").addItem(key);
+        locations.get("village").addItem(potion);
+        locations.get("village").addItem(bag);
+        
+        // Cave items
+        Item sword = new Item("sword", "A sharp steel sword with intricate engravings", true, true,
+            "You raise the sword, feeling its balanced weight. You're ready for battle!");
+        Item torch = new Item("torch", "A burning torch that provides light", true, true,
+            "The torch illuminates the dark corners around you.");
+        locations.get("cave").addItem(sword);
+        locations.get("cave").addItem(torch);
+        
+        // Tower items
+        Item spellbook = new Item("spellbook", "An ancient book of powerful spells", true, true,
+            "You flip through the pages, learning powerful magic spells!");
+        Container chest = new Container("chest", "An iron-bound chest, its lid thrown open", false);
+        Container pouch = new Container("pouch", "A small velvet pouch", true);
+        pouch.add(new Item("coin", "An old silver coin", true));
+        chest.add(new Item("gem", "A glittering blue gem", true));
+        chest.add(pouch);
+        locations.get("tower_inside").addItem(spellbook);
+        locations.get("tower_inside").addItem(chest);
+        
+        // Non-takeable items
+        Item door = new Item("door", "A heavy wooden door with an ornate lock", false);
+        locations.get("tower").addItem(door);
+        
+        Item dragon = new Item("dragon", "A massive sleeping dragon", false);
+        locations.get("dragon_lair").addItem(dragon);
+        
+        Container hoard = new Container("hoard", "A heap of the dragon's plunder", false);
+        hoard.add(new Item("gold", "A heavy gold ingot", true));
+        hoard.add(new Item("crown", "A jewelled crown", true));
+        locations.get("dragon_lair").addItem(hoard);
+        
+        Item treasure = new Item("treasure", "Piles of gold, gems, and precious artifacts", false);
+        locations.get("treasure_room").addItem(treasure);
+    }
+    
+    /**
+     * Connect locations to create the game map
+     */
+    private void connectLocations() {
+        Location forest = locations.get("forest");
+        Location village = locations.get("village");
+        Location cave = locations.get("cave");
+        Location tower = locations.get("tower");
+        Location towerInside = locations.get("tower_inside");
+        Location dragonLair = locations.get("dragon_lair");
+        Location treasureRoom = locations.get("treasure_room");
+        
+        // Forest connections
+        forest.addConnection("north", village);
+        forest.addConnection("east", cave);
+        forest.addConnection("west", tower);
+        
+        // Village connections
+        village.addConnection("south", forest);
+        village.addConnection("east", dragonLair);
+        
+        // Cave connections
+        cave.addConnection("west", forest);
+        cave.addConnection("north", treasureRoom);
+        
+        // Tower connections
+        tower.addConnection("east", forest);
+        tower.addConnection("in", towerInside);
+        
+        // Tower inside connections
+        towerInside.addConnection("out", tower);
+        
+        // Dragon's lair connections
+        dragonLair.addConnection("west", village);
+        
+        // Treasure room connections
+        treasureRoom.addConnection("south", cave);
+    }
+    
+    /**
+     * Declare the guarded exits and room triggers
+     */
+    private void createRules() {
+        // The tower door needs the key
+        rules.guard("tower", "in")
+            .requires(GameRules.hasItem("key"))
+            .onPass("You use the golden key to unlock the tower door...", MessageSink.Tone.STORY)
+            .onEnter("The door creaks open, revealing the tower's mystical interior!", MessageSink.Tone.SUCCESS)
+            .onFail("The tower door is locked. You need a key to enter.", MessageSink.Tone.ERROR);
+        
+        // Nobody enters the dragon's lair unarmed
+        rules.guard("village", "east")
+            .onApproach("As you approach the dragon's lair, you hear the sound of deep breathing...", MessageSink.Tone.STORY)
+            .requires(GameRules.hasItem("sword"))
+            .onPass("Fortunately, you have a sword to defend yourself!", MessageSink.Tone.SUCCESS)
+            .onFail("Without a weapon, it would be suicide to enter. You need a sword!", MessageSink.Tone.ERROR);
+        
+        // Dragon encounter
+        rules.trigger("dragon_lair")
+            .when(GameRules.roomHas("dragon"))
+            .onApproach("\nSUDDENLY, THE DRAGON AWAKENS!", MessageSink.Tone.ERROR)
+            .onApproach("The massive beast rears its head and breathes fire in your direction!", MessageSink.Tone.STORY)
+            .requires(GameRules.hasItem("sword"))
+            .onPass("You quickly draw your sword and prepare for battle!", MessageSink.Tone.SUCCESS)
+            .onPass("After an epic fight, you manage to defeat the dragon!", MessageSink.Tone.SUCCESS)
+            .onPass("The dragon collapses, leaving behind a path to its treasure hoard.", MessageSink.Tone.STORY)
+            .onPass(GameRules.spawnItem("dragon gold", "A bag of precious dragon gold"))
+            .onPass(GameRules.defeat("dragon", DRAGON_RESPAWN_TICKS))
+            .onPass(GameRules.damage(balance.getFightMin(), balance.getFightMax(),
+                "The dragon's claws rake you as it falls! (-%d health)"))
+            .onPass(GameRules.ifSlain("You have been slain by the dragon!"))
+            .onFail("Without a weapon, you cannot defend yourself!", MessageSink.Tone.ERROR)
+            .onFail(GameRules.damage(balance.getBreathMin(), balance.getBreathMax(),
+                "The dragon's flames sear your flesh! (-%d health)"))
+            .onFail(GameRules.ifSlain("You have been slain by the dragon!"));
+        
+        // Finding the treasure wins the game
+        rules.trigger("treasure_room")
+            .onPass("\n★★★ CONGRATULATIONS! ★★★", MessageSink.Tone.ACCENT)
+            .onPass("You have discovered the legendary treasure!", MessageSink.Tone.SUCCESS)
+            .onPass("The room is filled with unimaginable riches!", MessageSink.Tone.STORY)
+            .onPass(GameRules.win());
+    }
+    
+    /**
+     * Place the wandering monsters
+     */
+    private void spawnMonsters() {
+        monsters.spawn("wolf", graph.indexOf(locations.get("village")), 20, 5, 30);
+        monsters.spawn("bat", graph.indexOf(locations.get("cave")), 8, 2, 50);
+        for (int monster = 0; monster < monsters.size(); monster++) {
+            names.add(monsters.getKind(monster));
+        }
+    }
+    
+    /**
+     * Advance the world by one tick and report any monster attacks on the player
+     */
+    public void tick(Player player, MessageSink out) {
+        ticks++;
+        effects.advance();
+        Monsters.TickResult result = monsters.tick(graph.indexOf(player.getCurrentLocation()));
+        if (result.getAttackers() == 0 || !player.isAlive()) {
+            return;
+        }
+        
+        player.takeDamage(result.getDamage());
+        if (result.getAttackers() == 1) {
+            out.send("The " + monsters.getKind(result.getFirstAttacker()) + " attacks you! (-" +
+                result.getDamage() + " health)", MessageSink.Tone.ERROR);
+        } else {
+            out.send(result.getAttackers() + " monsters attack you! (-" + result.getDamage() + " health)",
+                MessageSink.Tone.ERROR);
+        }
+        if (!player.isAlive()) {
+            out.send("You have been overwhelmed by monsters!", MessageSink.Tone.ERROR);
+        }
+    }
+    
+    /**
+     * Player attacks a monster in the current room
+     */
+    public void attack(Player player, String target, MessageSink out) {
+        int monster = monsters.findInRoom(graph.indexOf(player.getCurrentLocation()), target);
+        if (monster < 0) {
+            out.send("There's no " + target + " here to fight.", MessageSink.Tone.ERROR);
+            return;
+        }
+        
+        int damage = player.hasItem("sword")
+            ? player.roll(balance.getSwordMin(), balance.getSwordMax())
+            : player.roll(balance.getFistMin(), balance.getFistMax());
+        int remaining = monsters.damage(monster, damage);
+        if (remaining == 0) {
+            out.send("You slay the " + target + "!", MessageSink.Tone.SUCCESS);
+        } else {
+            out.send("You hit the " + target + ". (" + remaining + "/" +
+                monsters.getMaxHealth(monster) + " health left)", MessageSink.Tone.STORY);
+        }
+    }
+    
+    /**
+     * Describe the monsters in a location, or return an empty string
+     */
+    public String describeMonsters(Location location) {
+        List<Integer> present = monsters.inRoom(graph.indexOf(location));
+        if (present.isEmpty()) {
+            return "";
+        }
+        
+        StringBuilder sb = new StringBuilder("Monsters here: ");
+        for (int i = 0; i < present.size(); i++) {
+            int monster = present.get(i);
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(monsters.getKind(monster)).append(" (")
+                .append(monsters.getHealth(monster)).append("/")
+                .append(monsters.getMaxHealth(monster)).append(")");
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Whether the player can currently refer to a name: an exit, an item in
+     * the room or inventory at any depth, or a monster in the room
+     */
+    public boolean inScope(Player player, String name) {
+        Location current = player.getCurrentLocation();
+        return current.getConnection(name) != null || findInScope(player, name) != null
+            || monsters.findInRoom(graph.indexOf(current), name) >= 0;
+    }
+    
+    /**
+     * Names in scope starting with a prefix, for autocomplete. The world
+     * keeps one index of every name and filters it by scope, so nothing is
+     * rebuilt as the player moves or items change hands.
+     */
+    public List<String> completeInScope(Player player, String prefix, int limit) {
+        return names.complete(prefix, limit, name -> inScope(player, name));
+    }
+    
+    // Names in scope within maxDistance edits of a word, closest first
+    public List<String> suggestInScope(Player player, String word, int maxDistance, int limit) {
+        return names.suggest(word, maxDistance, limit, name -> inScope(player, name));
+    }
+    
+    /**
+     * An item the player can refer to by name: loose in the room, carried,
+     * or inside a container in either, in that order. Null if there is none.
+     */
+    public Item findInScope(Player player, String itemName) {
+        Location current = player.getCurrentLocation();
+        Item item = current.getItem(itemName);
+        if (item == null) {
+            item = player.getInventoryItem(itemName);
+        }
+        Container holder = item == null ? current.findHolder(itemName) : null;
+        if (item == null && holder == null) {
+            holder = player.findHolder(itemName);
+        }
+        return holder != null ? holder.find(itemName) : item;
+    }
+    
+    /**
+     * Take an item from the room: "all" takes everything that can be
+     * carried, "<item> from <container>" takes from a container in scope,
+     * and an item not lying loose is looked for in the room's containers
+     */
+    public void take(Player player, String itemName, MessageSink out) {
+        if (itemName.isEmpty()) {
+            out.send("Take what?", MessageSink.Tone.ERROR);
+            return;
+        }
+        if (itemName.equals("all")) {
+            takeAll(player, out);
+            return;
+        }
+        int from = itemName.indexOf(" from ");
+        if (from > 0) {
+            takeFrom(player, itemName.substring(0, from).trim(), itemName.substring(from + 6).trim(), out);
+            return;
+        }
+        
+        Location current = player.getCurrentLocation();
+        Item item = current.getItem(itemName);
+        
+        if (item == null) {
+            // Not lying loose; perhaps it is inside something here
+            Container holder = current.findHolder(itemName);
+            if (holder != null) {
+                takeFrom(player, holder, itemName, out);
+                return;
+            }
+            out.send("There's no " + itemName + " here." + didYouMean(player, itemName), MessageSink.Tone.ERROR);
+        } else if (!item.canTake()) {
+            out.send("You can't take the " + itemName + ".", MessageSink.Tone.ERROR);
+        } else if (!current.claimItem(item)) {
+            out.send("Someone else grabs the " + itemName + " first.", MessageSink.Tone.ERROR);
+        } else {
+            player.addItem(item);
+            broadcaster.publish(current, player, player.getName() + " takes the " + item.getName() + ".");
+            out.send("You take the " + itemName + ".", MessageSink.Tone.SUCCESS);
+        }
+    }
+    
+    // Take every item in the room that can be carried
+    private void takeAll(Player player, MessageSink out) {
+        int taken = 0;
+        for (Item item : player.getCurrentLocation().getItems()) {
+            if (item.canTake()) {
+                take(player, item.getName(), out);
+                taken++;
+            }
+        }
+        if (taken == 0) {
+            out.send("There's nothing here to take.", MessageSink.Tone.ERROR);
+        }
+    }
+    
+    // Take an item out of a container named by the player
+    private void takeFrom(Player player, String itemName, String containerName, MessageSink out) {
+        Item item = findInScope(player, containerName);
+        if (item == null) {
+            out.send("You don't see a " + containerName + " here.", MessageSink.Tone.ERROR);
+        } else if (!(item instanceof Container)) {
+            out.send("You can't take things from the " + item.getName() + ".", MessageSink.Tone.ERROR);
+        } else {
+            takeFrom(player, (Container) item, itemName, out);
+        }
+    }
+    
+    // Take an item out of a container in the room or inventory
+    private void takeFrom(Player player, Container container, String itemName, MessageSink out) {
+        Item item = container.find(itemName);
+        if (item == null) {
+            out.send("There's no " + itemName + " in the " + container.getName() + ".", MessageSink.Tone.ERROR);
+        } else if (!item.canTake()) {
+            out.send("You can't take the " + itemName + ".", MessageSink.Tone.ERROR);
+        } else if (!container.claim(item)) {
+            out.send("Someone else grabs the " + itemName + " first.", MessageSink.Tone.ERROR);
+        } else {
+            player.addItem(item);
+            broadcaster.publish(player.getCurrentLocation(), player,
+                player.getName() + " takes the " + item.getName() + " from the " + container.getName() + ".");
+            out.send("You take the " + item.getName() + " from the " + container.getPath() + ".", MessageSink.Tone.SUCCESS);
+        }
+    }
+    
+    /**
+     * Put a carried item in a container in scope: "<item> in <container>"
+     * or "<item> into <container>"
+     */
+    public void put(Player player, String argument, MessageSink out) {
+        int in = argument.indexOf(" into ");
+        int skip = 6;
+        if (in < 0) {
+            in = argument.indexOf(" in ");
+            skip = 4;
+        }
+        if (in <= 0) {
+            out.send("Put what where? Try: put <item> in <container>", MessageSink.Tone.ERROR);
+            return;
+        }
+        String itemName = argument.substring(0, in).trim();
+        String containerName = argument.substring(in + skip).trim();
+        
+        Item item = player.getInventoryItem(itemName);
+        Item target = findInScope(player, containerName);
+        if (item == null) {
+            out.send("You don't have a " + itemName + ".", MessageSink.Tone.ERROR);
+        } else if (target == null) {
+            out.send("You don't see a " + containerName + " here.", MessageSink.Tone.ERROR);
+        } else if (!(target instanceof Container)) {
+            out.send("You can't put things in the " + target.getName() + ".", MessageSink.Tone.ERROR);
+        } else if (((Container) target).isWithin(item)) {
+            out.send("You can't put the " + item.getName() + " inside itself.", MessageSink.Tone.ERROR);
+        } else {
+            Container container = (Container) target;
+            player.removeItem(item);
+            container.add(item);
+            broadcaster.publish(player.getCurrentLocation(), player,
+                player.getName() + " puts the " + item.getName() + " in the " + container.getName() + ".");
+            out.send("You put the " + item.getName() + " in the " + container.getPath() + ".", MessageSink.Tone.SUCCESS);
+        }
+    }
+    
+    /**
+     * List what is inside a container in scope
+     */
+    public void lookIn(Player player, String containerName, MessageSink out) {
+        Item item = findInScope(player, containerName);
+        if (item == null) {
+            out.send("You don't see a " + containerName + " here.", MessageSink.Tone.ERROR);
+        } else if (!(item instanceof Container)) {
+            out.send("You can't look inside the " + item.getName() + ".", MessageSink.Tone.ERROR);
+        } else if (((Container) item).isEmpty()) {
+            out.send("The " + item.getName() + " is empty.");
+        } else {
+            out.send("The " + item.getName() + " holds: " + ((Container) item).describeContents() + ".");
+        }
+    }
+    
+    // A hint naming the closest thing in scope, or an empty string
+    private String didYouMean(Player player, String name) {
+        String guess = names.closest(name, candidate -> inScope(player, candidate));
+        return guess != null ? " Did you mean '" + guess + "'?" : "";
+    }
+    
+    // Getters
+    public Location getStartLocation() {
+        return locations.get(startId);
+    }
+    
+    public Location getLocation(String id) {
+        return locations.get(id);
+    }
+    
+    public Map<String, Location> getLocations() {
+        return locations;
+    }
+    
+    public GameRules getRules() {
+        return rules;
+    }
+    
+    public RoomGraph getGraph() {
+        return graph;
+    }
+    
+    public Balance getBalance() {
+        return balance;
+    }
+    
+    public Monsters getMonsters() {
+        return monsters;
+    }
+    
+    public TimingWheel getEffects() {
+        return effects;
+    }
+    
+    public RoomBroadcaster getBroadcaster() {
+        return broadcaster;
+    }
+    
+    // Every container in the world, whether in a room, carried or nested
+    public List<Container> getContainers() {
+        return containers;
+    }
+    
+    public long getTicks() {
+        return ticks;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,138 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Undo and redo for one player's turns
+ * After each turn the player's state and the contents of every room are
+ * recorded, along with the contents of every container. All are persistent
+ * structures: the inventory is a PersistentVector and the items of each room
+ * and container are an immutable array, so a
+ * snapshot only holds new nodes for the rooms and slots that changed and
+ * shares the rest with the turn before. History is unlimited.
+ *
+ * Undo puts the rooms back as well, so in a world shared with other players
+ * it also takes back their changes to those rooms. Timed effects the player
+ * started (a potion's healing, a respawn) are part of the player's state and
+ * are rewound with it; monsters and the world clock are not.
+ */
+public class History {
+    private final Location[] rooms;
+    private final Container[] containers;
+    private final Player player;
+    private final Deque<Snapshot> past;
+    private final Deque<Snapshot> future;
+    
+    public History(GameWorld world, Player player) {
+        RoomGraph graph = world.getGraph();
+        this.rooms = new Location[graph.size()];
+        for (int r = 0; r < rooms.length; r++) {
+            rooms[r] = graph.getRoom(r);
+        }
+        this.containers = world.getContainers().toArray(new Container[0]);
+        this.player = player;
+        this.past = new ArrayDeque<>();
+        this.future = new ArrayDeque<>();
+        record();
+    }
+    
+    /**
+     * The state after one turn
+     */
+    private static final class Snapshot {
+        private final Player.Memento player;
+        // Room contents, then container contents
+        private final PersistentVector<Item[]> rooms;
+        
+        private Snapshot(Player.Memento player, PersistentVector<Item[]> rooms) {
+            this.player = player;
+            this.rooms = rooms;
+        }
+    }
+    
+    /**
+     * Record the current state as a new turn, unless nothing has changed.
+     * Recording a new turn discards anything that could have been redone.
+     */
+    public void record() {
+        Snapshot last = past.peek();
+        PersistentVector<Item[]> contents;
+        if (last == null) {
+            contents = PersistentVector.empty();
+            for (Location room : rooms) {
+                contents = contents.append(room.getItemSnapshot());
+            }
+            for (Container container : containers) {
+                contents = contents.append(container.getContents());
+            }
+        } else {
+            // Rooms that did not change keep the very same array, so only changed rooms are copied in
+            contents = last.rooms;
+            for (int r = 0; r < rooms.length; r++) {
+                contents = contents.set(r, rooms[r].getItemSnapshot());
+            }
+            for (int c = 0; c < containers.length; c++) {
+                contents = contents.set(rooms.length + c, containers[c].getContents());
+            }
+            if (contents == last.rooms && last.player.matches(player)) {
+                return;
+            }
+        }
+        past.push(new Snapshot(player.save(), contents));
+        future.clear();
+    }
+    
+    /**
+     * Go back to the state before the last turn. Returns false if there is
+     * nothing to undo.
+     */
+    public boolean undo() {
+        if (past.size() < 2) {
+            return false;
+        }
+        future.push(past.pop());
+        restore(past.peek());
+        return true;
+    }
+    
+    /**
+     * Replay a turn that was undone. Returns false if there is nothing to redo.
+     */
+    public boolean redo() {
+        if (future.isEmpty()) {
+            return false;
+        }
+        past.push(future.pop());
+        restore(past.peek());
+        return true;
+    }
+    
+    private void restore(Snapshot snapshot) {
+        // A container may have changed rooms' indexes as well as its own, so
+        // when any container changed every room is reindexed
+        boolean containerChanged = false;
+        for (int c = 0; c < containers.length; c++) {
+            Item[] items = snapshot.rooms.get(rooms.length + c);
+            if (containers[c].getContents() != items) {
+                containers[c].restoreContents(items);
+                containerChanged = true;
+            }
+        }
+        for (int r = 0; r < rooms.length; r++) {
+            Item[] items = snapshot.rooms.get(r);
+            if (containerChanged || rooms[r].getItemSnapshot() != items) {
+                rooms[r].restoreItems(items);
+            }
+        }
+        player.restore(snapshot.player);
+    }
+    
+    // Turns that can be undone
+    public int undoDepth() {
+        return past.size() - 1;
+    }
+    
+    // Turns that can be redone
+    public int redoDepth() {
+        return future.size();
+    }
+}
\ No newline at end of file
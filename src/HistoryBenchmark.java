@@ -0,0 +1,94 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.*;
+
+/**
+ * Benchmark for undo history
+ * Plays turns on a large generated world with a player carrying a large
+ * inventory, recording history after every turn, and measures the heap each
+ * turn keeps alive. The same turns are then kept as full copies of the
+ * inventory and every room for comparison.
+ *
+ * Usage: java HistoryBenchmark [items] [turns] [size]
+ */
+public class HistoryBenchmark {
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+    private static final String[] DIRECTIONS = {"north", "east", "south", "west"};
+    
+    public static void main(String[] args) {
+        int itemCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int turns = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        int size = args.length > 2 ? Integer.parseInt(args[2]) : 300;
+        int copyTurns = Math.min(turns, 100);
+        
+        GameWorld world = GameWorld.generate(size, size, 1, 42);
+        Player player = new Player("bench", world.getStartLocation());
+        for (int i = 0; i < itemCount; i++) {
+            player.addItem(new Item("pebble" + i, "A smooth pebble", true));
+        }
+        System.out.println("World: " + world.getGraph().size() + " rooms, " + itemCount +
+            " items carried, " + turns + " turns");
+        
+        long before = usedHeap();
+        long start = System.nanoTime();
+        History history = new History(world, player);
+        Random random = new Random(7);
+        for (int turn = 0; turn < turns; turn++) {
+            playTurn(player, random);
+            history.record();
+        }
+        long recordNanos = System.nanoTime() - start;
+        long persistent = usedHeap() - before;
+        System.out.printf("persistent  %,10d bytes/turn, %.3f ms/turn (%d turns kept)%n",
+            persistent / turns, recordNanos / 1e6 / turns, history.undoDepth());
+        
+        // Undo everything and redo it again, to show both directions stay cheap
+        start = System.nanoTime();
+        while (history.undo()) {
+        }
+        while (history.redo()) {
+        }
+        System.out.printf("undo+redo   %.3f ms/turn%n", (System.nanoTime() - start) / 1e6 / turns / 2);
+        history = null;
+        
+        before = usedHeap();
+        List<Object[]> copies = new ArrayList<>();
+        RoomGraph graph = world.getGraph();
+        for (int turn = 0; turn < copyTurns; turn++) {
+            playTurn(player, random);
+            Item[][] rooms = new Item[graph.size()][];
+            for (int r = 0; r < rooms.length; r++) {
+                rooms[r] = graph.getRoom(r).getItemSnapshot().clone();
+            }
+            copies.add(new Object[] {new ArrayList<>(player.getInventory()), rooms});
+        }
+        long copied = usedHeap() - before;
+        System.out.printf("full copy   %,10d bytes/turn (%d turns kept)%n", copied / copyTurns, copies.size());
+        System.out.printf("saving      %.0fx less memory per turn%n",
+            (double) (copied / copyTurns) / Math.max(1, persistent / turns));
+    }
+    
+    // Drop or pick up a pebble, then try to move somewhere
+    private static void playTurn(Player player, Random random) {
+        Location here = player.getCurrentLocation();
+        List<Item> carried = player.getInventory();
+        if (!here.getItems().isEmpty() && random.nextBoolean()) {
+            Item item = here.getItems().get(0);
+            if (here.removeItem(item)) {
+                player.addItem(item);
+            }
+        } else if (!carried.isEmpty()) {
+            Item item = carried.get(random.nextInt(carried.size()));
+            player.removeItem(item);
+            here.addItem(item);
+        }
+        player.move(DIRECTIONS[random.nextInt(DIRECTIONS.length)]);
+    }
+    
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+}
\ No newline at end of file
@@ -1,62 +1,75 @@
 /**
  * Represents an item in the adventure game
  * Items can be collected, used, and have various properties
+ * An item's properties live in its shared ItemType, so each item costs only
+ * an object header and one reference.
  */
 public class Item {
-    private String name;
-    private String description;
-    private boolean canTake;
-    private boolean canUse;
-    private String useMessage;
+    private final ItemType type;
+    
+    public Item(ItemType type) {
+        this.type = type;
+    }
     
     public Item(String name, String description, boolean canTake, boolean canUse, String useMessage) {
-        this.name = name;
-        this.description = description;
-        this.canTake = canTake;
-        this.canUse = canUse;
-        this.useMessage = useMessage;
+        this(ItemType.of(name, description, canTake, canUse, useMessage));
     }
     
     public Item(String name, String description, boolean canTake) {
-        this(name, description, canTake, false, "You can't use that.");
+        this(ItemType.of(name, description, canTake));
     }
     
     // Getters
     public String getName() {
-        return name;
+        return type.getName();
     }
     
     public String getDescription() {
-        return description;
+        return type.getDescription();
     }
     
     public boolean canTake() {
-        return canTake;
+        return type.canTake();
     }
     
     public boolean canUse() {
-        return canUse;
+        return type.canUse();
     }
     
     public String getUseMessage() {
-        return useMessage;
+        return type.getUseMessage();
+    }
+    
+    public ItemType getType() {
+        return type;
+    }
+    
+    // The name in lower case
+    public String getKey() {
+        return type.getKey();
+    }
+    
+    // Whether a typed name refers to this item, ignoring case
+    public boolean matches(String itemName) {
+        return type.matches(itemName);
     }
     
     @Override
     public String toString() {
-        return name;
+        return type.getName();
     }
     
+    // Items with the same name are interchangeable
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
         if (obj == null || getClass() != obj.getClass()) return false;
-        Item item = (Item) obj;
-        return name.equalsIgnoreCase(item.name);
+        ItemType other = ((Item) obj).type;
+        return type == other || type.getKey().equals(other.getKey());
     }
     
     @Override
     public int hashCode() {
-        return name.toLowerCase().hashCode();
+        return type.keyHash();
     }
 }
\ No newline at end of file
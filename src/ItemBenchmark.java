@@ -0,0 +1,88 @@
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+/**
+ * Benchmark for item instances
+ * Creates a large number of items from a handful of shared definitions,
+ * measures the heap each one costs, then hashes and compares them the way a
+ * HashSet or HashMap would and counts the bytes that allocates, as well as
+ * the bytes allocated looking up definitions that already exist.
+ *
+ * Usage: java ItemBenchmark [items]
+ */
+public class ItemBenchmark {
+    private static final String[] NAMES = {"stick", "Key", "potion", "Sword", "torch", "spellbook", "coin", "gem"};
+    
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        
+        long before = usedHeap();
+        Item[] items = new Item[count];
+        for (int i = 0; i < count; i++) {
+            String name = NAMES[i % NAMES.length];
+            items[i] = new Item(name, "A " + name.toLowerCase(), true);
+        }
+        long bytes = usedHeap() - before - (16 + 4L * count);
+        System.out.printf("%,d items from %d definitions: %.1f bytes/item (plus the array slot)%n",
+            count, ItemType.count(), (double) bytes / count);
+        
+        // Warm up, then measure what hashing and comparing allocate
+        long checksum = hashAll(items);
+        long allocatedBefore = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        long start = System.nanoTime();
+        for (int round = 0; round < 5; round++) {
+            checksum += hashAll(items);
+        }
+        long nanos = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore;
+        System.out.printf("hash+equals: %.2f ns/item, %d bytes allocated over %,d calls (checksum %d)%n",
+            nanos / 5.0 / count, allocated, 5L * count, checksum);
+        
+        // Looking up an existing definition should allocate nothing
+        String[] descriptions = new String[NAMES.length];
+        for (int i = 0; i < NAMES.length; i++) {
+            descriptions[i] = "A " + NAMES[i].toLowerCase();
+        }
+        checksum += lookUpAll(count, descriptions);
+        allocatedBefore = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        start = System.nanoTime();
+        checksum += lookUpAll(count, descriptions);
+        nanos = System.nanoTime() - start;
+        allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore;
+        System.out.printf("ItemType.of: %.2f ns/lookup, %d bytes allocated over %,d lookups (checksum %d)%n",
+            (double) nanos / count, allocated, count, checksum);
+        
+        Set<Item> distinct = new HashSet<>(Arrays.asList(items));
+        System.out.println("distinct by name: " + distinct.size());
+    }
+    
+    private static long hashAll(Item[] items) {
+        long sum = 0;
+        Item first = items[0];
+        for (Item item : items) {
+            sum += item.hashCode();
+            if (item.equals(first)) {
+                sum++;
+            }
+        }
+        return sum;
+    }
+    
+    private static long lookUpAll(int count, String[] descriptions) {
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            int n = i % NAMES.length;
+            sum += ItemType.of(NAMES[n], descriptions[n], true).keyHash();
+        }
+        return sum;
+    }
+    
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
\ No newline at end of file
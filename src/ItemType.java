@@ -0,0 +1,145 @@
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared, immutable definition of a kind of item
+ * Every item with the same name, description and flags points to one
+ * ItemType, so items themselves carry almost nothing. The case-folded name
+ * and its hash are worked out once here, which lets items be compared and
+ * hashed without allocating.
+ * Definitions are kept by name, each name with the few definitions that share
+ * it, so finding an existing one allocates nothing. At most MAX_DEFINITIONS
+ * are kept; past that new definitions are handed out unshared, which costs
+ * memory but never correctness, since items compare by name.
+ */
+public final class ItemType {
+    private static final int MAX_DEFINITIONS = 1 << 16;
+    private static final ConcurrentHashMap<String, ItemType[]> DEFINITIONS = new ConcurrentHashMap<>();
+    private static final AtomicInteger COUNT = new AtomicInteger();
+    
+    private final String name;
+    private final String key;
+    private final String description;
+    private final boolean canTake;
+    private final boolean canUse;
+    private final String useMessage;
+    private final int hash;
+    
+    private ItemType(String name, String description, boolean canTake, boolean canUse, String useMessage) {
+        this.name = name;
+        this.key = name.toLowerCase();
+        this.description = description;
+        this.canTake = canTake;
+        this.canUse = canUse;
+        this.useMessage = useMessage;
+        this.hash = key.hashCode();
+    }
+    
+    /**
+     * The shared definition with these properties, created the first time
+     * it is asked for
+     */
+    public static ItemType of(String name, String description, boolean canTake, boolean canUse, String useMessage) {
+        ItemType existing = find(DEFINITIONS.get(name), description, canTake, canUse, useMessage);
+        if (existing != null) {
+            return existing;
+        }
+        if (COUNT.get() >= MAX_DEFINITIONS) {
+            return new ItemType(name, description, canTake, canUse, useMessage);
+        }
+        ItemType[] shared = DEFINITIONS.compute(name, (k, types) -> {
+            if (find(types, description, canTake, canUse, useMessage) != null) {
+                return types;
+            }
+            ItemType type = new ItemType(name, description, canTake, canUse, useMessage);
+            COUNT.incrementAndGet();
+            if (types == null) {
+                return new ItemType[] { type };
+            }
+            ItemType[] grown = Arrays.copyOf(types, types.length + 1);
+            grown[types.length] = type;
+            return grown;
+        });
+        return find(shared, description, canTake, canUse, useMessage);
+    }
+    
+    // The definition among those sharing a name with these other properties, or null
+    private static ItemType find(ItemType[] types, String description, boolean canTake, boolean canUse, String useMessage) {
+        if (types == null) {
+            return null;
+        }
+        for (ItemType type : types) {
+            if (type.canTake == canTake && type.canUse == canUse && type.description.equals(description) &&
+                Objects.equals(type.useMessage, useMessage)) {
+                return type;
+            }
+        }
+        return null;
+    }
+    
+    public static ItemType of(String name, String description, boolean canTake) {
+        return of(name, description, canTake, false, "You can't use that.");
+    }
+    
+    // Number of shared definitions created so far
+    public static int count() {
+        return COUNT.get();
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    // The name in lower case, used to compare items
+    public String getKey() {
+        return key;
+    }
+    
+    // Hash of the key, computed once
+    public int keyHash() {
+        return hash;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public boolean canTake() {
+        return canTake;
+    }
+    
+    public boolean canUse() {
+        return canUse;
+    }
+    
+    public String getUseMessage() {
+        return useMessage;
+    }
+    
+    // Whether a typed name refers to this kind of item, ignoring case
+    public boolean matches(String itemName) {
+        return key.equals(itemName) || name.equalsIgnoreCase(itemName);
+    }
+    
+    // Definitions are equal when every property is; used to share them
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof ItemType)) return false;
+        ItemType other = (ItemType) obj;
+        return canTake == other.canTake && canUse == other.canUse && name.equals(other.name) &&
+            description.equals(other.description) && Objects.equals(useMessage, other.useMessage);
+    }
+    
+    @Override
+    public int hashCode() {
+        return hash * 31 + description.hashCode();
+    }
+    
+    @Override
+    public String toString() {
+        return name;
+    }
+}
\ No newline at end of file
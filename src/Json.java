@@ -0,0 +1,249 @@
+import java.util.*;
+
+/**
+ * Minimal JSON support for the HTTP server
+ * Parses request bodies into maps, lists, strings, numbers, booleans and
+ * null, and quotes strings for the responses, which are written directly.
+ */
+public final class Json {
+    // Deeper documents are refused rather than overflowing the parser's stack
+    private static final int MAX_DEPTH = 64;
+    
+    private final String text;
+    private int pos;
+    private int depth;
+    
+    private Json(String text) {
+        this.text = text;
+    }
+    
+    /**
+     * Parse a JSON document. Objects become LinkedHashMaps, arrays
+     * ArrayLists and numbers Doubles.
+     */
+    public static Object parse(String text) {
+        Json parser = new Json(text);
+        Object value = parser.value();
+        parser.skipSpace();
+        if (parser.pos < text.length()) {
+            throw parser.error("Unexpected text after the value");
+        }
+        return value;
+    }
+    
+    /**
+     * A string as a JSON string literal, quotes included
+     */
+    public static String quote(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2);
+        quote(value, sb);
+        return sb.toString();
+    }
+    
+    public static void quote(String value, StringBuilder sb) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+    
+    private Object value() {
+        skipSpace();
+        if (pos >= text.length()) {
+            throw error("Unexpected end of input");
+        }
+        char c = text.charAt(pos);
+        switch (c) {
+            case '{':
+                enter();
+                Map<String, Object> map = object();
+                depth--;
+                return map;
+            case '[':
+                enter();
+                List<Object> list = array();
+                depth--;
+                return list;
+            case '"':
+                return string();
+            case 't':
+                return literal("true", Boolean.TRUE);
+            case 'f':
+                return literal("false", Boolean.FALSE);
+            case 'n':
+                return literal("null", null);
+            default:
+                return number();
+        }
+    }
+    
+    private void enter() {
+        if (++depth > MAX_DEPTH) {
+            throw error("Nested deeper than " + MAX_DEPTH + " levels");
+        }
+    }
+    
+    private Map<String, Object> object() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        pos++;
+        skipSpace();
+        if (peek() == '}') {
+            pos++;
+            return map;
+        }
+        while (true) {
+            skipSpace();
+            if (peek() != '"') {
+                throw error("Expected a property name");
+            }
+            String key = string();
+            skipSpace();
+            expect(':');
+            map.put(key, value());
+            skipSpace();
+            if (peek() == ',') {
+                pos++;
+            } else {
+                expect('}');
+                return map;
+            }
+        }
+    }
+    
+    private List<Object> array() {
+        List<Object> list = new ArrayList<>();
+        pos++;
+        skipSpace();
+        if (peek() == ']') {
+            pos++;
+            return list;
+        }
+        while (true) {
+            list.add(value());
+            skipSpace();
+            if (peek() == ',') {
+                pos++;
+            } else {
+                expect(']');
+                return list;
+            }
+        }
+    }
+    
+    private String string() {
+        StringBuilder sb = new StringBuilder();
+        pos++;
+        while (true) {
+            if (pos >= text.length()) {
+                throw error("Unterminated string");
+            }
+            char c = text.charAt(pos++);
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (pos >= text.length()) {
+                throw error("Unterminated string");
+            }
+            char escape = text.charAt(pos++);
+            switch (escape) {
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'u':
+                    if (pos + 4 > text.length()) {
+                        throw error("Bad unicode escape");
+                    }
+                    try {
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Bad unicode escape");
+                    }
+                    pos += 4;
+                    break;
+                default:
+                    sb.append(escape);
+            }
+        }
+    }
+    
+    private Double number() {
+        int start = pos;
+        while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) {
+            pos++;
+        }
+        try {
+            return Double.valueOf(text.substring(start, pos));
+        } catch (NumberFormatException e) {
+            throw error("Expected a value");
+        }
+    }
+    
+    private Object literal(String word, Object value) {
+        if (!text.startsWith(word, pos)) {
+            throw error("Expected a value");
+        }
+        pos += word.length();
+        return value;
+    }
+    
+    private void skipSpace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+    
+    private char peek() {
+        return pos < text.length() ? text.charAt(pos) : '\0';
+    }
+    
+    private void expect(char c) {
+        if (peek() != c) {
+            throw error("Expected '" + c + "'");
+        }
+        pos++;
+    }
+    
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + pos);
+    }
+}
\ No newline at end of file
@@ -1,24 +1,37 @@
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Represents a location in the adventure game
  * Locations have descriptions, items, and connections to other locations
  */
 public class Location {
+    private String id;
     private String name;
     private String description;
     private Map<String, Location> connections;
-    private List<Item> items;
-    private boolean visited;
+    private RoomItems items;
+    private final ContainerIndex containers;
+    private Set<Player> occupants;
+    private volatile boolean visited;
+    // The world's name index, told about every item that arrives here
+    private NameIndex names;
     
-    public Location(String name, String description) {
+    public Location(String id, String name, String description) {
+        this.id = id;
         this.name = name;
         this.description = description;
         this.connections = new HashMap<>();
-        this.items = new ArrayList<>();
+        this.items = new RoomItems();
+        this.containers = new ContainerIndex();
+        this.occupants = ConcurrentHashMap.newKeySet();
         this.visited = false;
     }
     
+    public Location(String name, String description) {
+        this(name, name, description);
+    }
+    
     // Add a connection to another location
     public void addConnection(String direction, Location location) {
         connections.put(direction.toLowerCase(), location);
@@ -26,22 +39,79 @@ public class Location {
     
     // Add an item to this location
     public void addItem(Item item) {
+        GameEvents.WorldMutation event = GameEvents.WorldMutation.start();
         items.add(item);
+        containers.addTop(item);
+        if (names != null) {
+            index(item);
+        }
+        event.finish("addItem", id, item.getName());
+    }
+    
+    // Keep the world's name index up to date as items arrive
+    void setNames(NameIndex names) {
+        this.names = names;
+    }
+    
+    private void index(Item item) {
+        names.add(item.getName());
+        if (item instanceof Container) {
+            for (Item inner : ((Container) item).getContents()) {
+                index(inner);
+            }
+        }
     }
     
-    // Remove an item from this location
+    // Remove an item from this location; a container must be this very one
     public boolean removeItem(Item item) {
-        return items.remove(item);
+        if (item instanceof Container) {
+            return claimItem(item);
+        }
+        GameEvents.WorldMutation event = GameEvents.WorldMutation.start();
+        boolean removed = items.remove(item);
+        event.finish("removeItem", id, item.getName());
+        return removed;
+    }
+    
+    /**
+     * Atomically claim this exact item for a player. Returns false if another
+     * player took it first, so an item can only ever end up in one inventory.
+     */
+    public boolean claimItem(Item item) {
+        GameEvents.WorldMutation event = GameEvents.WorldMutation.start();
+        boolean claimed = items.claim(item);
+        if (claimed) {
+            containers.removeTop(item);
+        }
+        event.finish("claimItem", id, item.getName());
+        return claimed;
+    }
+    
+    // Move an item from this location to another one
+    public boolean transferItem(Item item, Location destination) {
+        if (!claimItem(item)) {
+            return false;
+        }
+        destination.addItem(item);
+        return true;
     }
     
     // Get an item by name
     public Item getItem(String itemName) {
-        for (Item item : items) {
-            if (item.getName().equalsIgnoreCase(itemName)) {
-                return item;
-            }
-        }
-        return null;
+        return items.find(itemName);
+    }
+    
+    /**
+     * The container, at any depth, holding an item of this name, or null.
+     * One index lookup, without searching the containers.
+     */
+    public Container findHolder(String itemName) {
+        return containers.holderOf(itemName);
+    }
+    
+    // Names of the items inside containers here
+    public Set<String> getNestedNames() {
+        return containers.names();
     }
     
     // Check if location has an item
@@ -49,6 +119,37 @@ public class Location {
         return getItem(itemName) != null;
     }
     
+    // Presence index, kept up to date by Player as it moves
+    void enter(Player player) {
+        occupants.add(player);
+    }
+    
+    void leave(Player player) {
+        occupants.remove(player);
+    }
+    
+    // Players currently in this location
+    public Set<Player> getOccupants() {
+        return Collections.unmodifiableSet(occupants);
+    }
+    
+    /**
+     * Players in this location, and optionally in the locations next to it
+     */
+    public List<Player> getOccupants(boolean includeAdjacent) {
+        List<Player> found = new ArrayList<>(occupants);
+        if (includeAdjacent) {
+            Set<Location> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            seen.add(this);
+            for (Location next : connections.values()) {
+                if (seen.add(next)) {
+                    found.addAll(next.occupants);
+                }
+            }
+        }
+        return found;
+    }
+    
     // Get location in a direction
     public Location getConnection(String direction) {
         return connections.get(direction.toLowerCase());
@@ -61,12 +162,14 @@ public class Location {
     
     // Get the full description including items
     public String getFullDescription() {
+        GameEvents.DescriptionRender event = GameEvents.DescriptionRender.start();
         StringBuilder sb = new StringBuilder();
         sb.append(description);
         
-        if (!items.isEmpty()) {
+        Item[] visible = items.snapshot();
+        if (visible.length > 0) {
             sb.append("\n\nYou can see:");
-            for (Item item : items) {
+            for (Item item : visible) {
                 sb.append("\n- ").append(item.getName()).append(": ").append(item.getDescription());
             }
         }
@@ -76,10 +179,15 @@ public class Location {
             sb.append(String.join(", ", connections.keySet()));
         }
         
+        event.finish(id, sb.length());
         return sb.toString();
     }
     
     // Getters and setters
+    public String getId() {
+        return id;
+    }
+    
     public String getName() {
         return name;
     }
@@ -88,8 +196,22 @@ public class Location {
         return description;
     }
     
+    /**
+     * The items here as an immutable array. Unchanged rooms return the same
+     * array every time, so history snapshots can share it.
+     */
+    public Item[] getItemSnapshot() {
+        return items.snapshot();
+    }
+    
+    // Put back the items from an earlier snapshot
+    public void restoreItems(Item[] snapshot) {
+        items.restore(snapshot);
+        containers.rebuild(Arrays.asList(snapshot));
+    }
+    
     public List<Item> getItems() {
-        return new ArrayList<>(items);
+        return new ArrayList<>(Arrays.asList(items.snapshot()));
     }
     
     public boolean isVisited() {
@@ -0,0 +1,535 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Reports over archived game transcripts
+ * Reads transcripts as written by the console game (--transcript, or many of
+ * them concatenated) and reports how often each room is entered and by how
+ * many runs, which commands most often fail, and how far runs get on the way
+ * to the treasure. Files are memory-mapped and cut into chunks at the start
+ * of a run, so every chunk can be parsed on its own thread; lines are matched
+ * as bytes in place, with no String per line, and the per-chunk reports are
+ * merged at the end.
+ *
+ * Usage: java LogAnalyzer [--threads n] file-or-directory...
+ */
+public class LogAnalyzer {
+    private static final int CHUNK_BYTES = 32 << 20;
+    private static final int SEARCH_BYTES = 1 << 20;
+    // Longer commands are counted by their first MAX_KEY bytes
+    private static final int MAX_KEY = 256;
+    private static final int TOP = 10;
+    
+    private static final byte[] WELCOME = utf8("    Welcome to the Text-Based Adventure!");
+    private static final byte[] ROOM_OPEN = utf8("═══ ");
+    private static final byte[] ROOM_CLOSE = utf8(" ═══");
+    private static final byte[] PROMPT = utf8("> ");
+    private static final byte[] CANT_GO = utf8("You can't go that way.");
+    private static final byte[] UNKNOWN = utf8("I don't understand");
+    private static final byte[] VICTORY = utf8("           ★ VICTORY! ★");
+    private static final byte[] GAME_OVER = utf8("           ☠ GAME OVER ☠");
+    
+    /**
+     * Stages of the funnel. Every run has started; the middle stages are
+     * reached by entering their room, and later stages imply earlier ones.
+     */
+    public static final String[] STAGES = {"started", "reached tower", "entered tower", "reached lair", "won"};
+    private static final String[] STAGE_ROOMS = {"tower", "tower_inside", "dragon_lair"};
+    private static final byte[][] STAGE_ROOM_NAMES = new byte[STAGE_ROOMS.length][];
+    
+    static {
+        GameWorld world = new GameWorld();
+        for (int i = 0; i < STAGE_ROOMS.length; i++) {
+            STAGE_ROOM_NAMES[i] = utf8(world.getLocation(STAGE_ROOMS[i]).getName());
+        }
+    }
+    
+    private final int threads;
+    
+    public LogAnalyzer(int threads) {
+        this.threads = threads;
+    }
+    
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Counters keyed by byte strings, so lines can be counted without
+     * decoding them. Keys get dense ids in order of first appearance, and each
+     * id has a fixed number of count columns.
+     */
+    static final class ByteCounts {
+        private final int columns;
+        private final byte[] scratch = new byte[MAX_KEY];
+        private byte[] arena = new byte[4096];
+        private int arenaUsed;
+        private int[] offsets = new int[64];
+        private int[] lengths = new int[64];
+        private long[] counts;
+        private int size;
+        // Open addressing; each slot holds id + 1, or 0 when empty
+        private int[] slots = new int[128];
+        
+        ByteCounts(int columns) {
+            this.columns = columns;
+            counts = new long[offsets.length * columns];
+        }
+        
+        int size() {
+            return size;
+        }
+        
+        // The id of the bytes from..to of the buffer, added if new
+        int id(ByteBuffer buffer, int from, int to) {
+            int length = Math.min(to - from, MAX_KEY);
+            for (int i = 0; i < length; i++) {
+                scratch[i] = buffer.get(from + i);
+            }
+            return id(scratch, 0, length);
+        }
+        
+        int id(byte[] key, int from, int length) {
+            int hash = 0;
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + key[from + i];
+            }
+            int mask = slots.length - 1;
+            for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+                int id = slots[slot] - 1;
+                if (id < 0) {
+                    id = add(key, from, length);
+                    slots[slot] = id + 1;
+                    if (size * 2 > slots.length) {
+                        rehash();
+                    }
+                    return id;
+                }
+                if (equals(id, key, from, length)) {
+                    return id;
+                }
+            }
+        }
+        
+        private static int mix(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+        
+        private boolean equals(int id, byte[] key, int from, int length) {
+            if (lengths[id] != length) {
+                return false;
+            }
+            int offset = offsets[id];
+            for (int i = 0; i < length; i++) {
+                if (arena[offset + i] != key[from + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        private int add(byte[] key, int from, int length) {
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+                counts = Arrays.copyOf(counts, size * 2 * columns);
+            }
+            if (arenaUsed + length > arena.length) {
+                arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaUsed + length));
+            }
+            System.arraycopy(key, from, arena, arenaUsed, length);
+            offsets[size] = arenaUsed;
+            lengths[size] = length;
+            arenaUsed += length;
+            return size++;
+        }
+        
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            int mask = slots.length - 1;
+            for (int id = 0; id < size; id++) {
+                int hash = 0;
+                for (int i = 0; i < lengths[id]; i++) {
+                    hash = 31 * hash + arena[offsets[id] + i];
+                }
+                int slot = mix(hash) & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = id + 1;
+            }
+        }
+        
+        void add(int id, int column, long n) {
+            counts[id * columns + column] += n;
+        }
+        
+        long get(int id, int column) {
+            return counts[id * columns + column];
+        }
+        
+        String key(int id) {
+            return new String(arena, offsets[id], lengths[id], StandardCharsets.UTF_8);
+        }
+        
+        void merge(ByteCounts other) {
+            for (int id = 0; id < other.size; id++) {
+                int mine = id(other.arena, other.offsets[id], other.lengths[id]);
+                for (int c = 0; c < columns; c++) {
+                    add(mine, c, other.get(id, c));
+                }
+            }
+        }
+        
+        // Ids in descending order of one column, at most limit of them
+        List<Integer> top(int column, int limit) {
+            List<Integer> ids = new ArrayList<>();
+            for (int id = 0; id < size; id++) {
+                if (get(id, column) > 0) {
+                    ids.add(id);
+                }
+            }
+            ids.sort((a, b) -> Long.compare(get(b, column), get(a, column)));
+            return ids.subList(0, Math.min(limit, ids.size()));
+        }
+    }
+    
+    /**
+     * Aggregates over some runs. Each chunk fills its own report, and the
+     * reports are merged once every chunk is done.
+     */
+    public static final class Report {
+        // Room columns
+        private static final int ENTRIES = 0;
+        private static final int RUNS = 1;
+        
+        private long bytes;
+        private long lines;
+        private long wins;
+        private long deaths;
+        private final long[] reached = new long[STAGES.length];
+        private final ByteCounts rooms = new ByteCounts(2);
+        private final ByteCounts blocked = new ByteCounts(1);
+        private final ByteCounts unknown = new ByteCounts(1);
+        
+        // State of the run being parsed
+        private boolean inRun;
+        private int room;
+        private int stage;
+        private int commandFrom;
+        private int commandTo;
+        private int run;
+        private int[] visitedInRun = new int[16];
+        
+        Report() {
+            // The stage rooms take the first ids, so a room's stage is its id + 1
+            for (byte[] name : STAGE_ROOM_NAMES) {
+                rooms.id(name, 0, name.length);
+            }
+        }
+        
+        /**
+         * Parse the lines from..to of the buffer, which start with a run
+         */
+        void parse(ByteBuffer buffer, int from, int to) {
+            bytes += to - from;
+            int start = from;
+            while (start < to) {
+                int end = start;
+                while (end < to && buffer.get(end) != '\n') {
+                    end++;
+                }
+                int lineEnd = end > start && buffer.get(end - 1) == '\r' ? end - 1 : end;
+                line(buffer, start, lineEnd);
+                lines++;
+                start = end + 1;
+            }
+            endRun();
+        }
+        
+        private void line(ByteBuffer buffer, int from, int to) {
+            if (matches(buffer, from, to, WELCOME)) {
+                endRun();
+                inRun = true;
+                room = -1;
+                stage = 0;
+                commandFrom = -1;
+                run++;
+                return;
+            }
+            if (!inRun) {
+                return;
+            }
+            if (startsWith(buffer, from, to, ROOM_OPEN) && endsWith(buffer, from, to, ROOM_CLOSE)
+                && to - from > ROOM_OPEN.length + ROOM_CLOSE.length) {
+                enterRoom(rooms.id(buffer, from + ROOM_OPEN.length, to - ROOM_CLOSE.length));
+                commandFrom = -1;
+            } else if (startsWith(buffer, from, to, PROMPT)) {
+                commandFrom = from + PROMPT.length;
+                commandTo = to;
+            } else if (commandFrom >= 0 && startsWith(buffer, from, to, CANT_GO)) {
+                blocked.add(blocked.id(buffer, commandFrom, commandTo), 0, 1);
+            } else if (commandFrom >= 0 && startsWith(buffer, from, to, UNKNOWN)) {
+                unknown.add(unknown.id(buffer, commandFrom, commandTo), 0, 1);
+            } else if (matches(buffer, from, to, VICTORY)) {
+                wins++;
+                stage = STAGES.length - 1;
+            } else if (matches(buffer, from, to, GAME_OVER)) {
+                deaths++;
+            }
+        }
+        
+        private void enterRoom(int id) {
+            if (id == room) {
+                return;
+            }
+            room = id;
+            rooms.add(id, ENTRIES, 1);
+            if (id >= visitedInRun.length) {
+                visitedInRun = Arrays.copyOf(visitedInRun, Math.max(id + 1, visitedInRun.length * 2));
+            }
+            // The first visit of the run, when the game marks the room visited
+            if (visitedInRun[id] != run) {
+                visitedInRun[id] = run;
+                rooms.add(id, RUNS, 1);
+            }
+            if (id < STAGE_ROOMS.length) {
+                stage = Math.max(stage, id + 1);
+            }
+        }
+        
+        private void endRun() {
+            if (inRun) {
+                for (int s = 0; s <= stage; s++) {
+                    reached[s]++;
+                }
+                inRun = false;
+            }
+        }
+        
+        void merge(Report other) {
+            bytes += other.bytes;
+            lines += other.lines;
+            wins += other.wins;
+            deaths += other.deaths;
+            for (int s = 0; s < STAGES.length; s++) {
+                reached[s] += other.reached[s];
+            }
+            rooms.merge(other.rooms);
+            blocked.merge(other.blocked);
+            unknown.merge(other.unknown);
+        }
+        
+        public long getRuns() {
+            return reached[0];
+        }
+        
+        public long getWins() {
+            return wins;
+        }
+        
+        public long getDeaths() {
+            return deaths;
+        }
+        
+        public long getBytes() {
+            return bytes;
+        }
+        
+        public long getLines() {
+            return lines;
+        }
+        
+        // Runs that got at least as far as each of STAGES
+        public long[] getFunnel() {
+            return reached.clone();
+        }
+        
+        // Times each room was entered, by room name
+        public Map<String, Long> getRoomEntries() {
+            Map<String, Long> result = new LinkedHashMap<>();
+            for (int id : rooms.top(ENTRIES, Integer.MAX_VALUE)) {
+                result.put(rooms.key(id), rooms.get(id, ENTRIES));
+            }
+            return result;
+        }
+        
+        /**
+         * The report as text: a heatmap of rooms, the most common failing
+         * commands and the funnel towards the treasure
+         */
+        public String format() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%,d runs in %,d lines: %,d won, %,d died%n", getRuns(), lines, wins, deaths));
+            
+            sb.append(String.format("%nRoom visits%n"));
+            List<Integer> byEntries = rooms.top(ENTRIES, Integer.MAX_VALUE);
+            long most = byEntries.isEmpty() ? 1 : rooms.get(byEntries.get(0), ENTRIES);
+            for (int id : byEntries) {
+                long entries = rooms.get(id, ENTRIES);
+                long runs = rooms.get(id, RUNS);
+                sb.append(String.format("  %-22s %,12d entries %6.1f%% of runs  %s%n", rooms.key(id), entries,
+                    percent(runs, getRuns()), bar(entries, most)));
+            }
+            
+            appendTop(sb, "Blocked moves (\"You can't go that way\")", blocked);
+            appendTop(sb, "Unknown commands", unknown);
+            
+            sb.append(String.format("%nFunnel%n"));
+            for (int s = 0; s < STAGES.length; s++) {
+                long dropped = s == 0 ? 0 : reached[s - 1] - reached[s];
+                sb.append(String.format("  %-14s %,12d %6.1f%%", STAGES[s], reached[s], percent(reached[s], getRuns())));
+                if (s > 0) {
+                    sb.append(String.format("   %,d dropped before", dropped));
+                }
+                sb.append(String.format("%n"));
+            }
+            return sb.toString();
+        }
+        
+        private static void appendTop(StringBuilder sb, String title, ByteCounts counts) {
+            sb.append(String.format("%n%s%n", title));
+            for (int id : counts.top(0, TOP)) {
+                sb.append(String.format("  %-30s %,d%n", counts.key(id), counts.get(id, 0)));
+            }
+        }
+        
+        private static double percent(long n, long of) {
+            return of == 0 ? 0 : 100.0 * n / of;
+        }
+        
+        private static String bar(long n, long most) {
+            int width = (int) Math.round(20.0 * n / Math.max(1, most));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < width; i++) {
+                sb.append('█');
+            }
+            return sb.toString();
+        }
+    }
+    
+    private static boolean startsWith(ByteBuffer buffer, int from, int to, byte[] prefix) {
+        if (to - from < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(from + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static boolean endsWith(ByteBuffer buffer, int from, int to, byte[] suffix) {
+        return to - from >= suffix.length && startsWith(buffer, to - suffix.length, to, suffix);
+    }
+    
+    private static boolean matches(ByteBuffer buffer, int from, int to, byte[] line) {
+        return to - from == line.length && startsWith(buffer, from, to, line);
+    }
+    
+    /**
+     * Analyze the files, all of their chunks at once on the thread pool
+     */
+    public Report analyze(List<Path> files) throws IOException, InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Report>> pending = new ArrayList<>();
+            for (Path file : files) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    long size = channel.size();
+                    long start = 0;
+                    while (start < size) {
+                        long end = start + CHUNK_BYTES >= size ? size : nextRun(channel, start + CHUNK_BYTES, size);
+                        if (end - start > Integer.MAX_VALUE) {
+                            throw new IOException(file + ": a run at byte " + start + " is longer than 2 GB");
+                        }
+                        // The mapping stays valid after the channel is closed
+                        MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                        pending.add(pool.submit(() -> {
+                            Report report = new Report();
+                            report.parse(chunk, 0, chunk.limit());
+                            return report;
+                        }));
+                        start = end;
+                    }
+                }
+            }
+            
+            Report total = new Report();
+            for (Future<Report> future : pending) {
+                try {
+                    total.merge(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Log analyzer failed", e.getCause());
+                }
+            }
+            return total;
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    // The offset of the first welcome line at or after from, or size if there is none
+    private static long nextRun(FileChannel channel, long from, long size) throws IOException {
+        // Search for the newline before it; windows overlap so a match can't straddle two of them
+        byte[] marker = new byte[WELCOME.length + 1];
+        marker[0] = '\n';
+        System.arraycopy(WELCOME, 0, marker, 1, WELCOME.length);
+        for (long at = from - 1; at + marker.length <= size; at += SEARCH_BYTES - marker.length) {
+            int length = (int) Math.min(SEARCH_BYTES, size - at);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, at, length);
+            for (int i = 0; i + marker.length <= length; i++) {
+                if (window.get(i) == '\n' && startsWith(window, i, length, marker)) {
+                    return at + i + 1;
+                }
+            }
+        }
+        return size;
+    }
+    
+    /**
+     * Every regular file under the given paths, in name order
+     */
+    public static List<Path> findLogs(List<Path> paths) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path path : paths) {
+            try (Stream<Path> walk = Files.walk(path)) {
+                files.addAll(walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList()));
+            }
+        }
+        return files;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<Path> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--threads")) {
+                threads = Integer.parseInt(args[++i]);
+            } else {
+                paths.add(Paths.get(args[i]));
+            }
+        }
+        if (paths.isEmpty()) {
+            System.err.println("Usage: java LogAnalyzer [--threads n] file-or-directory...");
+            System.exit(2);
+        }
+        
+        List<Path> files = findLogs(paths);
+        long start = System.nanoTime();
+        Report report = new LogAnalyzer(threads).analyze(files);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.print(report.format());
+        System.out.printf("%nRead %,d files, %.1f MB in %.2f s (%.0f MB/s) on %d threads%n",
+            files.size(), report.getBytes() / 1e6, seconds, report.getBytes() / 1e6 / seconds, threads);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,59 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Benchmark for the log analyzer
+ * Builds a large log by repeating the golden transcripts of the scenarios,
+ * then analyzes it with one thread and with every core, and checks that the
+ * chunked, merged report counts exactly the runs that were written.
+ *
+ * Usage: java LogAnalyzerBenchmark [megabytes] [scenario dir]
+ */
+public class LogAnalyzerBenchmark {
+    public static void main(String[] args) throws Exception {
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+        Path dir = args.length > 1 ? Paths.get(args[1])
+            : Files.isDirectory(Paths.get("scenarios")) ? Paths.get("scenarios") : Paths.get("../scenarios");
+        
+        ByteArrayOutputStream goldens = new ByteArrayOutputStream();
+        int runsPerCopy = 0;
+        for (Path scenario : ScenarioRunner.findScenarios(dir)) {
+            String name = scenario.getFileName().toString();
+            Path golden = scenario.resolveSibling(name.substring(0, name.lastIndexOf('.')) + ".golden");
+            if (Files.exists(golden)) {
+                goldens.write(Files.readAllBytes(golden));
+                runsPerCopy++;
+            }
+        }
+        byte[] copy = goldens.toByteArray();
+        
+        Path log = Files.createTempFile("adventure", ".log");
+        long copies = (long) megabytes * 1_000_000 / copy.length + 1;
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(log), 1 << 20)) {
+                for (long i = 0; i < copies; i++) {
+                    out.write(copy);
+                }
+            }
+            System.out.printf("Log of %,d runs, %.0f MB%n", copies * runsPerCopy, Files.size(log) / 1e6);
+            
+            int cores = Runtime.getRuntime().availableProcessors();
+            for (int threads : cores > 1 ? new int[] {1, cores} : new int[] {1}) {
+                LogAnalyzer analyzer = new LogAnalyzer(threads);
+                // The first pass warms up the parser and pulls the file into the page cache
+                analyzer.analyze(List.of(log));
+                long start = System.nanoTime();
+                LogAnalyzer.Report report = analyzer.analyze(List.of(log));
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%d threads: %.2f s, %.0f MB/s, %,.0f lines/s%n", threads, seconds,
+                    report.getBytes() / 1e6 / seconds, report.getLines() / seconds);
+                if (report.getRuns() != copies * runsPerCopy) {
+                    throw new IllegalStateException("Counted " + report.getRuns() + " runs, wrote " + copies * runsPerCopy);
+                }
+            }
+        } finally {
+            Files.delete(log);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,23 @@
+/**
+ * Destination for game messages
+ * The console game prints them as lines, the GUI colors them by tone
+ */
+public interface MessageSink {
+    
+    /**
+     * The kind of message, used by the GUI to pick a color
+     */
+    enum Tone {
+        PLAIN,
+        ACCENT,
+        STORY,
+        SUCCESS,
+        ERROR
+    }
+    
+    void send(String text, Tone tone);
+    
+    default void send(String text) {
+        send(text, Tone.PLAIN);
+    }
+}
\ No newline at end of file
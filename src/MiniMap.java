@@ -0,0 +1,481 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Minimap of the rooms the player has discovered
+ * Every room reachable from the start is given a grid cell once per world, on
+ * a background thread, by following exits outwards from the start room. Only
+ * visited rooms and the exits between them are drawn. The map is painted
+ * from cached square tiles, and only the tiles in view are painted; a newly
+ * visited room re-renders just the tiles it touches and repaints just that
+ * region, and the player marker is drawn over the tiles, so a move repaints
+ * only the two cells involved. Drag to pan, double-click to find the player.
+ */
+public class MiniMap extends JPanel {
+    private static final long serialVersionUID = 1L;
+    private static final int CELL = 24;
+    private static final int ROOM = 14;
+    private static final int TILE = 256;
+    // About 16 MB of tiles; far more than a panel shows at once
+    private static final int MAX_TILES = 64;
+    
+    private static final Color BACKGROUND = new Color(250, 250, 252);
+    private static final Color ROOM_COLOR = new Color(59, 89, 152);
+    private static final Color EXIT_COLOR = new Color(170, 170, 185);
+    private static final Color PLAYER_COLOR = new Color(220, 20, 60);
+    private static final Stroke EXIT_STROKE = new BasicStroke(2);
+    
+    // Layouts are computed off the event thread, one world at a time
+    private static final ExecutorService LAYOUT_THREAD = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "minimap-layout");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private GameWorld world;
+    private Layout layout;
+    private boolean[] revealed;
+    private int player = -1;
+    private Location pendingPlayer;
+    // The world pixel at the top left corner of the panel
+    private int originX;
+    private int originY;
+    private Point dragFrom;
+    
+    private final Map<Long, BufferedImage> tiles = new LinkedHashMap<Long, BufferedImage>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest) {
+            return size() > MAX_TILES;
+        }
+    };
+    
+    public MiniMap() {
+        setBackground(BACKGROUND);
+        setOpaque(true);
+        setToolTipText("");
+        
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragFrom = e.getPoint();
+            }
+            
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (dragFrom != null) {
+                    scrollBy(dragFrom.x - e.getX(), dragFrom.y - e.getY());
+                    dragFrom = e.getPoint();
+                }
+            }
+            
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2 && player >= 0) {
+                    center(player);
+                }
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                if (player >= 0) {
+                    center(player);
+                }
+            }
+        });
+    }
+    
+    /**
+     * Cells and tile indexes for every room reachable from the start. Built
+     * once per world and never changed, so it can be handed from the layout
+     * thread to the event thread as it is.
+     */
+    static final class Layout {
+        private final Location[] rooms;
+        private final Map<Location, Integer> index;
+        // Centre of each room, in world pixels
+        private final int[] x;
+        private final int[] y;
+        private final Map<Long, Integer> cells;
+        private final int[] edgeFrom;
+        private final int[] edgeTo;
+        private final int[][] edgesOf;
+        private final Map<Long, int[]> tileRooms;
+        private final Map<Long, int[]> tileEdges;
+        
+        private Layout(List<Location> rooms, Map<Location, Integer> index, int[] cellX, int[] cellY,
+                Map<Long, Integer> cells) {
+            int n = rooms.size();
+            this.rooms = rooms.toArray(new Location[0]);
+            this.index = index;
+            this.cells = cells;
+            x = new int[n];
+            y = new int[n];
+            for (int i = 0; i < n; i++) {
+                x[i] = cellX[i] * CELL;
+                y[i] = cellY[i] * CELL;
+            }
+            
+            // Each exit once, whichever way round it was declared
+            List<int[]> edges = new ArrayList<>();
+            Set<Long> seen = new HashSet<>();
+            for (int i = 0; i < n; i++) {
+                for (String direction : this.rooms[i].getAvailableDirections()) {
+                    Integer j = index.get(this.rooms[i].getConnection(direction));
+                    if (j != null && j != i && seen.add((long) Math.min(i, j) * n + Math.max(i, j))) {
+                        edges.add(new int[] {i, j});
+                    }
+                }
+            }
+            edgeFrom = new int[edges.size()];
+            edgeTo = new int[edges.size()];
+            int[] degree = new int[n];
+            for (int e = 0; e < edges.size(); e++) {
+                edgeFrom[e] = edges.get(e)[0];
+                edgeTo[e] = edges.get(e)[1];
+                degree[edgeFrom[e]]++;
+                degree[edgeTo[e]]++;
+            }
+            edgesOf = new int[n][];
+            for (int i = 0; i < n; i++) {
+                edgesOf[i] = new int[degree[i]];
+                degree[i] = 0;
+            }
+            for (int e = 0; e < edgeFrom.length; e++) {
+                edgesOf[edgeFrom[e]][degree[edgeFrom[e]]++] = e;
+                edgesOf[edgeTo[e]][degree[edgeTo[e]]++] = e;
+            }
+            
+            Map<Long, List<Integer>> roomsByTile = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                Rectangle box = roomBounds(i);
+                addToTiles(roomsByTile, i, box);
+            }
+            Map<Long, List<Integer>> edgesByTile = new HashMap<>();
+            for (int e = 0; e < edgeFrom.length; e++) {
+                addToTiles(edgesByTile, e, edgeBounds(e));
+            }
+            tileRooms = toArrays(roomsByTile);
+            tileEdges = toArrays(edgesByTile);
+        }
+        
+        /**
+         * Lay out a world breadth-first from its start room. A room goes in
+         * the cell its exit points to, or the nearest free cell if that one
+         * is taken; rooms the start can't reach are left out.
+         */
+        static Layout of(GameWorld world) {
+            List<Location> rooms = new ArrayList<>();
+            Map<Location, Integer> index = new IdentityHashMap<>();
+            Map<Long, Integer> cells = new HashMap<>();
+            int[] cellX = new int[64];
+            int[] cellY = new int[64];
+            
+            Location start = world.getStartLocation();
+            index.put(start, 0);
+            rooms.add(start);
+            cells.put(cellKey(0, 0), 0);
+            for (int i = 0; i < rooms.size(); i++) {
+                Location room = rooms.get(i);
+                List<String> directions = new ArrayList<>(room.getAvailableDirections());
+                Collections.sort(directions);
+                for (String direction : directions) {
+                    Location next = room.getConnection(direction);
+                    if (next == null || index.containsKey(next)) {
+                        continue;
+                    }
+                    int id = rooms.size();
+                    if (id == cellX.length) {
+                        cellX = Arrays.copyOf(cellX, id * 2);
+                        cellY = Arrays.copyOf(cellY, id * 2);
+                    }
+                    int[] step = step(direction);
+                    long cell = nearestFree(cells, cellX[i] + step[0], cellY[i] + step[1]);
+                    cellX[id] = (int) (cell >> 32);
+                    cellY[id] = (int) cell;
+                    cells.put(cell, id);
+                    index.put(next, id);
+                    rooms.add(next);
+                }
+            }
+            return new Layout(rooms, index, cellX, cellY, cells);
+        }
+        
+        int size() {
+            return rooms.length;
+        }
+        
+        // The cell offset an exit points towards
+        private static int[] step(String direction) {
+            switch (direction) {
+                case "north":
+                    return new int[] {0, -1};
+                case "south":
+                    return new int[] {0, 1};
+                case "east":
+                    return new int[] {1, 0};
+                case "west":
+                    return new int[] {-1, 0};
+                case "in":
+                case "up":
+                    return new int[] {1, -1};
+                case "out":
+                case "down":
+                    return new int[] {-1, 1};
+                default:
+                    return new int[] {1, 1};
+            }
+        }
+        
+        // Search rings of growing radius around the wanted cell
+        private static long nearestFree(Map<Long, Integer> cells, int cx, int cy) {
+            for (int radius = 0; ; radius++) {
+                for (int dx = -radius; dx <= radius; dx++) {
+                    for (int dy = -radius; dy <= radius; dy++) {
+                        if (Math.max(Math.abs(dx), Math.abs(dy)) == radius
+                                && !cells.containsKey(cellKey(cx + dx, cy + dy))) {
+                            return cellKey(cx + dx, cy + dy);
+                        }
+                    }
+                }
+            }
+        }
+        
+        private static long cellKey(int cx, int cy) {
+            return ((long) cx << 32) | (cy & 0xffffffffL);
+        }
+        
+        Rectangle roomBounds(int room) {
+            return new Rectangle(x[room] - ROOM / 2, y[room] - ROOM / 2, ROOM + 1, ROOM + 1);
+        }
+        
+        Rectangle edgeBounds(int edge) {
+            int a = edgeFrom[edge];
+            int b = edgeTo[edge];
+            int left = Math.min(x[a], x[b]);
+            int top = Math.min(y[a], y[b]);
+            return new Rectangle(left - 1, top - 1, Math.abs(x[a] - x[b]) + 3, Math.abs(y[a] - y[b]) + 3);
+        }
+        
+        private static void addToTiles(Map<Long, List<Integer>> byTile, int id, Rectangle box) {
+            for (int tx = Math.floorDiv(box.x, TILE); tx <= Math.floorDiv(box.x + box.width - 1, TILE); tx++) {
+                for (int ty = Math.floorDiv(box.y, TILE); ty <= Math.floorDiv(box.y + box.height - 1, TILE); ty++) {
+                    byTile.computeIfAbsent(cellKey(tx, ty), k -> new ArrayList<>()).add(id);
+                }
+            }
+        }
+        
+        private static Map<Long, int[]> toArrays(Map<Long, List<Integer>> lists) {
+            Map<Long, int[]> arrays = new HashMap<>();
+            lists.forEach((key, list) -> arrays.put(key, list.stream().mapToInt(Integer::intValue).toArray()));
+            return arrays;
+        }
+    }
+    
+    /**
+     * Show a new world. Its layout is computed in the background, and the
+     * returned future completes once the map has it.
+     */
+    public CompletableFuture<Void> setWorld(GameWorld newWorld) {
+        world = newWorld;
+        layout = null;
+        revealed = null;
+        player = -1;
+        pendingPlayer = null;
+        tiles.clear();
+        repaint();
+        return CompletableFuture.supplyAsync(() -> Layout.of(newWorld), LAYOUT_THREAD)
+            .thenAcceptAsync(built -> {
+                if (world == newWorld) {
+                    install(built);
+                }
+            }, SwingUtilities::invokeLater);
+    }
+    
+    // Take a finished layout, revealing the rooms visited while it was computed
+    private void install(Layout built) {
+        layout = built;
+        revealed = new boolean[built.size()];
+        for (int i = 0; i < revealed.length; i++) {
+            revealed[i] = built.rooms[i].isVisited();
+        }
+        if (pendingPlayer != null) {
+            showPlayerAt(pendingPlayer);
+            pendingPlayer = null;
+        }
+        repaint();
+    }
+    
+    /**
+     * Mark the player's room, revealing it if it is newly visited
+     */
+    public void showPlayerAt(Location room) {
+        if (layout == null) {
+            pendingPlayer = room;
+            return;
+        }
+        Integer id = layout.index.get(room);
+        if (id == null) {
+            return;
+        }
+        if (!revealed[id]) {
+            reveal(id);
+        }
+        if (id != player) {
+            int previous = player;
+            player = id;
+            if (!inView(id)) {
+                center(id);
+            } else {
+                if (previous >= 0) {
+                    repaintWorld(layout.roomBounds(previous));
+                }
+                repaintWorld(layout.roomBounds(id));
+            }
+        }
+    }
+    
+    // Draw a room and its exits to revealed rooms: only the tiles under them change
+    private void reveal(int room) {
+        revealed[room] = true;
+        invalidate(layout.roomBounds(room));
+        for (int edge : layout.edgesOf[room]) {
+            invalidate(layout.edgeBounds(edge));
+        }
+    }
+    
+    private void invalidate(Rectangle box) {
+        for (int tx = Math.floorDiv(box.x, TILE); tx <= Math.floorDiv(box.x + box.width - 1, TILE); tx++) {
+            for (int ty = Math.floorDiv(box.y, TILE); ty <= Math.floorDiv(box.y + box.height - 1, TILE); ty++) {
+                tiles.remove(Layout.cellKey(tx, ty));
+            }
+        }
+        repaintWorld(box);
+    }
+    
+    private void repaintWorld(Rectangle box) {
+        repaint(box.x - originX - 1, box.y - originY - 1, box.width + 2, box.height + 2);
+    }
+    
+    private boolean inView(int room) {
+        int px = layout.x[room] - originX;
+        int py = layout.y[room] - originY;
+        return px >= CELL && py >= CELL && px <= getWidth() - CELL && py <= getHeight() - CELL;
+    }
+    
+    private void center(int room) {
+        originX = layout.x[room] - getWidth() / 2;
+        originY = layout.y[room] - getHeight() / 2;
+        repaint();
+    }
+    
+    void scrollBy(int dx, int dy) {
+        originX += dx;
+        originY += dy;
+        repaint();
+    }
+    
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        if (layout == null) {
+            if (world != null) {
+                g.setColor(EXIT_COLOR);
+                g.drawString("Mapping...", 10, 20);
+            }
+            return;
+        }
+        
+        // Only the tiles under the clip are drawn, and only tiles with something on them exist
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        int fromX = Math.floorDiv(clip.x + originX, TILE);
+        int toX = Math.floorDiv(clip.x + clip.width - 1 + originX, TILE);
+        int fromY = Math.floorDiv(clip.y + originY, TILE);
+        int toY = Math.floorDiv(clip.y + clip.height - 1 + originY, TILE);
+        for (int tx = fromX; tx <= toX; tx++) {
+            for (int ty = fromY; ty <= toY; ty++) {
+                long key = Layout.cellKey(tx, ty);
+                if (!layout.tileRooms.containsKey(key) && !layout.tileEdges.containsKey(key)) {
+                    continue;
+                }
+                BufferedImage tile = tiles.get(key);
+                if (tile == null) {
+                    tile = renderTile(tx, ty);
+                    tiles.put(key, tile);
+                }
+                g.drawImage(tile, tx * TILE - originX, ty * TILE - originY, null);
+            }
+        }
+        
+        if (player >= 0) {
+            Graphics2D g2 = (Graphics2D) g;
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setColor(PLAYER_COLOR);
+            g2.fillOval(layout.x[player] - originX - 4, layout.y[player] - originY - 4, 9, 9);
+        }
+    }
+    
+    private BufferedImage renderTile(int tx, int ty) {
+        BufferedImage image = new BufferedImage(TILE, TILE, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(BACKGROUND);
+        g.fillRect(0, 0, TILE, TILE);
+        g.translate(-tx * TILE, -ty * TILE);
+        long key = Layout.cellKey(tx, ty);
+        
+        int[] edges = layout.tileEdges.get(key);
+        if (edges != null) {
+            g.setColor(EXIT_COLOR);
+            g.setStroke(EXIT_STROKE);
+            for (int edge : edges) {
+                int a = layout.edgeFrom[edge];
+                int b = layout.edgeTo[edge];
+                if (revealed[a] && revealed[b]) {
+                    g.drawLine(layout.x[a], layout.y[a], layout.x[b], layout.y[b]);
+                }
+            }
+        }
+        int[] rooms = layout.tileRooms.get(key);
+        if (rooms != null) {
+            g.setColor(ROOM_COLOR);
+            for (int room : rooms) {
+                if (revealed[room]) {
+                    g.fillRect(layout.x[room] - ROOM / 2, layout.y[room] - ROOM / 2, ROOM, ROOM);
+                }
+            }
+        }
+        g.dispose();
+        return image;
+    }
+    
+    @Override
+    public String getToolTipText(MouseEvent e) {
+        if (layout == null) {
+            return null;
+        }
+        int cx = Math.floorDiv(e.getX() + originX + CELL / 2, CELL);
+        int cy = Math.floorDiv(e.getY() + originY + CELL / 2, CELL);
+        Integer room = layout.cells.get(Layout.cellKey(cx, cy));
+        return room != null && revealed[room] ? layout.rooms[room].getName() : null;
+    }
+    
+    // Rooms laid out, for the benchmark; 0 until the layout is ready
+    int roomCount() {
+        return layout == null ? 0 : layout.size();
+    }
+}
\ No newline at end of file
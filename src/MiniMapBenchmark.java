@@ -0,0 +1,75 @@
+import javax.swing.SwingUtilities;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Benchmark for the minimap on a large generated world
+ * Every room but one is visited, then the map times its background layout,
+ * a cold paint (tiles rendered), a warm paint (tiles cached), revealing the
+ * last room, a move of the player and panning across the world. Runs
+ * headless: the panel paints into an image.
+ *
+ * Usage: java MiniMapBenchmark [side]
+ */
+public class MiniMapBenchmark {
+    private static final int WIDTH = 260;
+    private static final int HEIGHT = 300;
+    private static final int REPEAT = 200;
+    
+    public static void main(String[] args) throws Exception {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        GameWorld world = GameWorld.generate(side, side, 10, 1);
+        for (Location room : world.getLocations().values()) {
+            room.setVisited(true);
+        }
+        int middle = side / 2;
+        Location here = world.getLocation("room_" + middle + "_" + middle);
+        Location hidden = world.getLocation("room_" + (middle + 1) + "_" + middle);
+        hidden.setVisited(false);
+        
+        MiniMap map = new MiniMap();
+        map.setSize(WIDTH, HEIGHT);
+        long start = System.nanoTime();
+        map.setWorld(world).join();
+        System.out.printf("Layout of %,d rooms: %.0f ms (off the event thread)%n",
+            map.roomCount(), (System.nanoTime() - start) / 1e6);
+        
+        BufferedImage screen = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        SwingUtilities.invokeAndWait(() -> map.showPlayerAt(here));
+        report("Cold paint", 1, () -> paint(map, screen));
+        report("Warm paint", REPEAT, () -> paint(map, screen));
+        report("Reveal a room and paint", 1, () -> {
+            map.showPlayerAt(hidden);
+            paint(map, screen);
+        });
+        report("Move and paint", REPEAT, () -> {
+            map.showPlayerAt(here);
+            map.showPlayerAt(hidden);
+            paint(map, screen);
+        });
+        // A step a quarter of a tile at a time, so most frames reuse cached tiles
+        report("Pan and paint", REPEAT, () -> {
+            map.scrollBy(64, 48);
+            paint(map, screen);
+        });
+    }
+    
+    private static void paint(MiniMap map, BufferedImage screen) {
+        Graphics2D g = screen.createGraphics();
+        map.paint(g);
+        g.dispose();
+    }
+    
+    // Time an action on the event thread, as the GUI would run it
+    private static void report(String label, int times, Runnable action) throws Exception {
+        long[] nanos = new long[1];
+        SwingUtilities.invokeAndWait(() -> {
+            long start = System.nanoTime();
+            for (int i = 0; i < times; i++) {
+                action.run();
+            }
+            nanos[0] = System.nanoTime() - start;
+        });
+        System.out.printf("%-24s %8.3f ms%n", label, nanos[0] / 1e6 / times);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,53 @@
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Benchmark for the monster simulation
+ * Ticks a large population on a generated grid world, sequentially and with
+ * fork/join, and compares the time per tick with a 60 FPS frame budget
+ *
+ * Usage: java MonsterBenchmark [monsters] [ticks]
+ */
+public class MonsterBenchmark {
+    private static final double FRAME_BUDGET_MS = 1000.0 / 60;
+    
+    public static void main(String[] args) {
+        int monsterCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        
+        RoomGraph graph = RoomGraph.grid(300, 300);
+        System.out.println("World: " + graph.size() + " rooms, " + monsterCount + " monsters, " +
+            ticks + " ticks, " + Runtime.getRuntime().availableProcessors() + " cores");
+        
+        // No pool: a plain loop on this thread, without any fork/join overhead
+        run("sequential", graph, monsterCount, ticks, null);
+        run("fork/join", graph, monsterCount, ticks, ForkJoinPool.commonPool());
+    }
+    
+    private static void run(String label, RoomGraph graph, int monsterCount, int ticks,
+                            ForkJoinPool pool) {
+        Monsters monsters = new Monsters(graph, monsterCount, pool);
+        for (int i = 0; i < monsterCount; i++) {
+            monsters.spawn("goblin", i % graph.size(), 10, 1, 40);
+        }
+        
+        int playerRoom = graph.size() / 2;
+        
+        // Warm up so the JIT has compiled the tick loop
+        for (int i = 0; i < 50; i++) {
+            monsters.tick(playerRoom);
+        }
+        
+        long worst = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ticks; i++) {
+            long tickStart = System.nanoTime();
+            monsters.tick(playerRoom);
+            worst = Math.max(worst, System.nanoTime() - tickStart);
+        }
+        double averageMs = (System.nanoTime() - start) / 1e6 / ticks;
+        double worstMs = worst / 1e6;
+        
+        System.out.printf("%-10s avg %.3f ms/tick, worst %.3f ms/tick (%s %.1f ms frame budget)%n",
+            label, averageMs, worstMs, worstMs <= FRAME_BUDGET_MS ? "within" : "over", FRAME_BUDGET_MS);
+    }
+}
\ No newline at end of file
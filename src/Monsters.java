@@ -0,0 +1,245 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Wandering monsters that move over the room graph and fight the player
+ * State is stored as parallel arrays (one per component) rather than one
+ * object per monster, and large populations are ticked in parallel with fork/join
+ */
+public class Monsters {
+    // Below this many monsters a tick runs on the calling thread
+    private static final int PARALLEL_THRESHOLD = 8192;
+    
+    private RoomGraph graph;
+    private ForkJoinPool pool;
+    private int count;
+    
+    // One entry per monster
+    private String[] kind;
+    private int[] room;
+    private int[] health;
+    private int[] maxHealth;
+    private int[] attack;
+    private int[] wanderChance;
+    private long[] seed;
+    
+    public Monsters(RoomGraph graph, int capacity) {
+        this(graph, capacity, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Monsters ticked on the given pool, or always on the calling thread
+     * when the pool is null
+     */
+    public Monsters(RoomGraph graph, int capacity, ForkJoinPool pool) {
+        this.graph = graph;
+        this.pool = pool;
+        this.count = 0;
+        this.kind = new String[capacity];
+        this.room = new int[capacity];
+        this.health = new int[capacity];
+        this.maxHealth = new int[capacity];
+        this.attack = new int[capacity];
+        this.wanderChance = new int[capacity];
+        this.seed = new long[capacity];
+    }
+    
+    /**
+     * Outcome of a tick: how much damage the player took and from whom
+     */
+    public static class TickResult {
+        private int damage;
+        private int attackers;
+        private int firstAttacker = -1;
+        
+        private TickResult merge(TickResult other) {
+            if (firstAttacker < 0) {
+                firstAttacker = other.firstAttacker;
+            }
+            damage += other.damage;
+            attackers += other.attackers;
+            return this;
+        }
+        
+        public int getDamage() {
+            return damage;
+        }
+        
+        public int getAttackers() {
+            return attackers;
+        }
+        
+        // Index of the first monster that attacked, or -1
+        public int getFirstAttacker() {
+            return firstAttacker;
+        }
+    }
+    
+    /**
+     * Add a monster and return its index. wanderChance is the percent chance
+     * of moving to a neighbouring room on each tick.
+     */
+    public int spawn(String kindName, int startRoom, int hitPoints, int damage, int wanderChance) {
+        if (count == room.length) {
+            grow();
+        }
+        int i = count++;
+        kind[i] = kindName;
+        room[i] = startRoom;
+        health[i] = hitPoints;
+        maxHealth[i] = hitPoints;
+        attack[i] = damage;
+        this.wanderChance[i] = wanderChance;
+        seed[i] = mix(i + 0x9E3779B97F4A7C15L);
+        return i;
+    }
+    
+    /**
+     * Give every monster a new random stream derived from one seed, so
+     * separate games of the same world can wander differently
+     */
+    public void reseed(long worldSeed) {
+        for (int i = 0; i < count; i++) {
+            seed[i] = mix(worldSeed ^ mix(i + 0x9E3779B97F4A7C15L));
+        }
+    }
+    
+    /**
+     * Advance every monster by one tick. Monsters sharing a room with the
+     * player attack; the others may wander to a neighbouring room.
+     * Pass -1 as the player's room when no player is in the graph.
+     */
+    public TickResult tick(int playerRoom) {
+        if (pool == null || count < PARALLEL_THRESHOLD) {
+            return tickRange(0, count, playerRoom);
+        }
+        return pool.invoke(new TickTask(0, count, playerRoom));
+    }
+    
+    private class TickTask extends RecursiveTask<TickResult> {
+        private static final long serialVersionUID = 1L;
+        
+        private final int from;
+        private final int to;
+        private final int playerRoom;
+        
+        TickTask(int from, int to, int playerRoom) {
+            this.from = from;
+            this.to = to;
+            this.playerRoom = playerRoom;
+        }
+        
+        @Override
+        protected TickResult compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                return tickRange(from, to, playerRoom);
+            }
+            int mid = (from + to) >>> 1;
+            TickTask left = new TickTask(from, mid, playerRoom);
+            left.fork();
+            TickResult right = new TickTask(mid, to, playerRoom).compute();
+            return left.join().merge(right);
+        }
+    }
+    
+    // Tick monsters [from, to); each monster only touches its own slots
+    private TickResult tickRange(int from, int to, int playerRoom) {
+        TickResult result = new TickResult();
+        for (int i = from; i < to; i++) {
+            if (health[i] <= 0) {
+                continue;
+            }
+            
+            if (room[i] == playerRoom) {
+                if (result.firstAttacker < 0) {
+                    result.firstAttacker = i;
+                }
+                result.damage += attack[i];
+                result.attackers++;
+                continue;
+            }
+            
+            long s = mix(seed[i]);
+            seed[i] = s;
+            int[] exits = graph.exitsOf(room[i]);
+            if (exits.length > 0 && (int) ((s >>> 33) % 100) < wanderChance[i]) {
+                room[i] = exits[(int) ((s & 0x7FFFFFFFL) % exits.length)];
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Damage a monster and return its remaining health
+     */
+    public int damage(int monster, int amount) {
+        health[monster] = Math.max(0, health[monster] - amount);
+        return health[monster];
+    }
+    
+    // Find a living monster of the given kind in a room, or -1
+    public int findInRoom(int inRoom, String kindName) {
+        for (int i = 0; i < count; i++) {
+            if (room[i] == inRoom && health[i] > 0 && kind[i].equalsIgnoreCase(kindName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    // Indexes of the living monsters in a room
+    public List<Integer> inRoom(int inRoom) {
+        List<Integer> found = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (room[i] == inRoom && health[i] > 0) {
+                found.add(i);
+            }
+        }
+        return found;
+    }
+    
+    // Getters
+    public int size() {
+        return count;
+    }
+    
+    public String getKind(int monster) {
+        return kind[monster];
+    }
+    
+    public int getRoom(int monster) {
+        return room[monster];
+    }
+    
+    public int getHealth(int monster) {
+        return health[monster];
+    }
+    
+    public int getMaxHealth(int monster) {
+        return maxHealth[monster];
+    }
+    
+    public boolean isAlive(int monster) {
+        return health[monster] > 0;
+    }
+    
+    private void grow() {
+        int capacity = Math.max(16, room.length * 2);
+        kind = Arrays.copyOf(kind, capacity);
+        room = Arrays.copyOf(room, capacity);
+        health = Arrays.copyOf(health, capacity);
+        maxHealth = Arrays.copyOf(maxHealth, capacity);
+        attack = Arrays.copyOf(attack, capacity);
+        wanderChance = Arrays.copyOf(wanderChance, capacity);
+        seed = Arrays.copyOf(seed, capacity);
+    }
+    
+    // SplitMix64 mixing function; iterating it gives each monster its own reproducible random stream
+    private static long mix(long z) {
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,237 @@
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * In-memory index of names (verbs, directions, items) for autocomplete
+ * A trie answers prefix completions directly, and "did you mean" queries
+ * walk the same trie computing edit distances one prefix at a time, so
+ * lookups stay well under a millisecond even with tens of thousands of
+ * names in scope.
+ * Names are matched case-insensitively. Every lookup can take a filter, so
+ * one index of every name in a world can answer for what is in scope.
+ * Not thread-safe: an index belongs to the thread that runs its world.
+ */
+public class NameIndex {
+    private final TrieNode trie;
+    private int longest;
+    private int size;
+    
+    public NameIndex() {
+        this.trie = new TrieNode();
+    }
+    
+    public NameIndex(Collection<String> names) {
+        this();
+        for (String name : names) {
+            add(name);
+        }
+    }
+    
+    // Trie node; children are kept sorted so completions come out in order
+    private static class TrieNode {
+        private char[] keys = new char[0];
+        private TrieNode[] children = new TrieNode[0];
+        private String word;
+        
+        private TrieNode child(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            return i >= 0 ? children[i] : null;
+        }
+        
+        private TrieNode childOrAdd(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            if (i >= 0) {
+                return children[i];
+            }
+            int at = -i - 1;
+            char[] newKeys = new char[keys.length + 1];
+            TrieNode[] newChildren = new TrieNode[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, at);
+            System.arraycopy(children, 0, newChildren, 0, at);
+            newKeys[at] = c;
+            newChildren[at] = new TrieNode();
+            System.arraycopy(keys, at, newKeys, at + 1, keys.length - at);
+            System.arraycopy(children, at, newChildren, at + 1, children.length - at);
+            keys = newKeys;
+            children = newChildren;
+            return newChildren[at];
+        }
+    }
+    
+    /**
+     * Add a name. Returns false if it was already indexed.
+     */
+    public boolean add(String name) {
+        String key = name.toLowerCase();
+        if (key.isEmpty()) {
+            return false;
+        }
+        
+        TrieNode node = trie;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.childOrAdd(key.charAt(i));
+        }
+        if (node.word != null) {
+            return false;
+        }
+        node.word = key;
+        size++;
+        longest = Math.max(longest, key.length());
+        return true;
+    }
+    
+    /**
+     * Names starting with the prefix, in alphabetical order
+     */
+    public List<String> complete(String prefix, int limit) {
+        return complete(prefix, limit, name -> true);
+    }
+    
+    // Names starting with the prefix that the filter accepts
+    public List<String> complete(String prefix, int limit, Predicate<String> accept) {
+        List<String> found = new ArrayList<>();
+        TrieNode node = trie;
+        String key = prefix.toLowerCase();
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        if (node != null) {
+            collect(node, found, limit, accept);
+        }
+        return found;
+    }
+    
+    private void collect(TrieNode node, List<String> found, int limit, Predicate<String> accept) {
+        if (found.size() >= limit) {
+            return;
+        }
+        if (node.word != null && accept.test(node.word)) {
+            found.add(node.word);
+        }
+        for (TrieNode child : node.children) {
+            collect(child, found, limit, accept);
+        }
+    }
+    
+    /**
+     * Names within maxDistance edits of the word, closest first
+     */
+    public List<String> suggest(String word, int maxDistance, int limit) {
+        return suggest(word, maxDistance, limit, name -> true);
+    }
+    
+    // Names within maxDistance edits of the word that the filter accepts, closest first
+    public List<String> suggest(String word, int maxDistance, int limit, Predicate<String> accept) {
+        Search search = new Search(word.toLowerCase().toCharArray(), maxDistance, longest);
+        for (int i = 0; i < trie.keys.length; i++) {
+            search.walk(trie.children[i], trie.keys[i], 1);
+        }
+        
+        search.matches.sort((x, y) -> x.distance != y.distance
+            ? Integer.compare(x.distance, y.distance) : x.word.compareTo(y.word));
+        List<String> found = new ArrayList<>();
+        for (int i = 0; i < search.matches.size() && found.size() < limit; i++) {
+            String match = search.matches.get(i).word;
+            if (accept.test(match)) {
+                found.add(match);
+            }
+        }
+        return found;
+    }
+    
+    private static class Match {
+        private final String word;
+        private final int distance;
+        
+        private Match(String word, int distance) {
+            this.word = word;
+            this.distance = distance;
+        }
+    }
+    
+    /**
+     * Levenshtein search over the trie: each trie level adds one row of the
+     * edit distance table, shared by every name with that prefix. A branch is
+     * abandoned as soon as its whole row exceeds the limit, so only prefixes
+     * close to the word are ever visited. A prefix of length d can only be
+     * within the limit of the first d +/- maxDistance letters of the word, so
+     * each row only fills that band; a row costs the same however long the
+     * word is. Cells outside the band hold maxDistance + 1 and are never
+     * written.
+     */
+    private static class Search {
+        private final char[] word;
+        private final int maxDistance;
+        private final int[][] rows;
+        private final List<Match> matches = new ArrayList<>();
+        
+        private Search(char[] word, int maxDistance, int depth) {
+            this.word = word;
+            this.maxDistance = maxDistance;
+            this.rows = new int[depth + 1][word.length + 1];
+            int over = maxDistance + 1;
+            for (int[] row : rows) {
+                Arrays.fill(row, over);
+            }
+            for (int j = 0; j <= Math.min(word.length, maxDistance); j++) {
+                rows[0][j] = j;
+            }
+        }
+        
+        private void walk(TrieNode node, char c, int depth) {
+            int[] previous = rows[depth - 1];
+            int[] current = rows[depth];
+            int over = maxDistance + 1;
+            int from = Math.max(1, depth - maxDistance);
+            int to = Math.min(word.length, depth + maxDistance);
+            current[0] = Math.min(depth, over);
+            int best = current[0];
+            for (int j = from; j <= to; j++) {
+                int cost = word[j - 1] == c ? 0 : 1;
+                int cell = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                current[j] = Math.min(cell, over);
+                best = Math.min(best, current[j]);
+            }
+            if (best > maxDistance) {
+                return;
+            }
+            if (node.word != null && current[word.length] <= maxDistance) {
+                matches.add(new Match(node.word, current[word.length]));
+            }
+            for (int i = 0; i < node.keys.length; i++) {
+                walk(node.children[i], node.keys[i], depth + 1);
+            }
+        }
+    }
+    
+    /**
+     * The closest name to a misspelled word, or null if nothing is close.
+     * Words of up to three letters allow one edit, longer words two.
+     */
+    public String closest(String word) {
+        return closest(word, name -> true);
+    }
+    
+    // The closest name the filter accepts, or null
+    public String closest(String word, Predicate<String> accept) {
+        int maxDistance = word.length() <= 3 ? 1 : 2;
+        List<String> found = suggest(word, maxDistance, 1, accept);
+        if (found.isEmpty() || found.get(0).equalsIgnoreCase(word)) {
+            return null;
+        }
+        return found.get(0);
+    }
+    
+    public boolean contains(String name) {
+        TrieNode node = trie;
+        String key = name.toLowerCase();
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        return node != null && node.word != null;
+    }
+    
+    public int size() {
+        return size;
+    }
+}
\ No newline at end of file
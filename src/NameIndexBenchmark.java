@@ -0,0 +1,171 @@
+import java.util.*;
+
+/**
+ * Benchmark for autocomplete and "did you mean" lookups
+ * Fills a name index with made-up item names of one to three words, then
+ * times prefix completion and fuzzy suggestion for misspelled single-word
+ * and multi-word names, reporting the mean and the slowest queries against
+ * the one millisecond budget for a keystroke. A sample of the suggestions is
+ * checked against a brute-force scan of every name.
+ *
+ * Usage: java NameIndexBenchmark [names...]
+ */
+public class NameIndexBenchmark {
+    private static final String[] SYLLABLES = {
+        "an", "bel", "cor", "dra", "el", "fen", "gor", "hal", "ith", "kal", "lor", "mor",
+        "nix", "or", "pra", "quel", "ros", "sar", "tor", "ul", "vex", "wyn", "yth", "zan"
+    };
+    private static final int QUERIES = 2000;
+    private static final int CHECKED = 200;
+    private static final int LIMIT = 5;
+    private static final double BUDGET_MILLIS = 1.0;
+    
+    public static void main(String[] args) {
+        int[] sizes = args.length > 0 ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray() : new int[] { 30_000, 100_000 };
+        boolean correct = true;
+        for (int size : sizes) {
+            correct &= run(size);
+        }
+        System.out.println(correct ? "All suggestions match a brute-force scan" : "Suggestions differ from a brute-force scan!");
+    }
+    
+    private static boolean run(int size) {
+        Random random = new Random(42);
+        List<String> names = new ArrayList<>();
+        NameIndex index = new NameIndex();
+        long start = System.nanoTime();
+        while (names.size() < size) {
+            String name = randomName(random, 1 + random.nextInt(3));
+            if (index.add(name)) {
+                names.add(name);
+            }
+        }
+        System.out.printf("%,d names: built in %.1f ms%n", size, (System.nanoTime() - start) / 1e6);
+        
+        List<String> single = new ArrayList<>();
+        List<String> multi = new ArrayList<>();
+        while (single.size() < QUERIES || multi.size() < QUERIES) {
+            String name = names.get(random.nextInt(names.size()));
+            List<String> into = name.indexOf(' ') < 0 ? single : multi;
+            if (into.size() < QUERIES) {
+                into.add(misspell(name, random));
+            }
+        }
+        
+        // Warm up, then measure
+        for (int round = 0; round < 3; round++) {
+            time(index, single);
+            time(index, multi);
+        }
+        report("  complete", timeComplete(index, single));
+        report("  suggest, one word", time(index, single));
+        report("  suggest, several words", time(index, multi));
+        
+        boolean correct = true;
+        for (int i = 0; i < CHECKED; i++) {
+            String query = (i % 2 == 0 ? single : multi).get(i);
+            int maxDistance = query.length() <= 3 ? 1 : 2;
+            correct &= index.suggest(query, maxDistance, LIMIT).equals(bruteForce(names, query, maxDistance));
+        }
+        return correct;
+    }
+    
+    private static long[] time(NameIndex index, List<String> queries) {
+        long[] nanos = new long[queries.size()];
+        for (int i = 0; i < nanos.length; i++) {
+            String query = queries.get(i);
+            long start = System.nanoTime();
+            index.suggest(query, query.length() <= 3 ? 1 : 2, LIMIT);
+            nanos[i] = System.nanoTime() - start;
+        }
+        return nanos;
+    }
+    
+    private static long[] timeComplete(NameIndex index, List<String> queries) {
+        long[] nanos = new long[queries.size()];
+        for (int i = 0; i < nanos.length; i++) {
+            String prefix = queries.get(i).substring(0, 2);
+            long start = System.nanoTime();
+            index.complete(prefix, LIMIT);
+            nanos[i] = System.nanoTime() - start;
+        }
+        return nanos;
+    }
+    
+    private static void report(String label, long[] nanos) {
+        Arrays.sort(nanos);
+        double mean = Arrays.stream(nanos).average().orElse(0) / 1e6;
+        double p99 = nanos[nanos.length * 99 / 100] / 1e6;
+        double max = nanos[nanos.length - 1] / 1e6;
+        System.out.printf("%-26s mean %.3f ms, p99 %.3f ms, max %.3f ms%s%n",
+            label + ":", mean, p99, max, p99 <= BUDGET_MILLIS ? "" : "  (over budget)");
+    }
+    
+    private static String randomName(Random random, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int w = 0; w < words; w++) {
+            if (w > 0) {
+                sb.append(' ');
+            }
+            int syllables = 2 + random.nextInt(2);
+            for (int s = 0; s < syllables; s++) {
+                sb.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+        }
+        return sb.toString();
+    }
+    
+    // One or two typos: a letter dropped, doubled or changed
+    private static String misspell(String name, Random random) {
+        StringBuilder sb = new StringBuilder(name);
+        int typos = 1 + random.nextInt(2);
+        for (int t = 0; t < typos && sb.length() > 1; t++) {
+            int at = random.nextInt(sb.length());
+            switch (random.nextInt(3)) {
+                case 0:
+                    sb.deleteCharAt(at);
+                    break;
+                case 1:
+                    sb.insert(at, sb.charAt(at));
+                    break;
+                default:
+                    sb.setCharAt(at, (char) ('a' + random.nextInt(26)));
+            }
+        }
+        return sb.toString();
+    }
+    
+    // What the index should answer: every name within the distance, closest first
+    private static List<String> bruteForce(List<String> names, String query, int maxDistance) {
+        List<String> within = new ArrayList<>();
+        Map<String, Integer> distances = new HashMap<>();
+        for (String name : names) {
+            int distance = distance(name, query);
+            if (distance <= maxDistance) {
+                within.add(name);
+                distances.put(name, distance);
+            }
+        }
+        within.sort(Comparator.comparing((String name) -> distances.get(name)).thenComparing(name -> name));
+        return within.subList(0, Math.min(LIMIT, within.size()));
+    }
+    
+    private static int distance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
\ No newline at end of file
@@ -0,0 +1,94 @@
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded queue of messages waiting to be shown to one player
+ * Other players' actions are queued here without blocking and the owning
+ * session drains them as a single batch once per tick. When a slow consumer
+ * falls behind, the policy decides what happens to the overflow.
+ */
+public class Outbox {
+    
+    /**
+     * What to do when the outbox is full
+     */
+    public enum Policy {
+        // Discard the oldest queued message to make room
+        DROP_OLDEST,
+        // Keep the queued messages and summarise the overflow as a count
+        COALESCE
+    }
+    
+    private final Queue<String> queue;
+    private final AtomicInteger size;
+    private final AtomicInteger skipped;
+    private final int capacity;
+    private final Policy policy;
+    
+    public Outbox(int capacity, Policy policy) {
+        this.queue = new ConcurrentLinkedQueue<>();
+        this.size = new AtomicInteger();
+        this.skipped = new AtomicInteger();
+        this.capacity = capacity;
+        this.policy = policy;
+    }
+    
+    /**
+     * Queue a message. Never blocks, whatever the state of the consumer.
+     */
+    public void offer(String message) {
+        if (size.incrementAndGet() <= capacity) {
+            queue.offer(message);
+            return;
+        }
+        size.decrementAndGet();
+        skipped.incrementAndGet();
+        
+        if (policy == Policy.DROP_OLDEST) {
+            // Replace the oldest message; if the owner drained it meanwhile just append
+            if (queue.poll() == null) {
+                size.incrementAndGet();
+            }
+            queue.offer(message);
+        }
+    }
+    
+    /**
+     * Take everything queued as one newline-separated batch, or null if empty
+     */
+    public String drain() {
+        StringBuilder batch = null;
+        String message;
+        while ((message = queue.poll()) != null) {
+            size.decrementAndGet();
+            if (batch == null) {
+                batch = new StringBuilder();
+            } else {
+                batch.append('\n');
+            }
+            batch.append(message);
+        }
+        
+        int overflow = skipped.getAndSet(0);
+        if (overflow > 0 && policy == Policy.COALESCE) {
+            if (batch == null) {
+                batch = new StringBuilder();
+            } else {
+                batch.append('\n');
+            }
+            batch.append("(").append(overflow).append(overflow == 1 ? " more thing" : " more things")
+                .append(" happened nearby)");
+        }
+        return batch != null ? batch.toString() : null;
+    }
+    
+    // Messages dropped or coalesced since the last drain
+    public int getSkipped() {
+        return skipped.get();
+    }
+    
+    public int size() {
+        return size.get();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,174 @@
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Immutable indexed sequence with structural sharing
+ * Elements live in a tree of 32-slot nodes. Changing or appending an element
+ * copies only the nodes on the path to it (a handful even for millions of
+ * elements) and shares everything else with the previous version, so keeping
+ * every version around costs memory in proportion to the changes.
+ *
+ * Removed elements leave an empty slot that iteration skips; once more than
+ * half the slots are empty the vector is rebuilt without them.
+ */
+public final class PersistentVector<T> implements Iterable<T> {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final PersistentVector<?> EMPTY = new PersistentVector<>(new Object[WIDTH], BITS, 0, 0);
+    
+    private final Object[] root;
+    private final int shift;
+    private final int size;
+    private final int count;
+    
+    private PersistentVector(Object[] root, int shift, int size, int count) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+        this.count = count;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public static <T> PersistentVector<T> empty() {
+        return (PersistentVector<T>) EMPTY;
+    }
+    
+    public static <T> PersistentVector<T> of(Collection<? extends T> values) {
+        PersistentVector<T> vector = empty();
+        for (T value : values) {
+            vector = vector.append(value);
+        }
+        return vector;
+    }
+    
+    // Slots in use, including empty ones left by removals
+    public int size() {
+        return size;
+    }
+    
+    // Elements present
+    public int count() {
+        return count;
+    }
+    
+    public boolean isEmpty() {
+        return count == 0;
+    }
+    
+    /**
+     * The element in a slot, or null if it was removed
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        Objects.checkIndex(index, size);
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[index >>> level & MASK];
+        }
+        return (T) node[index & MASK];
+    }
+    
+    /**
+     * A new vector with one slot replaced
+     */
+    public PersistentVector<T> set(int index, T value) {
+        Objects.checkIndex(index, size);
+        T old = get(index);
+        if (old == value) {
+            return this;
+        }
+        int live = count + (value != null ? 1 : 0) - (old != null ? 1 : 0);
+        return new PersistentVector<>(assoc(root, shift, index, value), shift, size, live);
+    }
+    
+    /**
+     * A new vector with the value added at the end
+     */
+    public PersistentVector<T> append(T value) {
+        int live = count + (value != null ? 1 : 0);
+        // Grow a level when the tree is full
+        if (size == 1 << (shift + BITS)) {
+            Object[] top = new Object[WIDTH];
+            top[0] = root;
+            return new PersistentVector<>(assoc(top, shift + BITS, size, value), shift + BITS, size + 1, live);
+        }
+        return new PersistentVector<>(assoc(root, shift, size, value), shift, size + 1, live);
+    }
+    
+    /**
+     * A new vector without the element in a slot. The slot is left empty
+     * until enough have built up to be worth compacting.
+     */
+    public PersistentVector<T> remove(int index) {
+        PersistentVector<T> removed = set(index, null);
+        if (removed.size > WIDTH && removed.count * 2 < removed.size) {
+            PersistentVector<T> compact = empty();
+            for (T value : removed) {
+                compact = compact.append(value);
+            }
+            return compact;
+        }
+        return removed;
+    }
+    
+    // Copy the path to a slot, creating nodes as needed
+    private static Object[] assoc(Object[] node, int level, int index, Object value) {
+        Object[] copy = node != null ? node.clone() : new Object[WIDTH];
+        int slot = index >>> level & MASK;
+        if (level == 0) {
+            copy[index & MASK] = value;
+        } else {
+            copy[slot] = assoc((Object[]) copy[slot], level - BITS, index, value);
+        }
+        return copy;
+    }
+    
+    /**
+     * The elements present, in order, skipping empty slots
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int next = advance(0);
+            
+            private int advance(int from) {
+                while (from < size && get(from) == null) {
+                    from++;
+                }
+                return from;
+            }
+            
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+            
+            @Override
+            public T next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                T value = get(next);
+                next = advance(next + 1);
+                return value;
+            }
+        };
+    }
+    
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        for (int i = 0; i < size; i++) {
+            T value = get(i);
+            if (value != null) {
+                action.accept(value);
+            }
+        }
+    }
+    
+    public List<T> toList() {
+        List<T> list = new ArrayList<>(count);
+        forEach(list::add);
+        return list;
+    }
+}
\ No newline at end of file
@@ -6,29 +6,53 @@ import java.util.*;
  */
 public class Player {
     private String name;
-    private Location currentLocation;
-    private List<Item> inventory;
+    private volatile Location currentLocation;
+    // Persistent, so a snapshot of the inventory is just this reference
+    private PersistentVector<Item> inventory;
+    private final ContainerIndex containers = new ContainerIndex();
     private int health;
     private int maxHealth;
     private boolean gameWon;
     private boolean gameLost;
+    private TimingWheel effects;
+    private MessageSink notices;
+    // Timers this player has started, in the order they were started; undo rewinds them
+    private final List<TimedEffect> timers = new ArrayList<>();
+    // The pending burnout of a lit torch, null when no torch is lit
+    private Runnable torchBurnout;
+    // Run statistics; not rewound by undo
+    private int moves;
+    private int damageTaken;
+    // Every roll this player's game makes; not rewound by undo
+    private SplittableRandom dice;
+    
+    // Timed item effects, in world ticks
+    private static final int POTION_HEAL_TICKS = 5;
+    private static final int TORCH_BURN_TICKS = 40;
     
     public Player(String name, Location startingLocation) {
         this.name = name;
         this.currentLocation = startingLocation;
-        this.inventory = new ArrayList<>();
+        startingLocation.enter(this);
+        this.inventory = PersistentVector.empty();
         this.health = 100;
         this.maxHealth = 100;
         this.gameWon = false;
         this.gameLost = false;
+        this.dice = new SplittableRandom();
     }
     
     // Move to a new location
     public boolean move(String direction) {
+        GameEvents.WorldMutation event = GameEvents.WorldMutation.start();
         Location nextLocation = currentLocation.getConnection(direction);
         if (nextLocation != null) {
+            nextLocation.enter(this);
+            currentLocation.leave(this);
             currentLocation = nextLocation;
             currentLocation.setVisited(true);
+            moves++;
+            event.finish("move", currentLocation.getId(), direction);
             return true;
         }
         return false;
@@ -37,30 +61,60 @@ public class Player {
     // Add item to inventory
     public boolean addItem(Item item) {
         if (item.canTake()) {
-            inventory.add(item);
+            inventory = inventory.append(item);
+            containers.addTop(item);
             return true;
         }
         return false;
     }
     
-    // Remove item from inventory
+    // Remove item from inventory, preferring this very item over one with the same name
     public boolean removeItem(Item item) {
-        return inventory.remove(item);
+        int found = -1;
+        for (int i = 0; i < inventory.size(); i++) {
+            Item held = inventory.get(i);
+            if (held == item) {
+                found = i;
+                break;
+            }
+            if (found < 0 && held != null && held.equals(item)) {
+                found = i;
+            }
+        }
+        if (found < 0) {
+            return false;
+        }
+        containers.removeTop(inventory.get(found));
+        inventory = inventory.remove(found);
+        return true;
     }
     
     // Get item from inventory by name
     public Item getInventoryItem(String itemName) {
         for (Item item : inventory) {
-            if (item.getName().equalsIgnoreCase(itemName)) {
+            if (item.matches(itemName)) {
                 return item;
             }
         }
         return null;
     }
     
-    // Check if player has an item
+    // Check if player has an item, loose or inside something carried
     public boolean hasItem(String itemName) {
-        return getInventoryItem(itemName) != null;
+        return getInventoryItem(itemName) != null || containers.holderOf(itemName) != null;
+    }
+    
+    /**
+     * The carried container, at any depth, holding an item of this name,
+     * or null. One index lookup, without searching the containers.
+     */
+    public Container findHolder(String itemName) {
+        return containers.holderOf(itemName);
+    }
+    
+    // Names of the items inside carried containers
+    public Set<String> getNestedNames() {
+        return containers.names();
     }
     
     // Use an item
@@ -79,12 +133,35 @@ public class Player {
     
     // Handle special item usage
     private void handleItemUse(Item item) {
-        String itemName = item.getName().toLowerCase();
+        String itemName = item.getKey();
         switch (itemName) {
             case "potion":
-                heal(25);
+                if (effects != null) {
+                    // Heal gradually over the next few ticks
+                    for (int i = 1; i <= POTION_HEAL_TICKS; i++) {
+                        schedule(i, () -> {
+                            if (isAlive()) {
+                                heal(25 / POTION_HEAL_TICKS);
+                            }
+                        });
+                    }
+                } else {
+                    heal(25);
+                }
                 removeItem(item);
                 break;
+            case "torch":
+                // A lit torch burns out after a while
+                if (effects != null && torchBurnout == null) {
+                    torchBurnout = () -> {
+                        torchBurnout = null;
+                        if (removeItem(item)) {
+                            notices.send("Your torch sputters and burns out.", MessageSink.Tone.ERROR);
+                        }
+                    };
+                    schedule(TORCH_BURN_TICKS, torchBurnout);
+                }
+                break;
             case "key":
                 // Key usage is handled in specific locations
                 break;
@@ -96,6 +173,7 @@ public class Player {
     
     // Health management
     public void takeDamage(int damage) {
+        damageTaken += damage;
         health -= damage;
         if (health <= 0) {
             health = 0;
@@ -103,6 +181,23 @@ public class Player {
         }
     }
     
+    /**
+     * Roll an amount between min and max inclusive on this player's dice.
+     * A fixed amount rolls nothing, so it leaves the dice where they were.
+     */
+    public int roll(int min, int max) {
+        return max <= min ? min : dice.nextInt(min, max + 1);
+    }
+    
+    // Seed the dice, so a session's rolls can be replayed
+    public void setDice(SplittableRandom dice) {
+        this.dice = dice;
+    }
+    
+    public SplittableRandom getDice() {
+        return dice;
+    }
+    
     public void heal(int amount) {
         health += amount;
         if (health > maxHealth) {
@@ -110,6 +205,119 @@ public class Player {
         }
     }
     
+    /**
+     * A timed effect and the timer that will run it
+     */
+    private static final class TimedEffect {
+        private final Runnable task;
+        private final TimingWheel.Timeout timeout;
+        
+        TimedEffect(Runnable task, TimingWheel.Timeout timeout) {
+            this.task = task;
+            this.timeout = timeout;
+        }
+    }
+    
+    /**
+     * Run a task on the world's timing wheel after a number of ticks. The
+     * timer is part of this player's state, so undo cancels it when it was
+     * started after the turn being returned to, and starts it again when it
+     * was still pending then.
+     */
+    public void schedule(long delay, Runnable task) {
+        pendingTimers().add(new TimedEffect(task, effects.schedule(delay, task)));
+    }
+    
+    // The timers that have yet to run, dropping those that have
+    private List<TimedEffect> pendingTimers() {
+        timers.removeIf(timer -> !timer.timeout.isPending());
+        return timers;
+    }
+    
+    /**
+     * The player's location, health, outcome and inventory at one moment,
+     * with the timed effects that were pending and how far off each one was
+     */
+    public static final class Memento {
+        private static final Runnable[] NO_TASKS = new Runnable[0];
+        private static final long[] NO_DELAYS = new long[0];
+        
+        private final Location location;
+        private final int health;
+        private final boolean gameWon;
+        private final boolean gameLost;
+        private final PersistentVector<Item> inventory;
+        private final Runnable[] tasks;
+        private final long[] delays;
+        private final Runnable torchBurnout;
+        
+        private Memento(Player player) {
+            this.location = player.currentLocation;
+            this.health = player.health;
+            this.gameWon = player.gameWon;
+            this.gameLost = player.gameLost;
+            this.inventory = player.inventory;
+            this.torchBurnout = player.torchBurnout;
+            
+            List<TimedEffect> timers = player.pendingTimers();
+            if (timers.isEmpty()) {
+                this.tasks = NO_TASKS;
+                this.delays = NO_DELAYS;
+            } else {
+                this.tasks = new Runnable[timers.size()];
+                this.delays = new long[timers.size()];
+                long now = player.effects.getCurrentTick();
+                for (int i = 0; i < tasks.length; i++) {
+                    tasks[i] = timers.get(i).task;
+                    delays[i] = timers.get(i).timeout.getDeadline() - now;
+                }
+            }
+        }
+        
+        // Whether the player is still exactly in this state; pending timers match by task, not by delay
+        public boolean matches(Player player) {
+            if (location != player.currentLocation || health != player.health || gameWon != player.gameWon
+                || gameLost != player.gameLost || inventory != player.inventory || torchBurnout != player.torchBurnout) {
+                return false;
+            }
+            List<TimedEffect> timers = player.pendingTimers();
+            if (timers.size() != tasks.length) {
+                return false;
+            }
+            for (int i = 0; i < tasks.length; i++) {
+                if (timers.get(i).task != tasks[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+    
+    // Capture the current state; shares the inventory rather than copying it
+    public Memento save() {
+        return new Memento(this);
+    }
+    
+    // Return to a saved state
+    public void restore(Memento memento) {
+        setCurrentLocation(memento.location);
+        health = memento.health;
+        gameWon = memento.gameWon;
+        gameLost = memento.gameLost;
+        inventory = memento.inventory;
+        containers.rebuild(inventory);
+        
+        // Timers started since are cancelled; those pending then run again, as far off as they were
+        for (TimedEffect timer : timers) {
+            effects.cancel(timer.timeout);
+        }
+        timers.clear();
+        for (int i = 0; i < memento.tasks.length; i++) {
+            timers.add(new TimedEffect(memento.tasks[i], effects.schedule(memento.delays[i], memento.tasks[i])));
+        }
+        torchBurnout = memento.torchBurnout;
+    }
+    
     // Get inventory display
     public String getInventoryDisplay() {
         if (inventory.isEmpty()) {
@@ -118,7 +326,11 @@ public class Player {
         
         StringBuilder sb = new StringBuilder("Your inventory contains:\n");
         for (Item item : inventory) {
-            sb.append("- ").append(item.getName()).append("\n");
+            sb.append("- ").append(item.getName());
+            if (item instanceof Container && !((Container) item).isEmpty()) {
+                sb.append(" (holding ").append(((Container) item).describeContents()).append(")");
+            }
+            sb.append("\n");
         }
         return sb.toString();
     }
@@ -128,28 +340,59 @@ public class Player {
         return "Health: " + health + "/" + maxHealth + "\n" + getInventoryDisplay();
     }
     
+    /**
+     * Enable timed item effects. Without a wheel, effects apply instantly.
+     */
+    public void setEffects(TimingWheel effects, MessageSink notices) {
+        this.effects = effects;
+        this.notices = notices;
+    }
+    
+    public TimingWheel getEffects() {
+        return effects;
+    }
+    
     // Getters and setters
     public String getName() {
         return name;
     }
     
+    // Moves made so far
+    public int getMoves() {
+        return moves;
+    }
+    
+    // Total damage taken so far, before healing
+    public int getDamageTaken() {
+        return damageTaken;
+    }
+    
     public Location getCurrentLocation() {
         return currentLocation;
     }
     
     public void setCurrentLocation(Location location) {
+        if (location == currentLocation) {
+            return;
+        }
+        location.enter(this);
+        currentLocation.leave(this);
         this.currentLocation = location;
         location.setVisited(true);
     }
     
     public List<Item> getInventory() {
-        return new ArrayList<>(inventory);
+        return inventory.toList();
     }
     
     public int getHealth() {
         return health;
     }
     
+    public int getMaxHealth() {
+        return maxHealth;
+    }
+    
     public void setHealth(int health) {
         this.health = Math.max(0, Math.min(health, maxHealth));
     }
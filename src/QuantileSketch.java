@@ -0,0 +1,143 @@
+import java.io.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mergeable quantile sketch for non-negative values
+ * Values are counted in logarithmic buckets, each 2% wider than the one
+ * below, so any quantile is within about 1% of the true value whatever the
+ * spread. Buckets are striped across threads so concurrent recording does
+ * not contend on one counter; sketches merge by adding bucket counts, and
+ * answering a quantile walks the buckets once.
+ */
+public class QuantileSketch {
+    private static final double GAMMA = 1.02;
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    // Enough buckets for values up to about 10^12
+    private static final int BUCKETS = 1400;
+    private static final int STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors()) * 2;
+    
+    private final AtomicLongArray[] stripes;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    
+    public QuantileSketch() {
+        stripes = new AtomicLongArray[STRIPES];
+        for (int s = 0; s < STRIPES; s++) {
+            stripes[s] = new AtomicLongArray(BUCKETS);
+        }
+    }
+    
+    // Bucket 0 holds zero; bucket i holds values in (GAMMA^(i-2), GAMMA^(i-1)]
+    private static int bucketOf(long value) {
+        if (value <= 0) {
+            return 0;
+        }
+        return Math.min(BUCKETS - 1, 1 + (int) Math.ceil(Math.log(value) / LOG_GAMMA));
+    }
+    
+    // A representative value for a bucket, in the middle of its range
+    private static double valueOf(int bucket) {
+        if (bucket == 0) {
+            return 0;
+        }
+        return 2 * Math.pow(GAMMA, bucket - 1) / (1 + GAMMA);
+    }
+    
+    public void record(long value) {
+        int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        stripes[stripe].incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(Math.max(0, value));
+    }
+    
+    /**
+     * Add another sketch's counts into this one
+     */
+    public void merge(QuantileSketch other) {
+        for (int b = 0; b < BUCKETS; b++) {
+            long n = other.bucketCount(b);
+            if (n != 0) {
+                stripes[0].addAndGet(b, n);
+            }
+        }
+        count.add(other.count.sum());
+        sum.add(other.sum.sum());
+    }
+    
+    private long bucketCount(int bucket) {
+        long n = 0;
+        for (AtomicLongArray stripe : stripes) {
+            n += stripe.get(bucket);
+        }
+        return n;
+    }
+    
+    public long count() {
+        return count.sum();
+    }
+    
+    public double mean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+    
+    /**
+     * The value at quantile q (0 to 1), or 0 if nothing has been recorded
+     */
+    public double quantile(double q) {
+        long n = count.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * n));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += bucketCount(b);
+            if (seen >= rank) {
+                return valueOf(b);
+            }
+        }
+        return valueOf(BUCKETS - 1);
+    }
+    
+    /**
+     * Write the non-empty buckets
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        // Copy first, so values recorded while writing can't make the count disagree with the buckets
+        long[] counts = new long[BUCKETS];
+        int used = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            counts[b] = bucketCount(b);
+            if (counts[b] != 0) {
+                used++;
+            }
+        }
+        out.writeLong(sum.sum());
+        out.writeShort(used);
+        for (int b = 0; b < BUCKETS; b++) {
+            if (counts[b] != 0) {
+                out.writeShort(b);
+                out.writeLong(counts[b]);
+            }
+        }
+    }
+    
+    /**
+     * Add counts written by writeTo
+     */
+    public void readFrom(DataInputStream in) throws IOException {
+        sum.add(in.readLong());
+        int used = in.readUnsignedShort();
+        for (int i = 0; i < used; i++) {
+            int bucket = in.readUnsignedShort();
+            long n = in.readLong();
+            if (bucket >= BUCKETS) {
+                throw new IOException("Bad sketch bucket " + bucket);
+            }
+            stripes[0].addAndGet(bucket, n);
+            count.add(n);
+        }
+    }
+}
\ No newline at end of file
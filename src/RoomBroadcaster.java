@@ -0,0 +1,61 @@
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Room-scoped messages between players sharing a world
+ * Publishing an action ("Alice takes the key") only queues it in the outboxes
+ * of the other players in the same room; each player's session drains its own
+ * outbox once per tick, so a crowded room costs one queue offer per occupant
+ * rather than one synchronous write. Recipients come from the rooms' presence
+ * index, so players elsewhere in the world are never visited.
+ */
+public class RoomBroadcaster {
+    private static final int OUTBOX_CAPACITY = 64;
+    
+    private final Map<Player, Outbox> outboxes;
+    
+    public RoomBroadcaster() {
+        this.outboxes = new ConcurrentHashMap<>();
+    }
+    
+    /**
+     * Start delivering room messages to a player
+     */
+    public Outbox join(Player player) {
+        return outboxes.computeIfAbsent(player, p -> new Outbox(OUTBOX_CAPACITY, Outbox.Policy.COALESCE));
+    }
+    
+    // Stop delivering room messages to a player
+    public void leave(Player player) {
+        outboxes.remove(player);
+    }
+    
+    /**
+     * Queue a message for every other player in the room.
+     * Returns the number of players it was queued for.
+     */
+    public int publish(Location room, Player actor, String text) {
+        return deliver(room.getOccupants(), actor, text);
+    }
+    
+    /**
+     * Queue a message for the other players in the room and the rooms next to it
+     */
+    public int publishNearby(Location room, Player actor, String text) {
+        return deliver(room.getOccupants(true), actor, text);
+    }
+    
+    // Cost is proportional to the occupants, not to every player in the world
+    private int deliver(Collection<Player> occupants, Player actor, String text) {
+        int recipients = 0;
+        for (Player player : occupants) {
+            Outbox outbox = outboxes.get(player);
+            if (player != actor && outbox != null) {
+                outbox.offer(text);
+                recipients++;
+            }
+        }
+        return recipients;
+    }
+}
\ No newline at end of file
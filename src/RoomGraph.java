@@ -0,0 +1,82 @@
+import java.util.*;
+
+/**
+ * Integer-indexed view of the location graph
+ * Rooms are numbered 0..n-1 and each room's exits are stored as an int array,
+ * so simulations can walk the map without string lookups
+ */
+public class RoomGraph {
+    private Location[] rooms;
+    private int[][] exits;
+    private Map<Location, Integer> index;
+    
+    public RoomGraph(Collection<Location> locations) {
+        List<Location> sorted = new ArrayList<>(locations);
+        sorted.sort(Comparator.comparing(Location::getId));
+        
+        rooms = sorted.toArray(new Location[0]);
+        index = new IdentityHashMap<>();
+        for (int i = 0; i < rooms.length; i++) {
+            index.put(rooms[i], i);
+        }
+        
+        exits = new int[rooms.length][];
+        for (int i = 0; i < rooms.length; i++) {
+            List<Integer> targets = new ArrayList<>();
+            for (String direction : rooms[i].getAvailableDirections()) {
+                Integer target = index.get(rooms[i].getConnection(direction));
+                if (target != null) {
+                    targets.add(target);
+                }
+            }
+            exits[i] = new int[targets.size()];
+            for (int j = 0; j < exits[i].length; j++) {
+                exits[i][j] = targets.get(j);
+            }
+        }
+    }
+    
+    // Graph without Location objects, used for generated benchmark worlds
+    public RoomGraph(int[][] exits) {
+        this.rooms = new Location[exits.length];
+        this.exits = exits;
+        this.index = new IdentityHashMap<>();
+    }
+    
+    /**
+     * Generate a width x height grid of rooms connected to their four neighbours
+     */
+    public static RoomGraph grid(int width, int height) {
+        int[][] exits = new int[width * height][];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int[] around = new int[4];
+                int n = 0;
+                if (y > 0) around[n++] = (y - 1) * width + x;
+                if (y < height - 1) around[n++] = (y + 1) * width + x;
+                if (x > 0) around[n++] = y * width + x - 1;
+                if (x < width - 1) around[n++] = y * width + x + 1;
+                exits[y * width + x] = Arrays.copyOf(around, n);
+            }
+        }
+        return new RoomGraph(exits);
+    }
+    
+    // Index of a location, or -1 if it is not part of this graph
+    public int indexOf(Location location) {
+        Integer i = index.get(location);
+        return i != null ? i : -1;
+    }
+    
+    public Location getRoom(int room) {
+        return rooms[room];
+    }
+    
+    public int[] exitsOf(int room) {
+        return exits[room];
+    }
+    
+    public int size() {
+        return exits.length;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,121 @@
+import java.util.Arrays;
+
+/**
+ * The items lying in a location, safe to share between players
+ * Changes are made in place to a growable array under the room's lock, so
+ * adding an item is O(1) and taking one only shifts the items after it; a
+ * change never retries and never copies the room. Finding an item by name
+ * reads the live contents. Snapshots are an immutable copy made at most once
+ * per change, on the first snapshot after it, and shared until the next
+ * change, so reading a room that has not changed never locks. Claiming an item succeeds for exactly one
+ * player: items are never duplicated or lost when several players grab at once.
+ */
+public class RoomItems {
+    private static final Item[] EMPTY = new Item[0];
+    
+    // The live contents, guarded by this
+    private Item[] buffer;
+    private int size;
+    // The contents as an immutable array, or null when it is out of date
+    private volatile Item[] published;
+    
+    public RoomItems() {
+        this.buffer = EMPTY;
+        this.published = EMPTY;
+    }
+    
+    // Add an item
+    public synchronized void add(Item item) {
+        if (size == buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(4, size * 2));
+        }
+        buffer[size++] = item;
+        published = null;
+    }
+    
+    // Remove the first item equal to the given one (same name)
+    public synchronized boolean remove(Item item) {
+        for (int i = 0; i < size; i++) {
+            if (buffer[i].equals(item)) {
+                removeAt(i);
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Atomically take this exact item instance. Returns false if another
+     * player claimed it first.
+     */
+    public synchronized boolean claim(Item item) {
+        for (int i = 0; i < size; i++) {
+            if (buffer[i] == item) {
+                removeAt(i);
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    // Find an item by name; without locking unless the room changed since the last snapshot
+    public Item find(String itemName) {
+        Item[] items = published;
+        if (items != null) {
+            return find(items, items.length, itemName);
+        }
+        synchronized (this) {
+            return find(buffer, size, itemName);
+        }
+    }
+    
+    private static Item find(Item[] items, int count, String itemName) {
+        for (int i = 0; i < count; i++) {
+            if (items[i].matches(itemName)) {
+                return items[i];
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * The current contents. The array is never modified, so callers may
+     * iterate it freely while other players change the room, and an
+     * unchanged room returns the very same array every time.
+     */
+    public Item[] snapshot() {
+        Item[] items = published;
+        if (items != null) {
+            return items;
+        }
+        synchronized (this) {
+            if (published == null) {
+                published = size == 0 ? EMPTY : Arrays.copyOf(buffer, size);
+            }
+            return published;
+        }
+    }
+    
+    // Put back contents taken earlier with snapshot()
+    public synchronized void restore(Item[] contents) {
+        buffer = Arrays.copyOf(contents, Math.max(4, contents.length));
+        size = contents.length;
+        published = contents;
+    }
+    
+    public boolean isEmpty() {
+        Item[] items = published;
+        if (items != null) {
+            return items.length == 0;
+        }
+        synchronized (this) {
+            return size == 0;
+        }
+    }
+    
+    private void removeAt(int index) {
+        System.arraycopy(buffer, index + 1, buffer, index, size - index - 1);
+        buffer[--size] = null;
+        published = null;
+    }
+}
\ No newline at end of file
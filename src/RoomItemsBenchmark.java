@@ -0,0 +1,163 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Benchmark for items shared between players in a room
+ * Threads shuttle items between two rooms as fast as they can, each one
+ * claiming an item from one room and dropping it in the other, so every
+ * claim races the other threads for the same items. Lookups by name are
+ * left out, as they cost the same either way; this times the changes. Then every item
+ * is counted: each must be in exactly one room, or the room lost or
+ * duplicated it. The same run is timed against a copy-on-write array swapped
+ * with compare-and-set, which copies the room on every change and retries
+ * under contention.
+ *
+ * Usage: java RoomItemsBenchmark [items] [moves per thread] [threads...]
+ */
+public class RoomItemsBenchmark {
+    public static void main(String[] args) throws Exception {
+        int itemCount = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int moves = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int[] threadCounts = args.length > 2
+            ? Arrays.stream(args, 2, args.length).mapToInt(Integer::parseInt).toArray()
+            : new int[] { 1, 2, 4, 8 };
+        
+        Item[] items = new Item[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            items[i] = new Item("coin " + i, "A gold coin", true);
+        }
+        
+        boolean intact = true;
+        for (int round = 0; round < 2; round++) {
+            boolean report = round == 1;
+            for (int threads : threadCounts) {
+                RoomItems a = new RoomItems();
+                RoomItems b = new RoomItems();
+                for (Item item : items) {
+                    a.add(item);
+                }
+                long nanos = run(threads, moves, items, a::claim, a::add, b::claim, b::add);
+                intact &= intact(items, a.snapshot(), b.snapshot());
+                
+                CopyOnWrite c = new CopyOnWrite();
+                CopyOnWrite d = new CopyOnWrite();
+                for (Item item : items) {
+                    c.add(item);
+                }
+                long casNanos = run(threads, moves, items, c::claim, c::add, d::claim, d::add);
+                intact &= intact(items, c.snapshot(), d.snapshot());
+                
+                if (report) {
+                    long total = (long) threads * moves;
+                    System.out.printf("%d threads, %,d items: room %.3f us/move, copy-on-write CAS %.3f us/move%n",
+                        threads, itemCount, nanos / 1e3 / total, casNanos / 1e3 / total);
+                }
+            }
+        }
+        System.out.println(intact ? "No item duplicated or lost" : "Items duplicated or lost!");
+    }
+    
+    // Run the threads; each tries a random item in a random direction and only counts moves it won
+    private static long run(int threads, int moves, Item[] items, Claim claimA, Add addA,
+                            Claim claimB, Add addB) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> done = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            done.add(pool.submit(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                start.await();
+                int moved = 0;
+                while (moved < moves) {
+                    boolean forward = random.nextBoolean();
+                    Item item = items[random.nextInt(items.length)];
+                    if ((forward ? claimA : claimB).claim(item)) {
+                        (forward ? addB : addA).add(item);
+                        moved++;
+                    }
+                }
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : done) {
+            future.get();
+        }
+        long nanos = System.nanoTime() - begin;
+        pool.shutdown();
+        return nanos;
+    }
+    
+    // Whether every item is in exactly one of the rooms
+    private static boolean intact(Item[] items, Item[] a, Item[] b) {
+        Map<Item, Integer> seen = new IdentityHashMap<>();
+        for (Item item : a) {
+            seen.merge(item, 1, Integer::sum);
+        }
+        for (Item item : b) {
+            seen.merge(item, 1, Integer::sum);
+        }
+        if (seen.size() != items.length) {
+            return false;
+        }
+        for (Item item : items) {
+            if (!Integer.valueOf(1).equals(seen.get(item))) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private interface Claim {
+        boolean claim(Item item);
+    }
+    
+    private interface Add {
+        void add(Item item);
+    }
+    
+    // What rooms used to do: copy the array on every change and retry the swap when another player got there first
+    private static class CopyOnWrite {
+        private final AtomicReference<Item[]> items = new AtomicReference<>(new Item[0]);
+        
+        void add(Item item) {
+            while (true) {
+                Item[] current = items.get();
+                Item[] next = Arrays.copyOf(current, current.length + 1);
+                next[current.length] = item;
+                if (items.compareAndSet(current, next)) {
+                    return;
+                }
+            }
+        }
+        
+        boolean claim(Item item) {
+            while (true) {
+                Item[] current = items.get();
+                int index = -1;
+                for (int i = 0; i < current.length; i++) {
+                    if (current[i] == item) {
+                        index = i;
+                        break;
+                    }
+                }
+                if (index < 0) {
+                    return false;
+                }
+                Item[] next = new Item[current.length - 1];
+                System.arraycopy(current, 0, next, 0, index);
+                System.arraycopy(current, index + 1, next, index, current.length - index - 1);
+                if (items.compareAndSet(current, next)) {
+                    return true;
+                }
+            }
+        }
+        
+        Item[] snapshot() {
+            return items.get();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,320 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics over every finished run, from all sessions
+ * Outcomes and deaths per room are striped counters, completion time, moves
+ * to win and damage taken go into quantile sketches, and the fastest and
+ * shortest wins are kept in bounded top-N boards, so recording a run never
+ * takes a global lock. Reading a count or a quantile is O(1) in the number
+ * of runs, and reading a board is O(N).
+ *
+ * Start with -Dadventure.stats=file to load the statistics from that file
+ * and save them back every SAVE_SECONDS and at exit.
+ */
+public class RunStats {
+    public static final int TOP_N = 10;
+    private static final int SAVE_SECONDS = 60;
+    private static final int MAGIC = 0x52554E53;
+    private static final int VERSION = 1;
+    private static final RunStats INSTANCE = new RunStats();
+    
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder wins = new LongAdder();
+    private final LongAdder deaths = new LongAdder();
+    private final Map<String, LongAdder> deathsByRoom = new ConcurrentHashMap<>();
+    private final QuantileSketch winMillis = new QuantileSketch();
+    private final QuantileSketch winMoves = new QuantileSketch();
+    private final QuantileSketch damage = new QuantileSketch();
+    private final Leaderboard fastest = new Leaderboard(TOP_N);
+    private final Leaderboard shortest = new Leaderboard(TOP_N);
+    
+    /**
+     * How a run ended
+     */
+    public enum Outcome {
+        WON, DIED, QUIT
+    }
+    
+    public RunStats() {
+    }
+    
+    /**
+     * The shared statistics, loaded from and saved to the file named by
+     * adventure.stats if it is set
+     */
+    public static RunStats get() {
+        return INSTANCE;
+    }
+    
+    static {
+        String file = System.getProperty("adventure.stats");
+        if (file != null) {
+            INSTANCE.persistTo(Paths.get(file), SAVE_SECONDS);
+        }
+    }
+    
+    /**
+     * Record a finished run
+     */
+    public void record(String player, Outcome outcome, long millis, int moves, int damageTaken, String room) {
+        runs.increment();
+        damage.record(damageTaken);
+        switch (outcome) {
+            case WON:
+                wins.increment();
+                winMillis.record(millis);
+                winMoves.record(moves);
+                fastest.offer(millis, player);
+                shortest.offer(moves, player);
+                break;
+            case DIED:
+                deaths.increment();
+                deathsByRoom.computeIfAbsent(room, r -> new LongAdder()).increment();
+                break;
+            default:
+                break;
+        }
+    }
+    
+    /**
+     * A bounded board of the lowest scores. Offers that can't make the
+     * board are turned away with one volatile read; the rest go into a
+     * concurrent skip list that is trimmed back to size.
+     */
+    public static class Leaderboard {
+        private final int size;
+        private final ConcurrentSkipListSet<Entry> entries = new ConcurrentSkipListSet<>();
+        private final AtomicInteger count = new AtomicInteger();
+        private final AtomicLong sequence = new AtomicLong();
+        // Score of the last entry once the board is full
+        private volatile long cutoff = Long.MAX_VALUE;
+        
+        public Leaderboard(int size) {
+            this.size = size;
+        }
+        
+        public void offer(long score, String player) {
+            if (score >= cutoff) {
+                return;
+            }
+            entries.add(new Entry(score, sequence.incrementAndGet(), player));
+            if (count.incrementAndGet() > size) {
+                entries.pollLast();
+                count.decrementAndGet();
+            }
+            if (count.get() >= size) {
+                Entry last = entries.last();
+                cutoff = last.score;
+            }
+        }
+        
+        // Best first
+        public List<Entry> entries() {
+            List<Entry> list = new ArrayList<>(size);
+            for (Entry entry : entries) {
+                if (list.size() == size) {
+                    break;
+                }
+                list.add(entry);
+            }
+            return list;
+        }
+    }
+    
+    /**
+     * One place on a leaderboard; ties go to the earlier run
+     */
+    public static final class Entry implements Comparable<Entry> {
+        private final long score;
+        private final long sequence;
+        private final String player;
+        
+        private Entry(long score, long sequence, String player) {
+            this.score = score;
+            this.sequence = sequence;
+            this.player = player;
+        }
+        
+        public long getScore() {
+            return score;
+        }
+        
+        public String getPlayer() {
+            return player;
+        }
+        
+        @Override
+        public int compareTo(Entry other) {
+            int byScore = Long.compare(score, other.score);
+            return byScore != 0 ? byScore : Long.compare(sequence, other.sequence);
+        }
+    }
+    
+    public long getRuns() {
+        return runs.sum();
+    }
+    
+    public long getWins() {
+        return wins.sum();
+    }
+    
+    public long getDeaths() {
+        return deaths.sum();
+    }
+    
+    public Map<String, Long> getDeathsByRoom() {
+        Map<String, Long> result = new TreeMap<>();
+        deathsByRoom.forEach((room, n) -> result.put(room, n.sum()));
+        return result;
+    }
+    
+    public QuantileSketch getWinMillis() {
+        return winMillis;
+    }
+    
+    public QuantileSketch getWinMoves() {
+        return winMoves;
+    }
+    
+    public QuantileSketch getDamageTaken() {
+        return damage;
+    }
+    
+    public List<Entry> getFastestWins() {
+        return fastest.entries();
+    }
+    
+    public List<Entry> getShortestWins() {
+        return shortest.entries();
+    }
+    
+    public String getReport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Runs: %d   Wins: %d   Deaths: %d%n%n", getRuns(), getWins(), getDeaths()));
+        sb.append(String.format("%-16s %10s %10s %10s %10s%n", "", "mean", "p50", "p90", "p99"));
+        appendSketch(sb, "win time (s)", winMillis, 1000);
+        appendSketch(sb, "moves to win", winMoves, 1);
+        appendSketch(sb, "damage taken", damage, 1);
+        
+        sb.append(String.format("%nFastest wins%n"));
+        appendBoard(sb, fastest.entries(), 1000, "s");
+        sb.append(String.format("%nFewest moves%n"));
+        appendBoard(sb, shortest.entries(), 1, " moves");
+        
+        Map<String, Long> byRoom = getDeathsByRoom();
+        if (!byRoom.isEmpty()) {
+            sb.append(String.format("%nDeaths by room%n"));
+            byRoom.forEach((room, n) -> sb.append(String.format("  %-16s %d%n", room, n)));
+        }
+        return sb.toString();
+    }
+    
+    private static void appendSketch(StringBuilder sb, String label, QuantileSketch sketch, double scale) {
+        sb.append(String.format("%-16s %10.1f %10.1f %10.1f %10.1f%n", label, sketch.mean() / scale,
+            sketch.quantile(0.5) / scale, sketch.quantile(0.9) / scale, sketch.quantile(0.99) / scale));
+    }
+    
+    private static void appendBoard(StringBuilder sb, List<Entry> entries, double scale, String unit) {
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            sb.append(String.format("  %2d. %-20s %.1f%s%n", i + 1, entry.player, entry.score / scale, unit));
+        }
+    }
+    
+    /**
+     * Load the file if it exists, then save to it periodically and when
+     * the JVM exits. Saving writes a temporary file and renames it over the
+     * old one, so a crash never leaves a half-written file.
+     */
+    public void persistTo(Path file, int periodSeconds) {
+        if (Files.exists(file)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                readFrom(in);
+            } catch (IOException e) {
+                System.err.println("Could not load run statistics from " + file + ": " + e.getMessage());
+            }
+        }
+        ScheduledExecutorService saver = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "run-stats-saver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Runnable save = () -> {
+            try {
+                save(file);
+            } catch (IOException e) {
+                System.err.println("Could not save run statistics to " + file + ": " + e.getMessage());
+            }
+        };
+        saver.scheduleAtFixedRate(save, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(save));
+    }
+    
+    public synchronized void save(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            writeTo(out);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    private void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(runs.sum());
+        out.writeLong(wins.sum());
+        out.writeLong(deaths.sum());
+        Map<String, Long> byRoom = getDeathsByRoom();
+        out.writeInt(byRoom.size());
+        for (Map.Entry<String, Long> room : byRoom.entrySet()) {
+            out.writeUTF(room.getKey());
+            out.writeLong(room.getValue());
+        }
+        winMillis.writeTo(out);
+        winMoves.writeTo(out);
+        damage.writeTo(out);
+        writeBoard(out, fastest);
+        writeBoard(out, shortest);
+    }
+    
+    private void readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a run statistics file of version " + VERSION);
+        }
+        runs.add(in.readLong());
+        wins.add(in.readLong());
+        deaths.add(in.readLong());
+        int rooms = in.readInt();
+        for (int i = 0; i < rooms; i++) {
+            String room = in.readUTF();
+            deathsByRoom.computeIfAbsent(room, r -> new LongAdder()).add(in.readLong());
+        }
+        winMillis.readFrom(in);
+        winMoves.readFrom(in);
+        damage.readFrom(in);
+        readBoard(in, fastest);
+        readBoard(in, shortest);
+    }
+    
+    private static void writeBoard(DataOutputStream out, Leaderboard board) throws IOException {
+        List<Entry> entries = board.entries();
+        out.writeByte(entries.size());
+        for (Entry entry : entries) {
+            out.writeLong(entry.score);
+            out.writeUTF(entry.player);
+        }
+    }
+    
+    private static void readBoard(DataInputStream in, Leaderboard board) throws IOException {
+        int n = in.readUnsignedByte();
+        for (int i = 0; i < n; i++) {
+            board.offer(in.readLong(), in.readUTF());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,95 @@
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Benchmark for run statistics
+ * Records a large number of finished runs from several threads at once,
+ * then times the queries, checks the sketch quantiles against exact ones and
+ * saves the statistics to see how big the file is.
+ *
+ * Usage: java RunStatsBenchmark [runs] [threads]
+ */
+public class RunStatsBenchmark {
+    private static final String[] ROOMS = {"dragon_lair", "cave", "village", "forest", "tower"};
+    
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        
+        // Warm up on a throwaway instance
+        record(new RunStats(), runs / 5, threads);
+        
+        RunStats stats = new RunStats();
+        long nanos = record(stats, runs, threads);
+        System.out.printf("Recorded %,d runs on %d threads: %.0f ns/run, %.1f M runs/s%n",
+            runs, threads, (double) nanos / runs, runs * 1e3 / nanos);
+        
+        long start = System.nanoTime();
+        double p50 = stats.getWinMillis().quantile(0.5);
+        double p99 = stats.getWinMillis().quantile(0.99);
+        long quantileNanos = (System.nanoTime() - start) / 2;
+        start = System.nanoTime();
+        List<RunStats.Entry> fastest = stats.getFastestWins();
+        long boardNanos = System.nanoTime() - start;
+        System.out.printf("Quantile query %.1f us, top-%d query %.1f us%n",
+            quantileNanos / 1e3, fastest.size(), boardNanos / 1e3);
+        
+        // The same distribution, kept exactly, to check the sketch
+        long[] exact = new long[runs];
+        SplittableRandom random = new SplittableRandom(1);
+        int wins = 0;
+        for (int i = 0; i < runs; i++) {
+            long millis = winMillis(random);
+            if (random.nextInt(3) == 0) {
+                exact[wins++] = millis;
+            }
+        }
+        Arrays.sort(exact, 0, wins);
+        System.out.printf("Win time p50 %.0f ms (exact %d), p99 %.0f ms (exact %d)%n",
+            p50, exact[(int) Math.ceil(0.5 * wins) - 1], p99, exact[(int) Math.ceil(0.99 * wins) - 1]);
+        
+        Path file = Files.createTempFile("runstats", ".dat");
+        stats.save(file);
+        System.out.printf("Saved %,d runs in %,d bytes%n", stats.getRuns(), Files.size(file));
+        Files.delete(file);
+    }
+    
+    // Completion times with a long tail, as real players have
+    private static long winMillis(SplittableRandom random) {
+        return 20_000 + (long) (-Math.log(1 - random.nextDouble()) * 120_000);
+    }
+    
+    private static long record(RunStats stats, int runs, int threads) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int from = runs * t / threads;
+            int to = runs * (t + 1) / threads;
+            tasks.add(() -> {
+                // Every thread sees the same sequence at the same offsets, so the exact check can replay it
+                SplittableRandom random = new SplittableRandom(1);
+                for (int i = 0; i < from; i++) {
+                    random.nextDouble();
+                    random.nextInt(3);
+                }
+                for (int i = from; i < to; i++) {
+                    long millis = winMillis(random);
+                    if (random.nextInt(3) == 0) {
+                        stats.record("player" + (i % 1000), RunStats.Outcome.WON, millis, 20 + i % 30, i % 60, "treasure_room");
+                    } else {
+                        stats.record("player" + (i % 1000), RunStats.Outcome.DIED, millis, 5, 100, ROOMS[i % ROOMS.length]);
+                    }
+                }
+                return null;
+            });
+        }
+        long start = System.nanoTime();
+        for (Future<Void> future : pool.invokeAll(tasks)) {
+            future.get();
+        }
+        long nanos = System.nanoTime() - start;
+        pool.shutdown();
+        return nanos;
+    }
+}
\ No newline at end of file
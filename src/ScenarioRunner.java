@@ -0,0 +1,250 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Regression runner for scripted scenarios
+ * A scenario is a file of commands (name.scenario) with an optional golden
+ * transcript beside it (name.golden). Every scenario runs on its own game and
+ * world, all of them at once on a thread pool, and each transcript is diffed
+ * against its golden copy. Lines of the form "@expect ..." check the final
+ * state as well:
+ *
+ *   @expect won | lost | playing
+ *   @expect location cave
+ *   @expect has sword       @expect lacks key
+ *   @expect room-has potion @expect room-lacks dragon
+ *   @expect health 100
+ *
+ * Usage: java ScenarioRunner [dir] [--update] [--repeat n] [--threads n]
+ * With --update the golden transcripts are rewritten from the current output.
+ */
+public class ScenarioRunner {
+    private static final String SCENARIO_SUFFIX = ".scenario";
+    private static final String GOLDEN_SUFFIX = ".golden";
+    
+    private final int threads;
+    private final boolean update;
+    
+    public ScenarioRunner(int threads, boolean update) {
+        this.threads = threads;
+        this.update = update;
+    }
+    
+    /**
+     * The outcome of one scenario run
+     */
+    public static class Result {
+        private final String name;
+        private final List<String> failures;
+        private final long nanos;
+        
+        private Result(String name, List<String> failures, long nanos) {
+            this.name = name;
+            this.failures = failures;
+            this.nanos = nanos;
+        }
+        
+        public boolean passed() {
+            return failures.isEmpty();
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        public List<String> getFailures() {
+            return failures;
+        }
+        
+        public long getNanos() {
+            return nanos;
+        }
+    }
+    
+    /**
+     * Every scenario file in a directory, in name order
+     */
+    public static List<Path> findScenarios(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(SCENARIO_SUFFIX))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+    
+    /**
+     * Run the scenarios concurrently, each repeated the given number of times.
+     * Results come back in the order the scenarios were given.
+     */
+    public List<Result> runAll(List<Path> scenarios, int repeat) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Result>> pending = new ArrayList<>();
+            for (int i = 0; i < repeat; i++) {
+                // Goldens are only rewritten once, by the first round
+                boolean write = update && i == 0;
+                for (Path scenario : scenarios) {
+                    pending.add(pool.submit(() -> run(scenario, write)));
+                }
+            }
+            
+            List<Result> results = new ArrayList<>();
+            for (Future<Result> future : pending) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Scenario runner failed", e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    /**
+     * Play one scenario on a fresh game and compare it with its golden transcript
+     */
+    public Result run(Path scenario, boolean writeGolden) throws IOException {
+        String name = scenario.getFileName().toString();
+        name = name.substring(0, name.length() - SCENARIO_SUFFIX.length());
+        List<String> failures = new ArrayList<>();
+        long start = System.nanoTime();
+        
+        ByteArrayOutputStream transcript = new ByteArrayOutputStream();
+        Game game = new Game(new ConsoleRenderer(transcript, StandardCharsets.UTF_8));
+        try (BufferedReader reader = Files.newBufferedReader(scenario, StandardCharsets.UTF_8)) {
+            game.runScript(reader);
+        }
+        String actual = transcript.toString(StandardCharsets.UTF_8);
+        
+        for (String line : Files.readAllLines(scenario, StandardCharsets.UTF_8)) {
+            if (line.startsWith("@expect ")) {
+                String failure = check(game.getPlayer(), line.substring(8).trim());
+                if (failure != null) {
+                    failures.add(failure);
+                }
+            }
+        }
+        
+        Path golden = scenario.resolveSibling(name + GOLDEN_SUFFIX);
+        if (writeGolden) {
+            Files.write(golden, actual.getBytes(StandardCharsets.UTF_8));
+        } else if (!Files.exists(golden)) {
+            failures.add("no golden transcript (run with --update to record one)");
+        } else {
+            String diff = diff(Files.readString(golden, StandardCharsets.UTF_8), actual);
+            if (diff != null) {
+                failures.add(diff);
+            }
+        }
+        return new Result(name, failures, System.nanoTime() - start);
+    }
+    
+    // Check one expectation against the final state; returns a failure message or null
+    private static String check(Player player, String expectation) {
+        String[] parts = expectation.split("\\s+", 2);
+        String value = parts.length > 1 ? parts[1] : "";
+        switch (parts[0]) {
+            case "won":
+                return player.isGameWon() ? null : "expected the game to be won";
+            case "lost":
+                return player.isGameLost() ? null : "expected the game to be lost";
+            case "playing":
+                return !player.isGameWon() && !player.isGameLost() ? null : "expected the game to be in progress";
+            case "location":
+                String at = player.getCurrentLocation().getId();
+                return at.equals(value) ? null : "expected location " + value + " but was " + at;
+            case "has":
+                return player.hasItem(value) ? null : "expected to be carrying " + value;
+            case "lacks":
+                return !player.hasItem(value) ? null : "expected not to be carrying " + value;
+            case "room-has":
+                return player.getCurrentLocation().hasItem(value) ? null : "expected a " + value + " in the room";
+            case "room-lacks":
+                return !player.getCurrentLocation().hasItem(value) ? null : "expected no " + value + " in the room";
+            case "health":
+                int health = player.getHealth();
+                return health == Integer.parseInt(value) ? null : "expected health " + value + " but was " + health;
+            default:
+                return "unknown expectation: " + expectation;
+        }
+    }
+    
+    /**
+     * Describe the first line where two transcripts differ, or return null if
+     * they are the same
+     */
+    static String diff(String expected, String actual) {
+        if (expected.equals(actual)) {
+            return null;
+        }
+        String[] want = expected.split("\n", -1);
+        String[] got = actual.split("\n", -1);
+        int line = 0;
+        while (line < want.length && line < got.length && want[line].equals(got[line])) {
+            line++;
+        }
+        return "transcript differs at line " + (line + 1) + "\n" +
+            "    expected: " + (line < want.length ? want[line] : "<end of transcript>") + "\n" +
+            "    actual:   " + (line < got.length ? got[line] : "<end of transcript>");
+    }
+    
+    // The scenarios directory, whether run from the project or from src
+    public static Path scenarioDir() {
+        return Files.isDirectory(Paths.get("scenarios")) ? Paths.get("scenarios") : Paths.get("../scenarios");
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Path dir = scenarioDir();
+        boolean update = false;
+        int repeat = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--update":
+                    update = true;
+                    break;
+                case "--repeat":
+                    repeat = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    dir = Paths.get(args[i]);
+            }
+        }
+        
+        List<Path> scenarios = findScenarios(dir);
+        long start = System.nanoTime();
+        List<Result> results = new ScenarioRunner(threads, update).runAll(scenarios, repeat);
+        long elapsed = System.nanoTime() - start;
+        
+        int failed = 0;
+        Set<String> reported = new HashSet<>();
+        for (Result result : results) {
+            if (result.passed()) {
+                continue;
+            }
+            failed++;
+            // A scenario repeated many times is only reported once
+            if (reported.add(result.getName())) {
+                System.out.println("FAIL " + result.getName());
+                for (String failure : result.getFailures()) {
+                    System.out.println("  " + failure);
+                }
+            }
+        }
+        System.out.printf("%d scenario runs, %d passed, %d failed in %.0f ms on %d threads%n",
+            results.size(), results.size() - failed, failed, elapsed / 1e6, threads);
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+}
\ No newline at end of file
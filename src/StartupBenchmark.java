@@ -0,0 +1,97 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Startup-time harness for the GUI
+ * Launches the game in fresh JVMs, the normal way, with --fast, and with
+ * --fast plus a class data sharing (AppCDS) archive, and reports the time from
+ * JVM launch to first input for each. The archive is recorded by a training
+ * run the first time it is needed. Without a display only the world setup can
+ * be timed, so the harness times building the world against loading its
+ * snapshot instead.
+ *
+ * Usage: java StartupBenchmark [runs]
+ */
+public class StartupBenchmark {
+    private static final String ARCHIVE = "adventure.jsa";
+    private static final String READY = "first input ";
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2 && args[0].equals("--world")) {
+            timeWorld(args[1]);
+            return;
+        }
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        boolean headless = java.awt.GraphicsEnvironment.isHeadless();
+        
+        List<String> eager;
+        List<String> fast;
+        if (headless) {
+            System.out.println("No display: timing world setup only");
+            eager = List.of("StartupBenchmark", "--world", "built");
+            fast = List.of("StartupBenchmark", "--world", "snapshot");
+        } else {
+            eager = List.of("AdventureGameGUI", "--exit-when-ready");
+            fast = List.of("AdventureGameGUI", "--fast", "--exit-when-ready");
+        }
+        if (WorldSnapshot.fromClasspath() == null) {
+            System.out.println("No " + WorldSnapshot.FILE_NAME + " on the classpath; run java WorldSnapshot first");
+        }
+        
+        if (!Files.exists(Paths.get(ARCHIVE))) {
+            launch(List.of("-XX:ArchiveClassesAtExit=" + ARCHIVE), fast);
+            System.out.println("Recorded " + ARCHIVE);
+        }
+        
+        report("eager", List.of(), eager, runs);
+        report("fast", List.of(), fast, runs);
+        report("fast + AppCDS", List.of("-XX:SharedArchiveFile=" + ARCHIVE), fast, runs);
+    }
+    
+    private static void report(String label, List<String> jvmOptions, List<String> command, int runs)
+            throws IOException, InterruptedException {
+        long[] times = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            times[i] = launch(jvmOptions, command);
+        }
+        Arrays.sort(times);
+        System.out.printf("%-14s median %4d ms, best %4d ms (%d runs)%n", label, times[runs / 2], times[0], runs);
+    }
+    
+    // Run the game in a new JVM and return its reported time to first input
+    private static long launch(List<String> jvmOptions, List<String> command) throws IOException, InterruptedException {
+        List<String> line = new ArrayList<>();
+        line.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        line.addAll(jvmOptions);
+        line.add("-cp");
+        line.add(System.getProperty("java.class.path"));
+        line.addAll(command);
+        
+        Process process = new ProcessBuilder(line).redirectErrorStream(true).start();
+        long millis = -1;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String output;
+            while ((output = reader.readLine()) != null) {
+                int at = output.indexOf(READY);
+                if (at >= 0) {
+                    millis = Long.parseLong(output.substring(at + READY.length()).split(" ")[0]);
+                }
+            }
+        }
+        if (process.waitFor() != 0 || millis < 0) {
+            throw new IllegalStateException("Startup run failed: " + String.join(" ", line));
+        }
+        return millis;
+    }
+    
+    // Child process for headless runs: set up the world and report when it is ready
+    private static void timeWorld(String mode) {
+        GameWorld world = mode.equals("snapshot") ? GameWorld.prebuilt() : new GameWorld();
+        new Player("Timing", world.getStartLocation());
+        long millis = ProcessHandle.current().info().startInstant()
+            .map(start -> System.currentTimeMillis() - start.toEpochMilli())
+            .orElse(-1L);
+        System.err.println("startup: " + READY + millis + " ms");
+    }
+}
\ No newline at end of file
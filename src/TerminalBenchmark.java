@@ -0,0 +1,161 @@
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Benchmark for the full-screen terminal mode
+ * Types the walkthrough into the terminal game one key at a time, draws a
+ * frame after every key, and compares the bytes a differential redraw sends
+ * with a full redraw of the same frame, for keystrokes and for commands. The
+ * escapes sent are replayed on a simulated terminal and checked against each
+ * frame, so a diff that leaves a wrong cell on screen is caught.
+ *
+ * Usage: java TerminalBenchmark [games] [width] [height]
+ */
+public class TerminalBenchmark {
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int width = args.length > 1 ? Integer.parseInt(args[1]) : 120;
+        int height = args.length > 2 ? Integer.parseInt(args[2]) : 40;
+        
+        List<String> commands = new ArrayList<>();
+        for (String line : Files.readAllLines(ScenarioRunner.scenarioDir().resolve("walkthrough.scenario"))) {
+            if (!line.isEmpty() && !line.startsWith("#") && !line.startsWith("@")) {
+                commands.add(line);
+            }
+        }
+        
+        Stats keys = new Stats();
+        Stats enters = new Stats();
+        long composeNanos = 0;
+        long frames = 0;
+        boolean correct = true;
+        for (int g = 0; g < games; g++) {
+            TerminalGame ui = new TerminalGame(width, height);
+            TerminalScreen screen = new TerminalScreen();
+            VirtualTerminal terminal = new VirtualTerminal(width, height);
+            StringBuilder text = new StringBuilder();
+            TerminalScreen.Frame frame = ui.compose();
+            screen.render(frame, text);
+            terminal.apply(text);
+            for (String command : commands) {
+                for (int i = 0; i <= command.length(); i++) {
+                    ui.handle(i < command.length() ? command.charAt(i) : TerminalGame.ENTER);
+                    long start = System.nanoTime();
+                    frame = ui.compose();
+                    composeNanos += System.nanoTime() - start;
+                    frames++;
+                    
+                    text.setLength(0);
+                    start = System.nanoTime();
+                    TerminalScreen.Frame old = screen.render(frame, text);
+                    long diffNanos = System.nanoTime() - start;
+                    int diffBytes = text.toString().getBytes(StandardCharsets.UTF_8).length;
+                    terminal.apply(text);
+                    correct &= terminal.shows(frame);
+                    
+                    text.setLength(0);
+                    new TerminalScreen().render(frame, text);
+                    int fullBytes = text.toString().getBytes(StandardCharsets.UTF_8).length;
+                    (i < command.length() ? keys : enters).add(diffNanos, diffBytes, fullBytes);
+                    ui.recycle(old);
+                }
+            }
+        }
+        
+        System.out.printf("%,d frames of %dx%d: compose %.1f us per frame%n",
+            frames, width, height, composeNanos / 1e3 / frames);
+        keys.print("Keystroke");
+        enters.print("Command");
+        System.out.println(correct ? "Every frame reproduced on the simulated terminal" : "Simulated terminal differs from a frame!");
+    }
+    
+    // Diff time and bytes sent for one kind of frame
+    private static class Stats {
+        private long frames;
+        private long diffNanos;
+        private long diffBytes;
+        private long fullBytes;
+        
+        void add(long nanos, int diff, int full) {
+            frames++;
+            diffNanos += nanos;
+            diffBytes += diff;
+            fullBytes += full;
+        }
+        
+        void print(String kind) {
+            double diff = (double) diffBytes / frames;
+            double full = (double) fullBytes / frames;
+            System.out.printf("%s frames: diff %.1f us, %,.0f bytes against %,.0f for a full redraw (%.1f%%)%n",
+                kind, diffNanos / 1e3 / frames, diff, full, diff * 100 / full);
+            // Ten bits a byte on a serial line, roughly the same with SSH overhead
+            System.out.printf("  at 56 kbit/s: %.1f ms against %.1f ms, at 1 Mbit/s: %.2f ms against %.2f ms%n",
+                diff * 10 / 56, full * 10 / 56, diff * 10 / 1000, full * 10 / 1000);
+        }
+    }
+    
+    /**
+     * Just enough of an ANSI terminal to replay what the screen sends:
+     * cursor positioning, clearing, colours (ignored) and printing with a
+     * deferred wrap at the last column
+     */
+    private static class VirtualTerminal {
+        private final int width;
+        private final int height;
+        private final char[][] cells;
+        private int row;
+        private int col;
+        
+        VirtualTerminal(int width, int height) {
+            this.width = width;
+            this.height = height;
+            this.cells = new char[height][width];
+            for (char[] cellRow : cells) {
+                Arrays.fill(cellRow, ' ');
+            }
+        }
+        
+        void apply(CharSequence text) {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c != '\033') {
+                    if (col >= width) {
+                        col = 0;
+                        row = Math.min(row + 1, height - 1);
+                    }
+                    cells[row][col++] = c;
+                    continue;
+                }
+                // ESC [ params final
+                int j = i + 2;
+                while (j < text.length() && !Character.isLetter(text.charAt(j))) {
+                    j++;
+                }
+                String params = text.subSequence(i + 2, j).toString();
+                char command = text.charAt(j);
+                if (command == 'H') {
+                    String[] parts = params.isEmpty() ? new String[] { "1", "1" } : params.split(";");
+                    row = Integer.parseInt(parts[0]) - 1;
+                    col = Integer.parseInt(parts[1]) - 1;
+                } else if (command == 'J' && params.equals("2")) {
+                    for (char[] cellRow : cells) {
+                        Arrays.fill(cellRow, ' ');
+                    }
+                }
+                i = j;
+            }
+        }
+        
+        boolean shows(TerminalScreen.Frame frame) {
+            for (int r = 0; r < height; r++) {
+                for (int c = 0; c < width; c++) {
+                    if (cells[r][c] != frame.charAt(r, c)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+}
\ No newline at end of file
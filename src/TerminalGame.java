@@ -0,0 +1,693 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Full-screen terminal front end for the console game
+ * The screen has a pane for the current location, a scrolling log of the
+ * game's messages, a side pane with health and inventory, and a command line
+ * with history. It is drawn with ANSI escapes on the alternate screen, so the
+ * shell's scrollback is left as it was.
+ *
+ * Three threads share the work. The input thread decodes keys from the
+ * terminal into a queue. The game thread applies every key that is waiting,
+ * runs commands, and draws the panes into a frame. The output thread takes
+ * the newest frame, diffs it against what the terminal shows and writes only
+ * the changed cells, at most one frame every FRAME_NANOS. When the link is
+ * slow, frames it had no time for are replaced by newer ones instead of
+ * queuing, so typing and commands are never held up by output and the
+ * screen catches up in one step.
+ *
+ * Keys: Enter runs the command, Up and Down walk the history, Left, Right,
+ * Home (Ctrl-A), End (Ctrl-E), Backspace and Delete edit the line, Ctrl-U
+ * clears it, Page Up and Page Down scroll the log, Ctrl-L redraws the whole
+ * screen, and Ctrl-C or Ctrl-D leaves.
+ *
+ * Usage: java TerminalGame
+ * Needs a terminal that understands ANSI escapes and a Unix stty; without
+ * one, the plain console game starts instead.
+ */
+public class TerminalGame {
+    // Keys that are not characters
+    static final int NONE = 0;
+    static final int UP = -1;
+    static final int DOWN = -2;
+    static final int LEFT = -3;
+    static final int RIGHT = -4;
+    static final int HOME = -5;
+    static final int END = -6;
+    static final int PAGE_UP = -7;
+    static final int PAGE_DOWN = -8;
+    static final int DELETE = -9;
+    static final int BACKSPACE = -10;
+    static final int ENTER = -11;
+    static final int CLEAR_LINE = -12;
+    static final int REDRAW = -13;
+    static final int QUIT = -14;
+    
+    private static final int LOG_LINES = 2000;
+    private static final int HISTORY = 500;
+    private static final int MIN_WIDTH = 40;
+    private static final int MIN_HEIGHT = 12;
+    private static final int SIDE_WIDTH = 30;
+    // Shortest time between frames written out; frames drawn in between replace each other
+    private static final long FRAME_NANOS = 16_000_000L;
+    private static final long SIZE_CHECK_NANOS = 1_000_000_000L;
+    
+    private static final String ENTER_SCREEN = "\033[?1049h\033[H";
+    private static final String LEAVE_SCREEN = "\033[0m\033[?25h\033[?1049l";
+    private static final String HINT = " ↑↓ history · PgUp/PgDn scroll · Ctrl-C quit ";
+    
+    private final Game game;
+    private final Deque<String> log = new ArrayDeque<>();
+    private final List<String> history = new ArrayList<>();
+    private final StringBuilder line = new StringBuilder();
+    private int cursor;
+    private int historyAt;
+    private String draft = "";
+    private int scroll;
+    private int width;
+    private int height;
+    private boolean over;
+    private boolean leaving;
+    
+    // Frames handed from the game thread to the output thread
+    private final AtomicReference<TerminalScreen.Frame> pending = new AtomicReference<>();
+    private final AtomicReference<TerminalScreen.Frame> spare = new AtomicReference<>();
+    private volatile boolean redrawAll;
+    private volatile boolean closed;
+    private Thread output;
+    
+    /**
+     * Start a game for a screen of this size. Nothing is written to the
+     * terminal until run is called.
+     */
+    public TerminalGame(int width, int height) {
+        this.width = width;
+        this.height = height;
+        game = new Game(new ConsoleRenderer(new LogStream(), StandardCharsets.UTF_8));
+        game.begin();
+    }
+    
+    /**
+     * Collects what the game prints and adds it to the log a line at a time
+     */
+    private class LogStream extends OutputStream {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        
+        @Override
+        public void write(int b) {
+            bytes.write(b);
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes.write(b, off, len);
+        }
+        
+        @Override
+        public void flush() {
+            String text = bytes.toString(StandardCharsets.UTF_8);
+            bytes.reset();
+            int from = 0;
+            for (int end; (end = text.indexOf('\n', from)) >= 0; from = end + 1) {
+                addLog(text.substring(from, end));
+            }
+            if (from < text.length()) {
+                addLog(text.substring(from));
+            }
+        }
+    }
+    
+    private void addLog(String text) {
+        log.addLast(text);
+        if (log.size() > LOG_LINES) {
+            log.removeFirst();
+        }
+    }
+    
+    /**
+     * Apply one key. Returns false once the player has left.
+     */
+    boolean handle(int key) {
+        if (over && key != REDRAW && key != PAGE_UP && key != PAGE_DOWN) {
+            leaving = true;
+            return false;
+        }
+        switch (key) {
+            case ENTER:
+                submit();
+                break;
+            case BACKSPACE:
+                if (cursor > 0) {
+                    line.deleteCharAt(--cursor);
+                }
+                break;
+            case DELETE:
+                if (cursor < line.length()) {
+                    line.deleteCharAt(cursor);
+                }
+                break;
+            case LEFT:
+                cursor = Math.max(0, cursor - 1);
+                break;
+            case RIGHT:
+                cursor = Math.min(line.length(), cursor + 1);
+                break;
+            case HOME:
+                cursor = 0;
+                break;
+            case END:
+                cursor = line.length();
+                break;
+            case CLEAR_LINE:
+                line.setLength(0);
+                cursor = 0;
+                break;
+            case UP:
+                if (historyAt > 0) {
+                    if (historyAt == history.size()) {
+                        draft = line.toString();
+                    }
+                    setLine(history.get(--historyAt));
+                }
+                break;
+            case DOWN:
+                if (historyAt < history.size()) {
+                    historyAt++;
+                    setLine(historyAt == history.size() ? draft : history.get(historyAt));
+                }
+                break;
+            case PAGE_UP:
+                scroll += Math.max(1, logRows() - 1);
+                break;
+            case PAGE_DOWN:
+                scroll = Math.max(0, scroll - Math.max(1, logRows() - 1));
+                break;
+            case REDRAW:
+                redrawAll = true;
+                break;
+            case QUIT:
+                leaving = true;
+                return false;
+            default:
+                if (key >= ' ') {
+                    line.insert(cursor++, (char) key);
+                }
+        }
+        return true;
+    }
+    
+    private void setLine(String text) {
+        line.setLength(0);
+        line.append(text);
+        cursor = line.length();
+    }
+    
+    // Run the command line as a turn
+    private void submit() {
+        String command = line.toString().trim();
+        line.setLength(0);
+        cursor = 0;
+        scroll = 0;
+        if (command.isEmpty()) {
+            return;
+        }
+        if (history.isEmpty() || !history.get(history.size() - 1).equals(command)) {
+            history.add(command);
+            if (history.size() > HISTORY) {
+                history.remove(0);
+            }
+        }
+        historyAt = history.size();
+        draft = "";
+        addLog("> " + command);
+        game.play(command);
+        over = !game.isRunning();
+    }
+    
+    // Change the screen size; the next frame is drawn in full
+    void resize(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+    
+    // Height of the log pane, matching the layout in compose
+    private int logRows() {
+        return height - 3 - locationRows() - 1;
+    }
+    
+    private int locationRows() {
+        return Math.max(3, (height - 4) / 3);
+    }
+    
+    /**
+     * Draw every pane into a frame, reusing one the output thread is done with
+     */
+    TerminalScreen.Frame compose() {
+        TerminalScreen.Frame frame = spare.getAndSet(null);
+        if (frame == null || frame.getWidth() != width || frame.getHeight() != height) {
+            frame = new TerminalScreen.Frame(width, height);
+        } else {
+            frame.clear();
+        }
+        if (width < MIN_WIDTH || height < MIN_HEIGHT) {
+            frame.put(0, 0, "Make the terminal at least " + MIN_WIDTH + "x" + MIN_HEIGHT, TerminalScreen.BOLD, width);
+            return frame;
+        }
+        
+        Player player = game.getPlayer();
+        int side = Math.min(SIDE_WIDTH, width / 3);
+        int main = width - side - 1;
+        
+        // Title bar
+        frame.fill(0, 0, width, ' ', TerminalScreen.REVERSE);
+        frame.put(0, 1, "Text Adventure", TerminalScreen.REVERSE, width);
+        String moves = "Moves " + player.getMoves();
+        frame.put(0, width - moves.length() - 1, moves, TerminalScreen.REVERSE, width);
+        
+        int logTop = drawLocation(frame, player, 1, 1 + locationRows(), main);
+        frame.fill(logTop - 1, 0, main, '─', TerminalScreen.DIM);
+        drawLog(frame, logTop, height - 3, main);
+        if (scroll > 0) {
+            frame.put(logTop - 1, 2, " scrolled back, PgDn to return ", TerminalScreen.YELLOW, main);
+        }
+        
+        for (int row = 1; row < height - 2; row++) {
+            frame.put(row, main, "│", TerminalScreen.DIM, width);
+        }
+        frame.put(logTop - 1, main, "┤", TerminalScreen.DIM, width);
+        drawSide(frame, player, main + 2, width - 1);
+        
+        // Command line
+        frame.fill(height - 2, 0, width, '─', TerminalScreen.DIM);
+        frame.put(height - 2, main, "┴", TerminalScreen.DIM, width);
+        if (HINT.length() + 2 < main) {
+            frame.put(height - 2, main - HINT.length() - 1, HINT, TerminalScreen.DIM, main);
+        }
+        if (over) {
+            int end = frame.put(height - 1, 0, "Game over. Press any key to leave.", TerminalScreen.BOLD, width);
+            frame.setCursor(height - 1, end);
+        } else {
+            int room = width - 3;
+            int offset = Math.max(0, cursor - room);
+            frame.put(height - 1, 0, "> ", TerminalScreen.CYAN, width);
+            frame.put(height - 1, 2, line.substring(offset), TerminalScreen.PLAIN, width);
+            frame.setCursor(height - 1, 2 + cursor - offset);
+        }
+        return frame;
+    }
+    
+    // The room's name, description, exits, items and monsters; returns the first row below the pane
+    private int drawLocation(TerminalScreen.Frame frame, Player player, int top, int bottom, int main) {
+        Location room = player.getCurrentLocation();
+        frame.put(top, 1, room.getName(), TerminalScreen.BOLD, main);
+        
+        List<String> facts = new ArrayList<>();
+        List<String> exits = new ArrayList<>(room.getAvailableDirections());
+        Collections.sort(exits);
+        facts.add("Exits: " + (exits.isEmpty() ? "none" : String.join(", ", exits)));
+        List<String> items = new ArrayList<>();
+        for (Item item : room.getItems()) {
+            items.add(item.getName());
+        }
+        if (!items.isEmpty()) {
+            facts.add("You see: " + String.join(", ", items));
+        }
+        String monsters = game.getWorld().describeMonsters(room);
+        
+        List<String> factRows = new ArrayList<>();
+        for (String fact : facts) {
+            factRows.addAll(wrap(fact, main - 2));
+        }
+        List<String> monsterRows = monsters.isEmpty() ? List.of() : wrap(monsters, main - 2);
+        int descriptionRows = Math.max(0, bottom - top - 1 - factRows.size() - monsterRows.size());
+        List<String> description = wrap(room.getDescription(), main - 2);
+        
+        int row = top + 1;
+        for (int i = 0; i < description.size() && i < descriptionRows; i++) {
+            String text = description.get(i);
+            if (i == descriptionRows - 1 && i < description.size() - 1) {
+                text = text.substring(0, Math.max(0, Math.min(text.length(), main - 3))) + "…";
+            }
+            frame.put(row++, 1, text, TerminalScreen.PLAIN, main);
+        }
+        for (String text : factRows) {
+            if (row < bottom) {
+                frame.put(row++, 1, text, TerminalScreen.CYAN, main);
+            }
+        }
+        for (String text : monsterRows) {
+            if (row < bottom) {
+                frame.put(row++, 1, text, TerminalScreen.RED, main);
+            }
+        }
+        return bottom + 1;
+    }
+    
+    // The newest log lines that fit, bottom up, after skipping the rows scrolled back
+    private void drawLog(TerminalScreen.Frame frame, int top, int bottom, int main) {
+        int skip = scroll;
+        int row = bottom;
+        Iterator<String> lines = log.descendingIterator();
+        while (row >= top && lines.hasNext()) {
+            String text = lines.next();
+            byte style = styleOf(text);
+            List<String> rows = wrap(text, main - 2);
+            for (int i = rows.size() - 1; i >= 0 && row >= top; i--) {
+                if (skip > 0) {
+                    skip--;
+                } else {
+                    frame.put(row--, 1, rows.get(i), style, main);
+                }
+            }
+        }
+        // Scrolled past the oldest line: stop at the top of the log
+        if (skip > 0) {
+            scroll -= skip;
+        }
+    }
+    
+    private void drawSide(TerminalScreen.Frame frame, Player player, int left, int right) {
+        int row = 1;
+        frame.put(row++, left, "Status", TerminalScreen.BOLD, right);
+        int health = player.getHealth();
+        int max = player.getMaxHealth();
+        frame.put(row++, left, "Health " + health + "/" + max, TerminalScreen.PLAIN, right);
+        int bar = right - left - 2;
+        int filled = max == 0 ? 0 : (int) Math.round((double) bar * health / max);
+        byte color = health * 10 > max * 6 ? TerminalScreen.GREEN
+            : health * 10 > max * 3 ? TerminalScreen.YELLOW : TerminalScreen.RED;
+        frame.put(row, left, "[", TerminalScreen.DIM, right);
+        frame.fill(row, left + 1, filled, '#', color);
+        frame.fill(row, left + 1 + filled, bar - filled, '-', TerminalScreen.DIM);
+        frame.put(row++, left + 1 + bar, "]", TerminalScreen.DIM, right);
+        frame.put(row++, left, "Damage taken " + player.getDamageTaken(), TerminalScreen.PLAIN, right);
+        row++;
+        
+        frame.put(row++, left, "Inventory", TerminalScreen.BOLD, right);
+        List<Item> inventory = player.getInventory();
+        if (inventory.isEmpty()) {
+            frame.put(row, left, "(empty)", TerminalScreen.DIM, right);
+            return;
+        }
+        for (Item item : inventory) {
+            String text = "- " + item.getName();
+            if (item instanceof Container && !((Container) item).isEmpty()) {
+                List<String> names = new ArrayList<>();
+                for (Item inner : ((Container) item).getContents()) {
+                    names.add(inner.getName());
+                }
+                text += ": " + String.join(", ", names);
+            }
+            for (String wrapped : wrap(text, right - left)) {
+                if (row < height - 2) {
+                    frame.put(row++, left, wrapped, TerminalScreen.PLAIN, right);
+                }
+            }
+        }
+    }
+    
+    // Colour a log line by what it says
+    private static byte styleOf(String text) {
+        if (text.startsWith("> ")) {
+            return TerminalScreen.CYAN;
+        }
+        if (text.contains("(-") && text.contains("health)") || text.contains("slain") || text.contains("GAME OVER")) {
+            return TerminalScreen.RED;
+        }
+        if (text.contains("★") || text.startsWith("═")) {
+            return TerminalScreen.YELLOW;
+        }
+        return TerminalScreen.PLAIN;
+    }
+    
+    /**
+     * Break text into rows of at most width characters at spaces, cutting
+     * words that are longer than a row. Empty text is one empty row.
+     */
+    static List<String> wrap(String text, int width) {
+        List<String> rows = new ArrayList<>();
+        if (width <= 0) {
+            return rows;
+        }
+        int start = 0;
+        while (text.length() - start > width) {
+            int cut = text.lastIndexOf(' ', start + width);
+            if (cut <= start) {
+                rows.add(text.substring(start, start + width));
+                start += width;
+            } else {
+                rows.add(text.substring(start, cut));
+                start = cut + 1;
+            }
+        }
+        rows.add(text.substring(start));
+        return rows;
+    }
+    
+    /**
+     * Hand a frame to the output thread. A frame it has not taken yet is
+     * replaced and kept for drawing the next one.
+     */
+    void publish(TerminalScreen.Frame frame) {
+        recycle(pending.getAndSet(frame));
+        if (output != null) {
+            LockSupport.unpark(output);
+        }
+    }
+    
+    // Keep a frame the output thread is done with for drawing the next one
+    void recycle(TerminalScreen.Frame frame) {
+        if (frame != null) {
+            spare.set(frame);
+        }
+    }
+    
+    /**
+     * Take over the terminal until the player leaves. The terminal must
+     * already be in raw mode.
+     */
+    public void run() throws InterruptedException {
+        ConsoleRenderer terminal = new ConsoleRenderer(new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8);
+        terminal.prompt(ENTER_SCREEN);
+        
+        BlockingQueue<Integer> keys = new LinkedBlockingQueue<>();
+        Thread input = new Thread(() -> readKeys(
+            new InputStreamReader(new FileInputStream(FileDescriptor.in), StandardCharsets.UTF_8), keys), "terminal-input");
+        input.setDaemon(true);
+        input.start();
+        output = new Thread(() -> writeFrames(terminal), "terminal-output");
+        output.start();
+        
+        publish(compose());
+        long sizeChecked = System.nanoTime();
+        try {
+            while (!leaving) {
+                Integer key = keys.poll(SIZE_CHECK_NANOS, TimeUnit.NANOSECONDS);
+                boolean changed = false;
+                long composed = System.nanoTime();
+                // Apply everything typed or pasted so far before drawing, but keep drawing during long bursts
+                while (key != null && handle(key)) {
+                    changed = true;
+                    if (System.nanoTime() - composed >= FRAME_NANOS) {
+                        publish(compose());
+                        composed = System.nanoTime();
+                        changed = false;
+                    }
+                    key = keys.poll();
+                }
+                if (System.nanoTime() - sizeChecked >= SIZE_CHECK_NANOS) {
+                    sizeChecked = System.nanoTime();
+                    int[] size = terminalSize();
+                    if (size != null && (size[0] != width || size[1] != height)) {
+                        resize(size[0], size[1]);
+                        changed = true;
+                    }
+                }
+                if (changed && !leaving) {
+                    publish(compose());
+                }
+            }
+        } finally {
+            closed = true;
+            LockSupport.unpark(output);
+            output.join();
+            terminal.prompt(LEAVE_SCREEN);
+        }
+    }
+    
+    // Output thread: write the newest frame, at most one every FRAME_NANOS
+    private void writeFrames(ConsoleRenderer terminal) {
+        TerminalScreen screen = new TerminalScreen();
+        StringBuilder text = new StringBuilder(16 * 1024);
+        long written = System.nanoTime() - FRAME_NANOS;
+        while (true) {
+            long wait = written + FRAME_NANOS - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+            TerminalScreen.Frame frame = pending.getAndSet(null);
+            if (frame == null) {
+                if (closed) {
+                    return;
+                }
+                LockSupport.park(this);
+                continue;
+            }
+            if (redrawAll) {
+                redrawAll = false;
+                screen.invalidate();
+            }
+            text.setLength(0);
+            recycle(screen.render(frame, text));
+            if (text.length() > 0) {
+                terminal.print(text.toString());
+                terminal.flush();
+            }
+            written = System.nanoTime();
+        }
+    }
+    
+    // Input thread: decode keys until the terminal closes
+    private static void readKeys(Reader in, BlockingQueue<Integer> keys) {
+        try {
+            int c;
+            while ((c = in.read()) >= 0) {
+                int key = decode(c, in);
+                if (key != NONE) {
+                    keys.put(key);
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            // The terminal is gone; leave
+        }
+        keys.offer(QUIT);
+    }
+    
+    // Turn a character read in raw mode, and any escape sequence it starts, into a key
+    static int decode(int c, Reader in) throws IOException {
+        switch (c) {
+            case 3:
+            case 4:
+                return QUIT;
+            case 1:
+                return HOME;
+            case 5:
+                return END;
+            case 12:
+                return REDRAW;
+            case 21:
+                return CLEAR_LINE;
+            case 8:
+            case 127:
+                return BACKSPACE;
+            case '\r':
+            case '\n':
+                return ENTER;
+            case 27:
+                return in.ready() ? decodeEscape(in) : NONE;
+            default:
+                return c >= ' ' ? c : NONE;
+        }
+    }
+    
+    // The rest of an escape sequence: ESC [ params final, or ESC O final
+    private static int decodeEscape(Reader in) throws IOException {
+        int c = in.read();
+        if (c != '[' && c != 'O') {
+            return NONE;
+        }
+        StringBuilder params = new StringBuilder();
+        while ((c = in.read()) >= 0 && (c >= '0' && c <= '9' || c == ';')) {
+            params.append((char) c);
+        }
+        switch (c) {
+            case 'A':
+                return UP;
+            case 'B':
+                return DOWN;
+            case 'C':
+                return RIGHT;
+            case 'D':
+                return LEFT;
+            case 'H':
+                return HOME;
+            case 'F':
+                return END;
+            case '~':
+                switch (params.toString()) {
+                    case "1":
+                    case "7":
+                        return HOME;
+                    case "4":
+                    case "8":
+                        return END;
+                    case "3":
+                        return DELETE;
+                    case "5":
+                        return PAGE_UP;
+                    case "6":
+                        return PAGE_DOWN;
+                    default:
+                        return NONE;
+                }
+            default:
+                return NONE;
+        }
+    }
+    
+    // Run stty on the controlling terminal; returns its output, or null if it failed
+    private static String stty(String arguments) {
+        try {
+            Process process = new ProcessBuilder("sh", "-c", "stty " + arguments + " < /dev/tty")
+                .redirectErrorStream(true).start();
+            String result = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+            return process.waitFor() == 0 ? result : null;
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+    
+    // Columns and rows of the terminal, or null if they cannot be found
+    private static int[] terminalSize() {
+        String size = stty("size");
+        if (size == null) {
+            return null;
+        }
+        String[] parts = size.split("\\s+");
+        try {
+            return new int[] { Integer.parseInt(parts[1]), Integer.parseInt(parts[0]) };
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+    
+    public static void main(String[] args) throws Exception {
+        String saved = System.console() != null ? stty("-g") : null;
+        int[] size = saved != null ? terminalSize() : null;
+        if (size == null) {
+            System.err.println("No terminal for the full-screen mode; starting the console game.");
+            new Game().start();
+            return;
+        }
+        
+        TerminalGame ui = new TerminalGame(size[0], size[1]);
+        Thread restore = new Thread(() -> stty(saved));
+        Runtime.getRuntime().addShutdownHook(restore);
+        stty("raw -echo");
+        try {
+            ui.run();
+        } finally {
+            stty(saved);
+            Runtime.getRuntime().removeShutdownHook(restore);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,201 @@
+import java.util.Arrays;
+
+/**
+ * Double-buffered character screen for ANSI terminals
+ * Panes are drawn into a frame of cells, a character and a style each. To show
+ * a frame, it is compared cell by cell with the front frame, which is what the
+ * terminal already shows, and escapes are written only for the cells that
+ * changed: a cursor jump to the start of each changed run, a style change only
+ * where the style differs from the last one written. Short unchanged gaps are
+ * written over instead of jumped, as that is fewer bytes. Typing a character
+ * costs a few bytes whatever the size of the screen.
+ * Not thread-safe: a screen belongs to the thread that writes to the terminal.
+ */
+public class TerminalScreen {
+    public static final byte PLAIN = 0;
+    public static final byte BOLD = 1;
+    public static final byte REVERSE = 2;
+    public static final byte RED = 3;
+    public static final byte GREEN = 4;
+    public static final byte YELLOW = 5;
+    public static final byte CYAN = 6;
+    public static final byte DIM = 7;
+    
+    private static final String[] SGR = {
+        "\033[0m", "\033[0;1m", "\033[0;7m", "\033[0;31m", "\033[0;32m", "\033[0;33m", "\033[0;36m", "\033[0;2m"
+    };
+    private static final String HIDE_CURSOR = "\033[?25l";
+    private static final String SHOW_CURSOR = "\033[?25h";
+    private static final String CLEAR = "\033[0m\033[2J";
+    
+    // An unchanged gap this short, in the current style, is rewritten rather than jumped over
+    private static final int MAX_REWRITE = 4;
+    
+    /**
+     * One screenful of cells and where the cursor rests
+     */
+    public static final class Frame {
+        private final int width;
+        private final int height;
+        private final char[] chars;
+        private final byte[] styles;
+        private int cursorRow;
+        private int cursorCol;
+        
+        public Frame(int width, int height) {
+            this.width = width;
+            this.height = height;
+            this.chars = new char[width * height];
+            this.styles = new byte[width * height];
+            clear();
+        }
+        
+        // Blank every cell
+        public void clear() {
+            Arrays.fill(chars, ' ');
+            Arrays.fill(styles, PLAIN);
+            cursorRow = 0;
+            cursorCol = 0;
+        }
+        
+        /**
+         * Write text from a column, clipped at the end column. Control
+         * characters become spaces. Returns the column after the text.
+         */
+        public int put(int row, int col, String text, byte style, int endCol) {
+            if (row < 0 || row >= height) {
+                return col;
+            }
+            int end = Math.min(endCol, width);
+            int at = row * width;
+            for (int i = 0; i < text.length() && col < end; i++, col++) {
+                char c = text.charAt(i);
+                if (col < 0) {
+                    continue;
+                }
+                chars[at + col] = c < ' ' ? ' ' : Character.isSurrogate(c) ? '?' : c;
+                styles[at + col] = style;
+            }
+            return col;
+        }
+        
+        // Fill a run of cells on one row with a character
+        public void fill(int row, int col, int length, char c, byte style) {
+            if (row < 0 || row >= height) {
+                return;
+            }
+            int from = row * width + Math.max(col, 0);
+            int to = row * width + Math.min(col + length, width);
+            for (int i = from; i < to; i++) {
+                chars[i] = c;
+                styles[i] = style;
+            }
+        }
+        
+        // Where the terminal's cursor should rest once the frame is shown
+        public void setCursor(int row, int col) {
+            cursorRow = Math.max(0, Math.min(row, height - 1));
+            cursorCol = Math.max(0, Math.min(col, width - 1));
+        }
+        
+        public int getWidth() {
+            return width;
+        }
+        
+        public int getHeight() {
+            return height;
+        }
+        
+        public char charAt(int row, int col) {
+            return chars[row * width + col];
+        }
+    }
+    
+    private Frame front;
+    private byte style;
+    private int row;
+    private int col;
+    
+    /**
+     * Forget what the terminal shows, so the next frame is drawn in full
+     */
+    public void invalidate() {
+        front = null;
+    }
+    
+    /**
+     * Append the escapes that turn the terminal from the front frame into this
+     * one, which becomes the front frame. Appends nothing when the two are the
+     * same. Returns the old front frame, free for drawing the next one, or
+     * null if there was none or it was a different size.
+     */
+    public Frame render(Frame next, StringBuilder out) {
+        Frame previous = front;
+        boolean full = previous == null || previous.width != next.width || previous.height != next.height;
+        int start = out.length();
+        if (full) {
+            out.append(HIDE_CURSOR).append(CLEAR);
+            style = PLAIN;
+            row = -1;
+        }
+        
+        int width = next.width;
+        for (int r = 0; r < next.height; r++) {
+            int at = r * width;
+            // Most rows are unchanged; compare them whole, which the JIT vectorizes
+            if (!full && Arrays.equals(next.chars, at, at + width, previous.chars, at, at + width)
+                && Arrays.equals(next.styles, at, at + width, previous.styles, at, at + width)) {
+                continue;
+            }
+            for (int c = 0; c < width; c++) {
+                int i = at + c;
+                char ch = next.chars[i];
+                byte st = next.styles[i];
+                boolean same = full ? ch == ' ' && st == PLAIN : ch == previous.chars[i] && st == previous.styles[i];
+                if (same) {
+                    continue;
+                }
+                if (out.length() == start) {
+                    out.append(HIDE_CURSOR);
+                }
+                if (r != row || c != col) {
+                    if (r == row && c > col && c - col <= MAX_REWRITE && sameStyle(next, at + col, i, style)) {
+                        out.append(next.chars, at + col, c - col);
+                    } else {
+                        out.append("\033[").append(r + 1).append(';').append(c + 1).append('H');
+                    }
+                }
+                if (st != style) {
+                    out.append(SGR[st]);
+                    style = st;
+                }
+                out.append(ch);
+                row = r;
+                // After the last column the cursor's position depends on the terminal
+                col = c + 1 < width ? c + 1 : -1;
+            }
+        }
+        
+        if (out.length() > start || row != next.cursorRow || col != next.cursorCol) {
+            if (out.length() == start) {
+                out.append(HIDE_CURSOR);
+            }
+            out.append("\033[").append(next.cursorRow + 1).append(';').append(next.cursorCol + 1).append('H');
+            out.append(SHOW_CURSOR);
+            row = next.cursorRow;
+            col = next.cursorCol;
+        }
+        front = next;
+        return full ? null : previous;
+    }
+    
+    // Whether every cell in [from, to) has this style
+    private static boolean sameStyle(Frame frame, int from, int to, byte style) {
+        for (int i = from; i < to; i++) {
+            if (frame.styles[i] != style) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,168 @@
+/**
+ * Hierarchical timing wheel for delayed and recurring game effects
+ * Each level has 64 slots holding doubly linked lists of timers. Scheduling and
+ * cancelling are O(1), and each tick only touches the slot that is due, so the
+ * cost of a tick does not depend on how many timers are pending.
+ * Not thread-safe: a wheel belongs to the thread that advances the world.
+ */
+public class TimingWheel {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    
+    // Delays beyond this are parked in the top level and re-filed when it cascades
+    private static final long MAX_SPAN = 1L << (SLOT_BITS * LEVELS);
+    
+    private final Timeout[][] wheel;
+    private long currentTick;
+    private int pending;
+    
+    public TimingWheel() {
+        this.wheel = new Timeout[LEVELS][SLOTS];
+        this.currentTick = 0;
+        this.pending = 0;
+    }
+    
+    /**
+     * A scheduled effect. Cancel it to stop it from running.
+     */
+    public static class Timeout {
+        private final Runnable task;
+        private final long period;
+        private long deadline;
+        private int level = -1;
+        private int slot;
+        private Timeout prev;
+        private Timeout next;
+        
+        private Timeout(Runnable task, long deadline, long period) {
+            this.task = task;
+            this.deadline = deadline;
+            this.period = period;
+        }
+        
+        public boolean isPending() {
+            return level >= 0;
+        }
+        
+        public long getDeadline() {
+            return deadline;
+        }
+    }
+    
+    /**
+     * Run a task once, delay ticks from now (at least one tick)
+     */
+    public Timeout schedule(long delay, Runnable task) {
+        return add(new Timeout(task, currentTick + Math.max(1, delay), 0));
+    }
+    
+    /**
+     * Run a task every period ticks, starting delay ticks from now
+     */
+    public Timeout scheduleRepeating(long delay, long period, Runnable task) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period must be positive: " + period);
+        }
+        return add(new Timeout(task, currentTick + Math.max(1, delay), period));
+    }
+    
+    /**
+     * Cancel a timer. Returns false if it had already run or been cancelled.
+     */
+    public boolean cancel(Timeout timeout) {
+        if (timeout == null || !timeout.isPending()) {
+            return false;
+        }
+        unlink(timeout);
+        return true;
+    }
+    
+    /**
+     * Advance the wheel by one tick and run every timer that is due
+     */
+    public void advance() {
+        currentTick++;
+        
+        // When a level wraps, spread the next slot of the level above into the levels below
+        for (int level = 1; level < LEVELS; level++) {
+            if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                break;
+            }
+            cascade(level, (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK));
+        }
+        
+        int slot = (int) (currentTick & SLOT_MASK);
+        Timeout timeout;
+        while ((timeout = wheel[0][slot]) != null) {
+            unlink(timeout);
+            if (timeout.period > 0) {
+                timeout.deadline += timeout.period;
+                add(timeout);
+            }
+            timeout.task.run();
+        }
+    }
+    
+    // Getters
+    public long getCurrentTick() {
+        return currentTick;
+    }
+    
+    public int getPending() {
+        return pending;
+    }
+    
+    private void cascade(int level, int slot) {
+        Timeout timeout = wheel[level][slot];
+        wheel[level][slot] = null;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.level = -1;
+            timeout.prev = null;
+            timeout.next = null;
+            pending--;
+            add(timeout);
+            timeout = next;
+        }
+    }
+    
+    private Timeout add(Timeout timeout) {
+        long delay = timeout.deadline - currentTick;
+        long filedAt = delay < MAX_SPAN ? timeout.deadline : currentTick + MAX_SPAN - 1;
+        long span = filedAt - currentTick;
+        
+        int level = 0;
+        while (level < LEVELS - 1 && span >= (1L << (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        int slot = (int) ((filedAt >>> (SLOT_BITS * level)) & SLOT_MASK);
+        
+        timeout.level = level;
+        timeout.slot = slot;
+        timeout.prev = null;
+        timeout.next = wheel[level][slot];
+        if (timeout.next != null) {
+            timeout.next.prev = timeout;
+        }
+        wheel[level][slot] = timeout;
+        pending++;
+        return timeout;
+    }
+    
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            wheel[timeout.level][timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.level = -1;
+        pending--;
+    }
+}
\ No newline at end of file
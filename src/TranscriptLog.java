@@ -0,0 +1,448 @@
+import java.io.*;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Saves the transcript of every session to disk
+ * Game threads copy their text into one pre-allocated ring buffer: a record
+ * is reserved with a single compare-and-set on the tail, encoded in place as
+ * UTF-8 and published by writing its length last. Nothing is allocated,
+ * nothing waits, and when the ring is full the text is dropped and counted
+ * rather than holding up the game. One background thread drains the ring
+ * into files, each line stamped with its time and session, rotating to a new
+ * file once one grows past a size limit and optionally gzipping them.
+ *
+ * Enabled for the whole JVM by setting the system property
+ * adventure.transcripts to a directory; adventure.transcripts.gzip=true
+ * compresses the files, adventure.transcripts.rotateMb sets how much text
+ * goes in a file before the next is started, adventure.transcripts.keep how
+ * many files are kept and adventure.transcripts.ringKb the size of the ring.
+ */
+public class TranscriptLog implements Closeable {
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.nativeOrder());
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    
+    // Record layout: length (written last), name length, time, text length, session name, text
+    private static final int HEADER = 4 + 4 + 8 + 4;
+    private static final int ALIGN = 8;
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+    private static final long MAX_IDLE_PARK_NANOS = 20_000_000;
+    private static final long FLUSH_NANOS = 1_000_000_000;
+    private static final String DROP_NAME = "transcript | ";
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    
+    private static volatile TranscriptLog shared;
+    
+    private final byte[] ring;
+    private final int mask;
+    private final int maxRecord;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+    private final LongAdder droppedRecords = new LongAdder();
+    
+    private final Path directory;
+    private final boolean gzip;
+    private final long rotateBytes;
+    private final int keepFiles;
+    private final String fileStamp;
+    private final Thread writer;
+    private volatile boolean closing;
+    
+    // Writer thread state
+    private final Deque<Path> files = new ArrayDeque<>();
+    private OutputStream file;
+    private final byte[] staging = new byte[1 << 18];
+    private int staged;
+    private long fileBytes;
+    private int fileNumber;
+    private volatile long written;
+    private long reportedDrops;
+    private long stampSecond = -1;
+    private final byte[] stamp = new byte[13];
+    
+    /**
+     * A log writing into the directory, with a ring of the given size
+     * (rounded up to a power of two)
+     */
+    public TranscriptLog(Path directory, int ringBytes, boolean gzip, long rotateBytes, int keepFiles) throws IOException {
+        int capacity = Integer.highestOneBit(Math.max(ringBytes, 4096) - 1) << 1;
+        this.ring = new byte[capacity];
+        this.mask = capacity - 1;
+        this.maxRecord = capacity / 4;
+        this.directory = Files.createDirectories(directory);
+        this.gzip = gzip;
+        this.rotateBytes = rotateBytes;
+        this.keepFiles = Math.max(keepFiles, 1);
+        this.fileStamp = LocalDateTime.now().format(FILE_TIME);
+        this.writer = new Thread(this::drainLoop, "transcript-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+    
+    /**
+     * The log configured by the adventure.transcripts properties, started on
+     * first use and closed when the JVM exits, or null if it is not enabled
+     */
+    public static TranscriptLog shared() {
+        TranscriptLog log = shared;
+        if (log != null || System.getProperty("adventure.transcripts") == null) {
+            return log;
+        }
+        synchronized (TranscriptLog.class) {
+            if (shared == null) {
+                try {
+                    TranscriptLog created = new TranscriptLog(Paths.get(System.getProperty("adventure.transcripts")),
+                        Integer.getInteger("adventure.transcripts.ringKb", 4096) * 1024,
+                        Boolean.getBoolean("adventure.transcripts.gzip"),
+                        Long.getLong("adventure.transcripts.rotateMb", 64) << 20,
+                        Integer.getInteger("adventure.transcripts.keep", 20));
+                    Runtime.getRuntime().addShutdownHook(new Thread(created::close));
+                    shared = created;
+                } catch (IOException e) {
+                    System.err.println("Transcripts are off: " + e.getMessage());
+                    System.clearProperty("adventure.transcripts");
+                }
+            }
+            return shared;
+        }
+    }
+    
+    // A session in the shared log, or null when transcripts are off
+    public static Session sharedSession(String name) {
+        TranscriptLog log = shared();
+        return log != null ? log.open(name) : null;
+    }
+    
+    /**
+     * Start the transcript of one session. Its lines are marked with the
+     * name, such as console-3.
+     */
+    public Session open(String name) {
+        return new Session((name + " | ").getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * One session's side of the log. Any thread may write to it.
+     */
+    public final class Session {
+        // Copied into each record, so the writer needs no table of sessions
+        private final byte[] name;
+        // The text is copied here in one go and encoded from the copy
+        private char[] chars = new char[1024];
+        
+        private Session(byte[] name) {
+            this.name = name;
+        }
+        
+        /**
+         * Add text to the transcript without waiting. Returns false if the
+         * ring was full and the text was dropped. Text too long for one
+         * record is cut short. A session is written by one thread at a time,
+         * as a game is played.
+         */
+        public boolean log(CharSequence text) {
+            int length = Math.min(text.length(), maxRecord - HEADER);
+            if (length > chars.length) {
+                chars = new char[Math.max(length, Math.min(chars.length * 2, maxRecord - HEADER))];
+            }
+            if (text instanceof String) {
+                ((String) text).getChars(0, length, chars, 0);
+            } else if (text instanceof StringBuilder) {
+                ((StringBuilder) text).getChars(0, length, chars, 0);
+            } else {
+                for (int i = 0; i < length; i++) {
+                    chars[i] = text.charAt(i);
+                }
+            }
+            return append(name, chars, length);
+        }
+    }
+    
+    private boolean append(byte[] name, char[] text, int length) {
+        if (closing) {
+            droppedRecords.increment();
+            return false;
+        }
+        // Measure the UTF-8 encoding, cutting the text short if it would not fit in one record
+        int room = maxRecord - HEADER - name.length;
+        int bytes = 0;
+        for (int i = 0; i < length; i++) {
+            bytes += utf8Bound(text[i]);
+        }
+        while (bytes > room && length > 0) {
+            bytes -= utf8Bound(text[--length]);
+        }
+        int size = (HEADER + name.length + bytes + ALIGN - 1) & -ALIGN;
+        
+        long start;
+        int offset;
+        int padding;
+        do {
+            start = tail.get();
+            offset = (int) (start & mask);
+            padding = offset + size > ring.length ? ring.length - offset : 0;
+            if (start + padding + size - head > ring.length) {
+                droppedRecords.increment();
+                return false;
+            }
+        } while (!tail.compareAndSet(start, start + padding + size));
+        
+        if (padding > 0) {
+            // The record doesn't fit before the end, so the rest of the lap is skipped
+            INT.setRelease(ring, offset, -padding);
+            offset = 0;
+        }
+        INT.set(ring, offset + 4, name.length);
+        LONG.set(ring, offset + 8, System.currentTimeMillis());
+        System.arraycopy(name, 0, ring, offset + HEADER, name.length);
+        INT.set(ring, offset + 16, encode(text, length, offset + HEADER + name.length));
+        INT.setRelease(ring, offset, size);
+        return true;
+    }
+    
+    // UTF-8 bytes for a character; a surrogate counts 2, exact for a pair and one over for a lone one
+    private static int utf8Bound(char c) {
+        return c < 0x80 ? 1 : c < 0x800 || Character.isSurrogate(c) ? 2 : 3;
+    }
+    
+    // Encode into the ring, returning the number of bytes; lone surrogates become '?'
+    private int encode(char[] text, int length, int from) {
+        byte[] out = ring;
+        int at = from;
+        for (int i = 0; i < length; i++) {
+            char c = text[i];
+            if (c < 0x80) {
+                out[at++] = (byte) c;
+            } else if (c < 0x800) {
+                out[at++] = (byte) (0xC0 | c >> 6);
+                out[at++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text[i + 1])) {
+                int cp = Character.toCodePoint(c, text[++i]);
+                out[at++] = (byte) (0xF0 | cp >> 18);
+                out[at++] = (byte) (0x80 | cp >> 12 & 0x3F);
+                out[at++] = (byte) (0x80 | cp >> 6 & 0x3F);
+                out[at++] = (byte) (0x80 | cp & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                out[at++] = '?';
+            } else {
+                out[at++] = (byte) (0xE0 | c >> 12);
+                out[at++] = (byte) (0x80 | c >> 6 & 0x3F);
+                out[at++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return at - from;
+    }
+    
+    // Records dropped because the ring was full
+    public long dropped() {
+        return droppedRecords.sum();
+    }
+    
+    // Bytes written to files so far, before compression; text still being staged is not counted
+    public long written() {
+        return written;
+    }
+    
+    // The background writer: drain what is published, park briefly when there is nothing
+    private void drainLoop() {
+        long idle = IDLE_PARK_NANOS;
+        long lastFlush = System.nanoTime();
+        try {
+            while (true) {
+                boolean stop = closing;
+                if (drain()) {
+                    idle = IDLE_PARK_NANOS;
+                    continue;
+                }
+                reportDrops();
+                if (stop) {
+                    break;
+                }
+                long now = System.nanoTime();
+                if (now - lastFlush >= FLUSH_NANOS) {
+                    writeStaged();
+                    if (file != null) {
+                        file.flush();
+                    }
+                    lastFlush = now;
+                }
+                LockSupport.parkNanos(idle);
+                idle = Math.min(idle * 2, MAX_IDLE_PARK_NANOS);
+            }
+            writeStaged();
+            if (file != null) {
+                file.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Transcript writer stopped: " + e.getMessage());
+        }
+    }
+    
+    // Write out every published record; false if there were none
+    private boolean drain() throws IOException {
+        boolean any = false;
+        long at = head;
+        while (true) {
+            int offset = (int) (at & mask);
+            int size = (int) INT.getAcquire(ring, offset);
+            if (size == 0) {
+                break;
+            }
+            if (size > 0) {
+                writeRecord(offset);
+            } else {
+                size = -size;
+            }
+            // Cleared before the space is handed back, so a stale length is never read as a new record
+            Arrays.fill(ring, offset, offset + size, (byte) 0);
+            at += size;
+            head = at;
+            any = true;
+        }
+        return any;
+    }
+    
+    // One line per line of text, each starting with the time and the session
+    private void writeRecord(int offset) throws IOException {
+        int nameLength = (int) INT.get(ring, offset + 4);
+        long time = (long) LONG.get(ring, offset + 8);
+        int length = (int) INT.get(ring, offset + 16);
+        int name = offset + HEADER;
+        int start = name + nameLength;
+        int end = start + length;
+        if (length > 0 && ring[end - 1] == '\n') {
+            end--;
+        }
+        stampFor(time);
+        int line = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || ring[i] == '\n') {
+                stageLine(ring, name, nameLength, line, i - line);
+                line = i + 1;
+            }
+        }
+    }
+    
+    /**
+     * Copy a stamped line into the staging buffer, which goes to the file in
+     * large writes. Lines are never split between writes, so a file always
+     * starts and ends on a whole line.
+     */
+    private void stageLine(byte[] text, int name, int nameLength, int from, int length) throws IOException {
+        int total = stamp.length + nameLength + length + 1;
+        if (staged + total > staging.length) {
+            writeStaged();
+        }
+        if (total > staging.length) {
+            OutputStream out = currentFile();
+            out.write(stamp);
+            out.write(text, name, nameLength);
+            out.write(text, from, length);
+            out.write('\n');
+            fileBytes += total;
+            written += total;
+            return;
+        }
+        System.arraycopy(stamp, 0, staging, staged, stamp.length);
+        System.arraycopy(text, name, staging, staged + stamp.length, nameLength);
+        System.arraycopy(text, from, staging, staged + stamp.length + nameLength, length);
+        staging[staged + total - 1] = '\n';
+        staged += total;
+    }
+    
+    private void writeStaged() throws IOException {
+        if (staged > 0) {
+            currentFile().write(staging, 0, staged);
+            fileBytes += staged;
+            written += staged;
+            staged = 0;
+        }
+    }
+    
+    // Note lost text in the transcript itself, so readers know there is a gap
+    private void reportDrops() throws IOException {
+        long drops = dropped();
+        if (drops > reportedDrops) {
+            stampFor(System.currentTimeMillis());
+            byte[] note = (DROP_NAME + (drops - reportedDrops) + " records dropped, the ring was full")
+                .getBytes(StandardCharsets.UTF_8);
+            int name = DROP_NAME.length();
+            stageLine(note, 0, name, name, note.length - name);
+            reportedDrops = drops;
+        }
+    }
+    
+    // HH:mm:ss.SSS, formatted once a second and patched for the milliseconds
+    private void stampFor(long millis) {
+        long second = millis / 1000;
+        if (second != stampSecond) {
+            stampSecond = second;
+            LocalTime time = LocalTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+            byte[] text = String.format("%02d:%02d:%02d.", time.getHour(), time.getMinute(), time.getSecond())
+                .getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(text, 0, stamp, 0, text.length);
+        }
+        int ms = (int) (millis % 1000);
+        stamp[9] = (byte) ('0' + ms / 100);
+        stamp[10] = (byte) ('0' + ms / 10 % 10);
+        stamp[11] = (byte) ('0' + ms % 10);
+        stamp[12] = ' ';
+    }
+    
+    // The file being written, starting a new one when it has grown too large
+    private OutputStream currentFile() throws IOException {
+        if (file != null && fileBytes < rotateBytes) {
+            return file;
+        }
+        if (file != null) {
+            file.close();
+        }
+        fileBytes = 0;
+        fileNumber++;
+        Path path = directory.resolve(String.format("transcript-%s-%04d.log%s", fileStamp, fileNumber, gzip ? ".gz" : ""));
+        OutputStream stream = Files.newOutputStream(path);
+        if (gzip) {
+            // Transcripts repeat themselves, so the fastest level still shrinks them several times over
+            stream = new GZIPOutputStream(stream, 1 << 16, true) {
+                {
+                    def.setLevel(Deflater.BEST_SPEED);
+                }
+            };
+        }
+        file = stream;
+        files.add(path);
+        while (files.size() > keepFiles) {
+            Files.deleteIfExists(files.removeFirst());
+        }
+        return file;
+    }
+    
+    /**
+     * Write out everything logged so far and stop the writer. Text logged
+     * afterwards is dropped.
+     */
+    @Override
+    public void close() {
+        closing = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
\ No newline at end of file
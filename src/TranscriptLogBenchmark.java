@@ -0,0 +1,119 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Benchmark for the transcript log
+ * First logs turns of walkthrough text from many sessions on several threads
+ * and reports the cost of each call, then plays the walkthrough in many games
+ * with transcripts off and on to compare the time per command. Files go to a
+ * temporary directory that is deleted afterwards.
+ *
+ * Usage: java TranscriptLogBenchmark [sessions] [turns per session] [threads] [--gzip]
+ */
+public class TranscriptLogBenchmark {
+    private static final int GAMES = 300;
+    
+    public static void main(String[] args) throws Exception {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int turns = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        boolean gzip = Arrays.asList(args).contains("--gzip");
+        
+        Path dir = ScenarioRunner.scenarioDir();
+        String golden = new String(Files.readAllBytes(dir.resolve("walkthrough.golden")), StandardCharsets.UTF_8);
+        String[] turnTexts = golden.split("\n(?=> )");
+        List<String> commands = new ArrayList<>();
+        for (String line : Files.readAllLines(dir.resolve("walkthrough.scenario"))) {
+            if (!line.isEmpty() && !line.startsWith("#") && !line.startsWith("@")) {
+                commands.add(line);
+            }
+        }
+        
+        Path directory = Files.createTempDirectory("transcripts");
+        try {
+            logDirectly(directory.resolve("direct"), turnTexts, sessions, turns, threads, gzip);
+            // Twice, so the second round of each runs warm
+            for (int round = 0; round < 2; round++) {
+                double off = playGames(null, commands);
+                TranscriptLog log = new TranscriptLog(directory.resolve("games"), 4 << 20, gzip, 64 << 20, 20);
+                double on = playGames(log, commands);
+                log.close();
+                if (round == 1) {
+                    System.out.printf("Walkthrough per command: %.2f us without transcripts, %.2f us with (%+.1f%%), %d dropped%n",
+                        off / 1e3, on / 1e3, (on - off) * 100 / off, log.dropped());
+                }
+            }
+        } finally {
+            try (var paths = Files.walk(directory)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+    
+    // Log turns straight into the ring from many sessions at once
+    private static void logDirectly(Path directory, String[] turnTexts, int sessions, int turns, int threads, boolean gzip) throws Exception {
+        TranscriptLog log = new TranscriptLog(directory, 4 << 20, gzip, 64 << 20, 20);
+        QuantileSketch nanos = new QuantileSketch();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Callable<Long>> tasks = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int from = sessions * t / threads;
+            int to = sessions * (t + 1) / threads;
+            tasks.add(() -> {
+                List<TranscriptLog.Session> mine = new ArrayList<>();
+                for (int s = from; s < to; s++) {
+                    mine.add(log.open("bench-" + s));
+                }
+                long chars = 0;
+                for (int turn = 0; turn < turns; turn++) {
+                    String text = turnTexts[turn % turnTexts.length];
+                    for (TranscriptLog.Session session : mine) {
+                        long start = System.nanoTime();
+                        session.log(text);
+                        nanos.record(System.nanoTime() - start);
+                        chars += text.length();
+                    }
+                }
+                return chars;
+            });
+        }
+        long start = System.nanoTime();
+        long chars = 0;
+        for (Future<Long> done : pool.invokeAll(tasks)) {
+            chars += done.get();
+        }
+        long logged = System.nanoTime() - start;
+        pool.shutdown();
+        log.close();
+        long drained = System.nanoTime() - start;
+        
+        System.out.printf("Logged %,d turns from %,d sessions on %d threads: %.0f ns/call mean, p50 %.0f, p99 %.0f, p99.9 %.0f ns%n",
+            nanos.count(), sessions, threads, nanos.mean(), nanos.quantile(0.5), nanos.quantile(0.99), nanos.quantile(0.999));
+        System.out.printf("%,.0f MB of text logged at %.0f MB/s, written out in %.0f ms, %,d turns dropped%n",
+            chars / 1e6, chars * 1e3 / logged, drained / 1e6, log.dropped());
+    }
+    
+    // Mean nanoseconds per command over many plays of the walkthrough
+    private static double playGames(TranscriptLog log, List<String> commands) {
+        long total = 0;
+        long played = 0;
+        for (int g = 0; g < GAMES; g++) {
+            ConsoleRenderer out = new ConsoleRenderer(OutputStream.nullOutputStream(), StandardCharsets.UTF_8);
+            Game game = new Game(out);
+            game.begin();
+            if (log != null) {
+                out.setTranscript(log.open("game-" + g));
+            }
+            long start = System.nanoTime();
+            for (String command : commands) {
+                game.play(command);
+                played++;
+            }
+            total += System.nanoTime() - start;
+        }
+        return (double) total / played;
+    }
+}
\ No newline at end of file
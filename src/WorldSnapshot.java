@@ -0,0 +1,151 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Prebuilt copy of the standard world's locations, items and connections
+ * Reading the snapshot replaces building the world room by room at startup.
+ * Rules and monsters are code, so they are not stored; GameWorld adds them
+ * after loading. The snapshot must be rewritten whenever the world changes:
+ *
+ *   java WorldSnapshot [file]     (default world.snapshot)
+ *
+ * Snapshots from another format version are ignored.
+ */
+public final class WorldSnapshot {
+    public static final String FILE_NAME = "world.snapshot";
+    private static final int MAGIC = 0x41445657;
+    private static final int VERSION = 2;
+    
+    private final String startId;
+    private final Map<String, Location> locations;
+    
+    private WorldSnapshot(String startId, Map<String, Location> locations) {
+        this.startId = startId;
+        this.locations = locations;
+    }
+    
+    public String getStartId() {
+        return startId;
+    }
+    
+    public Map<String, Location> getLocations() {
+        return locations;
+    }
+    
+    /**
+     * Write a world's locations, their items and their exits
+     */
+    public static void write(GameWorld world, OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        List<Location> rooms = new ArrayList<>(world.getLocations().values());
+        Map<Location, Integer> index = new IdentityHashMap<>();
+        for (Location room : rooms) {
+            index.put(room, index.size());
+        }
+        
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(world.getStartLocation().getId());
+        out.writeInt(rooms.size());
+        for (Location room : rooms) {
+            out.writeUTF(room.getId());
+            out.writeUTF(room.getName());
+            out.writeUTF(room.getDescription());
+            writeItems(out, room.getItemSnapshot());
+        }
+        // Exits go after every room so each can refer to its target by number
+        for (Location room : rooms) {
+            Set<String> directions = room.getAvailableDirections();
+            out.writeInt(directions.size());
+            for (String direction : directions) {
+                out.writeUTF(direction);
+                out.writeInt(index.get(room.getConnection(direction)));
+            }
+        }
+        out.flush();
+    }
+    
+    /**
+     * Read a snapshot written by write
+     */
+    public static WorldSnapshot read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a world snapshot of version " + VERSION);
+        }
+        String startId = in.readUTF();
+        Location[] rooms = new Location[in.readInt()];
+        Map<String, Location> locations = new HashMap<>();
+        for (int r = 0; r < rooms.length; r++) {
+            rooms[r] = new Location(in.readUTF(), in.readUTF(), in.readUTF());
+            for (Item item : readItems(in)) {
+                rooms[r].addItem(item);
+            }
+            locations.put(rooms[r].getId(), rooms[r]);
+        }
+        for (Location room : rooms) {
+            int exits = in.readInt();
+            for (int e = 0; e < exits; e++) {
+                room.addConnection(in.readUTF(), rooms[in.readInt()]);
+            }
+        }
+        return new WorldSnapshot(startId, locations);
+    }
+    
+    // Items, each followed by its contents if it is a container
+    private static void writeItems(DataOutputStream out, Item[] items) throws IOException {
+        out.writeInt(items.length);
+        for (Item item : items) {
+            out.writeBoolean(item instanceof Container);
+            out.writeUTF(item.getName());
+            out.writeUTF(item.getDescription());
+            out.writeBoolean(item.canTake());
+            if (item instanceof Container) {
+                writeItems(out, ((Container) item).getContents());
+            } else {
+                out.writeBoolean(item.canUse());
+                out.writeUTF(item.getUseMessage());
+            }
+        }
+    }
+    
+    private static Item[] readItems(DataInputStream in) throws IOException {
+        Item[] items = new Item[in.readInt()];
+        for (int i = 0; i < items.length; i++) {
+            boolean isContainer = in.readBoolean();
+            String name = in.readUTF();
+            String description = in.readUTF();
+            boolean canTake = in.readBoolean();
+            if (isContainer) {
+                Container container = new Container(name, description, canTake);
+                for (Item inner : readItems(in)) {
+                    container.add(inner);
+                }
+                items[i] = container;
+            } else {
+                items[i] = new Item(name, description, canTake, in.readBoolean(), in.readUTF());
+            }
+        }
+        return items;
+    }
+    
+    /**
+     * The snapshot on the classpath, or null if there is none or it can't be read
+     */
+    public static WorldSnapshot fromClasspath() {
+        try (InputStream stream = WorldSnapshot.class.getResourceAsStream(FILE_NAME)) {
+            return stream != null ? read(stream) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    
+    public static void main(String[] args) throws IOException {
+        Path file = Paths.get(args.length > 0 ? args[0] : FILE_NAME);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            write(new GameWorld(), out);
+        }
+        System.out.println("Wrote " + file + " (" + Files.size(file) + " bytes)");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,615 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Explores every reachable state of a world to check that it can be won
+ * A state is the player's room, health, whether the game is won, and where
+ * every item is (in a room, carried, or gone), packed into one 64-bit key.
+ * States are expanded level by level with a parallel breadth-first search
+ * and remembered in a concurrent map, so the first path found to any state
+ * is a shortest one.
+ *
+ * Plain moves, takes and drops are computed directly on the key. Moves
+ * through guarded exits or into rooms with triggers, and using items, are
+ * replayed on a per-thread scratch copy of the world with the real rules,
+ * so the solver always agrees with the game. Monsters and timed effects are
+ * not part of the state.
+ *
+ * Usage: java WorldSolver [width height doors seed]
+ * With no arguments the standard world is solved; otherwise a generated one.
+ */
+public class WorldSolver {
+    private static final int GONE = 0;
+    private static final int CARRIED = 1;
+    
+    private static final int MOVE = 0;
+    private static final int TAKE = 1;
+    private static final int DROP = 2;
+    private static final int USE = 3;
+    
+    private static final MessageSink SILENT = (text, tone) -> { };
+    
+    private final Supplier<GameWorld> worlds;
+    private final ThreadLocal<Scratch> scratch;
+    
+    // Room layout, indexed as in the world's RoomGraph
+    private final String[] roomIds;
+    private final String[][] directions;
+    private final int[][] targets;
+    private final boolean[][] replayMove;
+    
+    // Items, tracked by name
+    private final String[] itemNames;
+    private final boolean[] takeable;
+    private final boolean[] usable;
+    private final Map<String, Integer> itemIndex;
+    
+    // Key layout: room | health | won | item positions
+    private final int roomBits;
+    private final int itemBits;
+    private final int healthShift;
+    private final int wonShift;
+    private final int itemShift;
+    
+    private final Map<Long, Node> visited;
+    private final AtomicInteger ids;
+    
+    public WorldSolver(Supplier<GameWorld> worlds) {
+        this.worlds = worlds;
+        this.scratch = ThreadLocal.withInitial(Scratch::new);
+        this.visited = new ConcurrentHashMap<>();
+        this.ids = new AtomicInteger();
+        
+        GameWorld model = worlds.get();
+        RoomGraph graph = model.getGraph();
+        GameRules rules = model.getRules();
+        int rooms = graph.size();
+        roomIds = new String[rooms];
+        directions = new String[rooms][];
+        targets = new int[rooms][];
+        replayMove = new boolean[rooms][];
+        List<Item> items = new ArrayList<>();
+        itemIndex = new HashMap<>();
+        for (int r = 0; r < rooms; r++) {
+            Location room = graph.getRoom(r);
+            roomIds[r] = room.getId();
+            List<String> exits = new ArrayList<>(room.getAvailableDirections());
+            Collections.sort(exits);
+            directions[r] = exits.toArray(new String[0]);
+            targets[r] = new int[exits.size()];
+            replayMove[r] = new boolean[exits.size()];
+            for (int d = 0; d < exits.size(); d++) {
+                Location target = room.getConnection(exits.get(d));
+                targets[r][d] = graph.indexOf(target);
+                replayMove[r][d] = rules.guardsFor(room.getId(), exits.get(d)).length > 0
+                    || rules.triggersFor(target.getId()).length > 0;
+            }
+            for (Item item : room.getItems()) {
+                if (itemIndex.putIfAbsent(item.getKey(), items.size()) == null) {
+                    items.add(item);
+                }
+            }
+        }
+        itemNames = new String[items.size()];
+        takeable = new boolean[items.size()];
+        usable = new boolean[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            itemNames[i] = items.get(i).getName();
+            takeable[i] = items.get(i).canTake();
+            usable[i] = items.get(i).canUse();
+        }
+        
+        roomBits = bitsFor(rooms);
+        itemBits = bitsFor(rooms + 2);
+        healthShift = roomBits;
+        wonShift = healthShift + 7;
+        itemShift = wonShift + 1;
+        if (itemShift + itemBits * items.size() > 64) {
+            throw new IllegalArgumentException("World too large for a 64-bit state key: " +
+                rooms + " rooms, " + items.size() + " items");
+        }
+    }
+    
+    /**
+     * A visited state, the step that first reached it and where it leads
+     */
+    private static class Node {
+        private final long key;
+        private final int id;
+        private final Node parent;
+        private final int action;
+        private int[] successors;
+        
+        private Node(long key, int id, Node parent, int action) {
+            this.key = key;
+            this.id = id;
+            this.parent = parent;
+            this.action = action;
+        }
+    }
+    
+    /**
+     * A private copy of the world used to replay moves through the real rules
+     */
+    private class Scratch {
+        private final GameRules rules;
+        private final Location[] rooms;
+        private final Player player;
+        private final Item[] items;
+        private final Map<Item, Integer> tracked;
+        // The state the scratch world is in, unless it must be rebuilt
+        private long loaded;
+        private boolean stale = true;
+        
+        private Scratch() {
+            GameWorld world = worlds.get();
+            RoomGraph graph = world.getGraph();
+            rules = world.getRules();
+            rooms = new Location[graph.size()];
+            for (int r = 0; r < rooms.length; r++) {
+                rooms[r] = graph.getRoom(r);
+            }
+            items = new Item[itemNames.length];
+            tracked = new IdentityHashMap<>();
+            for (Location room : rooms) {
+                for (Item item : room.getItems()) {
+                    Integer i = itemIndex.get(item.getKey());
+                    if (i != null && items[i] == null) {
+                        items[i] = item;
+                        tracked.put(item, i);
+                    }
+                }
+            }
+            player = new Player("Solver", world.getStartLocation());
+        }
+        
+        // Put the scratch world into the given state, moving only the items that differ
+        private void load(long key) {
+            if (stale) {
+                clear();
+            }
+            for (int i = 0; i < items.length; i++) {
+                int position = itemPosition(key, i);
+                int before = stale ? GONE : itemPosition(loaded, i);
+                if (position == before) {
+                    continue;
+                }
+                if (before == CARRIED) {
+                    player.removeItem(items[i]);
+                } else if (before != GONE) {
+                    rooms[before - 2].removeItem(items[i]);
+                }
+                if (position == CARRIED) {
+                    player.addItem(items[i]);
+                } else if (position != GONE) {
+                    rooms[position - 2].addItem(items[i]);
+                }
+            }
+            player.setCurrentLocation(rooms[roomOf(key)]);
+            player.setHealth(healthOf(key));
+            player.setGameWon(isWon(key));
+            player.setGameLost(false);
+            loaded = key;
+            stale = false;
+        }
+        
+        private void clear() {
+            for (Location room : rooms) {
+                for (Item item : room.getItems()) {
+                    room.removeItem(item);
+                }
+            }
+            for (Item item : player.getInventory()) {
+                player.removeItem(item);
+            }
+        }
+        
+        /**
+         * Read the scratch world's state back into a key. Items the key cannot
+         * describe (spawned by a rule) force a full reload next time.
+         */
+        private long save() {
+            long key = (long) indexOfRoom(player.getCurrentLocation()) | (long) player.getHealth() << healthShift;
+            if (player.isGameWon()) {
+                key |= 1L << wonShift;
+            }
+            boolean complete = true;
+            for (int r = 0; r < rooms.length; r++) {
+                for (Item item : rooms[r].getItems()) {
+                    Integer i = tracked.get(item);
+                    if (i != null) {
+                        key = withItem(key, i, r + 2);
+                    } else {
+                        complete = false;
+                    }
+                }
+            }
+            for (Item item : player.getInventory()) {
+                Integer i = tracked.get(item);
+                if (i != null) {
+                    key = withItem(key, i, CARRIED);
+                } else {
+                    complete = false;
+                }
+            }
+            loaded = key;
+            stale = !complete;
+            return key;
+        }
+        
+        private int indexOfRoom(Location location) {
+            for (int r = 0; r < rooms.length; r++) {
+                if (rooms[r] == location) {
+                    return r;
+                }
+            }
+            throw new IllegalStateException("Player left the world: " + location.getId());
+        }
+    }
+    
+    /**
+     * What the search found
+     */
+    public static class Report {
+        private final int states;
+        private final long edges;
+        private final long nanos;
+        private final List<String> winningPath;
+        private final int winningStates;
+        private final int deaths;
+        private final int stuck;
+        private final List<String> fatalMoves;
+        private final List<String> unreachableRooms;
+        
+        private Report(int states, long edges, long nanos, List<String> winningPath, int winningStates,
+                       int deaths, int stuck, List<String> fatalMoves, List<String> unreachableRooms) {
+            this.states = states;
+            this.edges = edges;
+            this.nanos = nanos;
+            this.winningPath = winningPath;
+            this.winningStates = winningStates;
+            this.deaths = deaths;
+            this.stuck = stuck;
+            this.fatalMoves = fatalMoves;
+            this.unreachableRooms = unreachableRooms;
+        }
+        
+        public boolean isWinnable() {
+            return winningPath != null;
+        }
+        
+        public List<String> getWinningPath() {
+            return winningPath;
+        }
+        
+        public List<String> getUnreachableRooms() {
+            return unreachableRooms;
+        }
+        
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Explored %,d states and %,d moves in %.0f ms (%,.0f states/s)%n",
+                states, edges, nanos / 1e6, states / Math.max(nanos / 1e9, 1e-9)));
+            if (winningPath == null) {
+                sb.append("The world cannot be won.\n");
+            } else {
+                sb.append(String.format("%,d winning states; shortest win in %d moves:%n",
+                    winningStates, winningPath.size()));
+                sb.append("  ").append(String.join(", ", winningPath)).append('\n');
+            }
+            sb.append(String.format("Dead ends: %,d states where the player has died, %,d where the game " +
+                "can no longer be won%n", deaths, stuck));
+            for (String move : fatalMoves) {
+                sb.append("  ").append(move).append('\n');
+            }
+            sb.append("Unreachable rooms: ")
+                .append(unreachableRooms.isEmpty() ? "none" : String.join(", ", unreachableRooms));
+            return sb.toString();
+        }
+    }
+    
+    /**
+     * Explore every state reachable from the start of the world
+     */
+    public Report solve() {
+        long start = System.nanoTime();
+        long startKey = startKey(worlds.get());
+        Node root = new Node(startKey, ids.getAndIncrement(), null, -1);
+        visited.put(spread(startKey), root);
+        
+        List<Node> frontier = List.of(root);
+        while (!frontier.isEmpty()) {
+            List<Node> current = frontier;
+            frontier = ForkJoinPool.commonPool().submit(() -> current.parallelStream()
+                .flatMap(node -> expand(node).stream())
+                .collect(Collectors.toList())).join();
+        }
+        return analyse(System.nanoTime() - start);
+    }
+    
+    // The start state, read from a fresh copy of the world
+    private long startKey(GameWorld world) {
+        RoomGraph graph = world.getGraph();
+        long key = (long) graph.indexOf(world.getStartLocation()) | 100L << healthShift;
+        for (int r = 0; r < graph.size(); r++) {
+            for (Item item : graph.getRoom(r).getItems()) {
+                Integer i = itemIndex.get(item.getKey());
+                if (i != null) {
+                    key = withItem(key, i, r + 2);
+                }
+            }
+        }
+        return key;
+    }
+    
+    /**
+     * Work out every state one action away and return the ones seen for the
+     * first time
+     */
+    private List<Node> expand(Node node) {
+        long key = node.key;
+        if (isWon(key) || healthOf(key) == 0) {
+            node.successors = new int[0];
+            return List.of();
+        }
+        
+        int room = roomOf(key);
+        List<Node> discovered = new ArrayList<>();
+        int[] successors = new int[directions[room].length + 2 * itemNames.length];
+        int count = 0;
+        for (int d = 0; d < directions[room].length; d++) {
+            long next = replayMove[room][d] ? replay(key, MOVE, d) : withRoom(key, targets[room][d]);
+            count = link(node, next, action(MOVE, d), successors, count, discovered);
+        }
+        for (int i = 0; i < itemNames.length; i++) {
+            int position = itemPosition(key, i);
+            if (position == room + 2 && takeable[i]) {
+                count = link(node, withItem(key, i, CARRIED), action(TAKE, i), successors, count, discovered);
+            } else if (position == CARRIED) {
+                count = link(node, withItem(key, i, room + 2), action(DROP, i), successors, count, discovered);
+                if (usable[i]) {
+                    count = link(node, replay(key, USE, i), action(USE, i), successors, count, discovered);
+                }
+            }
+        }
+        node.successors = Arrays.copyOf(successors, count);
+        return discovered;
+    }
+    
+    // Record an edge, claiming the target state if nobody has reached it yet
+    private int link(Node from, long next, int action, int[] successors, int count, List<Node> discovered) {
+        if (next == from.key) {
+            return count;
+        }
+        Long slot = spread(next);
+        Node existing = visited.get(slot);
+        if (existing == null) {
+            Node fresh = new Node(next, ids.getAndIncrement(), from, action);
+            existing = visited.putIfAbsent(slot, fresh);
+            if (existing == null) {
+                existing = fresh;
+                discovered.add(fresh);
+            }
+        }
+        successors[count] = existing.id;
+        return count + 1;
+    }
+    
+    // Run an action on the scratch world with the real rules
+    private long replay(long key, int kind, int index) {
+        Scratch world = scratch.get();
+        world.load(key);
+        if (kind == MOVE) {
+            world.rules.move(world.player, directions[roomOf(key)][index], SILENT, () -> { });
+        } else {
+            world.player.useItem(itemNames[index]);
+        }
+        return world.save();
+    }
+    
+    /**
+     * Work backwards from the winning states to find the states that can still
+     * win, then summarise the rest
+     */
+    private Report analyse(long nanos) {
+        Node[] byId = new Node[ids.get()];
+        for (Node node : visited.values()) {
+            byId[node.id] = node;
+        }
+        
+        // Predecessor lists in compressed form
+        int[] start = new int[byId.length + 1];
+        long edges = 0;
+        for (Node node : byId) {
+            if (node != null) {
+                for (int s : node.successors) {
+                    start[s + 1]++;
+                }
+                edges += node.successors.length;
+            }
+        }
+        for (int i = 0; i < byId.length; i++) {
+            start[i + 1] += start[i];
+        }
+        int[] predecessors = new int[(int) edges];
+        int[] fill = Arrays.copyOf(start, byId.length);
+        for (Node node : byId) {
+            if (node != null) {
+                for (int s : node.successors) {
+                    predecessors[fill[s]++] = node.id;
+                }
+            }
+        }
+        
+        boolean[] winnable = new boolean[byId.length];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        Node shortestWin = null;
+        int winningStates = 0;
+        for (Node node : byId) {
+            if (node != null && isWon(node.key)) {
+                winningStates++;
+                winnable[node.id] = true;
+                queue.add(node.id);
+                if (shortestWin == null || depth(node) < depth(shortestWin)) {
+                    shortestWin = node;
+                }
+            }
+        }
+        while (!queue.isEmpty()) {
+            int id = queue.poll();
+            for (int p = start[id]; p < start[id + 1]; p++) {
+                if (!winnable[predecessors[p]]) {
+                    winnable[predecessors[p]] = true;
+                    queue.add(predecessors[p]);
+                }
+            }
+        }
+        
+        // Moves that turn a winnable state into a lost cause, grouped by what was done
+        int deaths = 0;
+        int stuck = 0;
+        Map<String, Integer> fatal = new TreeMap<>();
+        Map<String, Node> example = new HashMap<>();
+        boolean[] visitedRoom = new boolean[roomIds.length];
+        for (Node node : byId) {
+            if (node == null) {
+                continue;
+            }
+            visitedRoom[roomOf(node.key)] = true;
+            if (winnable[node.id]) {
+                continue;
+            }
+            if (healthOf(node.key) == 0) {
+                deaths++;
+            } else {
+                stuck++;
+            }
+            if (node.parent != null && winnable[node.parent.id]) {
+                String move = describe(node) + " in " + roomIds[roomOf(node.parent.key)];
+                fatal.merge(move, 1, Integer::sum);
+                example.merge(move, node, (a, b) -> depth(a) <= depth(b) ? a : b);
+            }
+        }
+        
+        List<String> fatalMoves = new ArrayList<>();
+        fatal.entrySet().stream()
+            .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+            .limit(10)
+            .forEach(e -> fatalMoves.add(e.getKey() + " (" + e.getValue() + " states), e.g. after: " +
+                String.join(", ", path(example.get(e.getKey()).parent))));
+        
+        List<String> unreachable = new ArrayList<>();
+        for (int r = 0; r < roomIds.length; r++) {
+            if (!visitedRoom[r]) {
+                unreachable.add(roomIds[r]);
+            }
+        }
+        return new Report(visited.size(), edges, nanos, shortestWin != null ? path(shortestWin) : null,
+            winningStates, deaths, stuck, fatalMoves, unreachable);
+    }
+    
+    // The actions leading from the start to a state
+    private List<String> path(Node node) {
+        LinkedList<String> steps = new LinkedList<>();
+        for (Node n = node; n.parent != null; n = n.parent) {
+            steps.addFirst(describe(n));
+        }
+        return steps;
+    }
+    
+    private static int depth(Node node) {
+        int depth = 0;
+        for (Node n = node; n.parent != null; n = n.parent) {
+            depth++;
+        }
+        return depth;
+    }
+    
+    // The command that led to a state
+    private String describe(Node node) {
+        int kind = node.action >>> 24;
+        int index = node.action & 0xFFFFFF;
+        switch (kind) {
+            case MOVE:
+                return "go " + directions[roomOf(node.parent.key)][index];
+            case TAKE:
+                return "take " + itemNames[index];
+            case DROP:
+                return "drop " + itemNames[index];
+            default:
+                return "use " + itemNames[index];
+        }
+    }
+    
+    private static int action(int kind, int index) {
+        return kind << 24 | index;
+    }
+    
+    // Key fields
+    
+    private int roomOf(long key) {
+        return (int) (key & ((1L << roomBits) - 1));
+    }
+    
+    private long withRoom(long key, int room) {
+        return key & ~((1L << roomBits) - 1) | room;
+    }
+    
+    private int healthOf(long key) {
+        return (int) (key >>> healthShift & 0x7F);
+    }
+    
+    private boolean isWon(long key) {
+        return (key >>> wonShift & 1) != 0;
+    }
+    
+    private int itemPosition(long key, int item) {
+        return (int) (key >>> (itemShift + item * itemBits) & ((1L << itemBits) - 1));
+    }
+    
+    private long withItem(long key, int item, int position) {
+        int shift = itemShift + item * itemBits;
+        return key & ~(((1L << itemBits) - 1) << shift) | (long) position << shift;
+    }
+    
+    /**
+     * Scramble a key before using it in the visited map. Long.hashCode folds
+     * the high item bits onto the low ones and collides badly; this mix is a
+     * bijection, so distinct keys stay distinct.
+     */
+    private static long spread(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+    
+    private static int bitsFor(int values) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(values - 1));
+    }
+    
+    public static void main(String[] args) {
+        Supplier<GameWorld> worlds;
+        if (args.length >= 4) {
+            int width = Integer.parseInt(args[0]);
+            int height = Integer.parseInt(args[1]);
+            int doors = Integer.parseInt(args[2]);
+            long seed = Long.parseLong(args[3]);
+            worlds = () -> GameWorld.generate(width, height, doors, seed);
+            System.out.println("Solving a generated " + width + "x" + height + " world with " + doors +
+                " locked doors (seed " + seed + ") on " + ForkJoinPool.commonPool().getParallelism() + " threads");
+        } else {
+            worlds = GameWorld::new;
+            System.out.println("Solving the standard world on " + ForkJoinPool.commonPool().getParallelism() +
+                " threads");
+        }
+        System.out.println(new WorldSolver(worlds).solve());
+    }
+}
\ No newline at end of file